@@ -0,0 +1,244 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.load;
+
+import de.unimarburg.diz.nexuspathotofhir.configuration.CsvMappings;
+import de.unimarburg.diz.nexuspathotofhir.model.PathoReport;
+import de.unimarburg.diz.nexuspathotofhir.model.PathoSpecimen;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Seeded generator of realistic Nexus input. Record {@code i} only depends on seed and index, so
+ * streams of any length are reproducible and can be generated lazily. Report {@code i} and
+ * specimen {@code i} belong to the same order.
+ *
+ * <p>Probe names and extraction methods are drawn from the mapping csv files, a configurable share
+ * of probe names is altered (case, blanks, abbreviation) to produce realistic mapping misses.
+ */
+public class NexusDataGenerator {
+
+  /**
+   * @param seed base seed
+   * @param minTextLength min length of each free text finding
+   * @param maxTextLength max length, lengths are log-uniform distributed between min and max
+   * @param mainReportWeight relative share of 'Hauptbefund'
+   * @param correctionWeight relative share of 'Korrekturbericht 1-5'
+   * @param additionWeight relative share of 'Zusatzbefund 1-10'
+   * @param maxBlocks max sub containers per specimen, uniform from 1
+   * @param maxSlidesPerBlock max slides per sub container, uniform from 1
+   * @param blankCutRatio share of slides which are blank cuts (type 12)
+   * @param unmappedProbeNameRatio share of probe names not matching the mapping verbatim
+   */
+  public record Settings(
+      long seed,
+      int minTextLength,
+      int maxTextLength,
+      int mainReportWeight,
+      int correctionWeight,
+      int additionWeight,
+      int maxBlocks,
+      int maxSlidesPerBlock,
+      double blankCutRatio,
+      double unmappedProbeNameRatio) {
+
+    public static Settings defaults() {
+      return new Settings(42L, 200, 8000, 70, 15, 15, 8, 6, 0.02, 0.05);
+    }
+
+    public Settings {
+      if (minTextLength < 1 || maxTextLength < minTextLength)
+        throw new IllegalArgumentException("text length range is invalid");
+      if (mainReportWeight < 0 || correctionWeight < 0 || additionWeight < 0)
+        throw new IllegalArgumentException("weights must not be negative");
+      if (mainReportWeight + correctionWeight + additionWeight == 0)
+        throw new IllegalArgumentException("at least one report type weight must be positive");
+      if (maxBlocks < 1 || maxSlidesPerBlock < 1)
+        throw new IllegalArgumentException("container counts must be positive");
+    }
+  }
+
+  private static final String[] SENTENCES = {
+    "Schleimhautbiopsate mit geringgradiger chronischer Gastritis. ",
+    "Fokal intestinale Metaplasie ohne Anhalt für Dysplasie. ",
+    "Tumorinfiltrate eines mäßig differenzierten Adenokarzinoms. ",
+    "Resektionsränder tumorfrei, minimaler Abstand 4 mm. ",
+    "Lymphknoten ohne Nachweis von Tumorzellen (0/12). ",
+    "Immunhistochemisch CK7 positiv, CK20 negativ, TTF1 positiv. ",
+    "Gewebezylinder von 1,2 cm Länge, grau-weißlich, komplett eingebettet. ",
+  };
+
+  private static final String[] STAININGS = {"HE", "PAS", "GIEMSA", "HE|AFP", "CK7|CK20"};
+
+  private static final String[] TNM = {"pT1a N0 M0", "pT2 N1 M0", "pT1-3c N2a M1", "pT4b N3 M1"};
+
+  private static final String[] ICD = {"C16.0", "C18.7", "C34.1", "C41.1", "C50.4", "K29.5"};
+
+  private final Settings settings;
+  private final List<String> probeNames;
+  private final List<String> extractionMethods;
+
+  public NexusDataGenerator(
+      Settings settings, List<String> probeNames, List<String> extractionMethods) {
+    if (probeNames.isEmpty() || extractionMethods.isEmpty())
+      throw new IllegalArgumentException("probe names and extraction methods must not be empty");
+    this.settings = settings;
+    this.probeNames = List.copyOf(probeNames);
+    this.extractionMethods = List.copyOf(extractionMethods);
+  }
+
+  /** draws probe names and extraction methods from the csv files at {@code mappingDir} */
+  public static NexusDataGenerator fromMappings(Settings settings, Path mappingDir) {
+    return new NexusDataGenerator(
+        settings,
+        localCodes(mappingDir.resolve("specimenType.csv")),
+        localCodes(mappingDir.resolve("specimenExtractionMethod.csv")));
+  }
+
+  private static List<String> localCodes(Path csv) {
+    return CsvMappings.readLineByLine(csv).keySet().stream()
+        .filter(code -> !"localCode".equals(code))
+        .sorted()
+        .toList();
+  }
+
+  public Stream<PathoReport> reports() {
+    return LongStream.iterate(0, i -> i + 1).mapToObj(this::report);
+  }
+
+  public Stream<PathoSpecimen> specimens() {
+    return LongStream.iterate(0, i -> i + 1).mapToObj(this::specimen);
+  }
+
+  public PathoReport report(long index) {
+    final SplittableRandom random = randomFor(index, 1);
+    var report = new PathoReport();
+    report.setBefundID("report-" + settings.seed() + "-" + index);
+    final long created = 1_700_000_000_000L + index * 60_000L;
+    report.setBefundErstellungsdatum(created);
+    report.setLetzteBearbeitungsdatum(created + random.nextLong(3_600_000L));
+    report.setAuftragsnummer(orderNumber(index));
+    report.setPatientennummer(patientNumber(index));
+    report.setFallnummer(encounterNumber(index));
+    report.setBefundtyp(befundtyp(random));
+    report.setTnm(TNM[random.nextInt(TNM.length)]);
+    report.setMakroskopischerBefund(text(random));
+    report.setMikroskopischerBefund(text(random));
+    report.setDiagnoseConclusion(ICD[random.nextInt(ICD.length)]);
+    if (random.nextInt(4) == 0) report.setSonstigesBefund(text(random));
+    report.setProbeName(probeName(random));
+    report.setProbeID(probeId(index));
+    report.setProbeEntnahmedatum(created - random.nextLong(7 * 86_400_000L));
+    report.setAuftragsgeberFABCode("KAR");
+    return report;
+  }
+
+  public PathoSpecimen specimen(long index) {
+    final SplittableRandom random = randomFor(index, 2);
+    final String probeId = probeId(index);
+
+    final List<String[]> containers = new ArrayList<>();
+    // guid, parent guid, name, label, type
+    containers.add(new String[] {probeId + "-root", "NA", "1", probeId, "3"});
+    final int blocks = 1 + random.nextInt(settings.maxBlocks());
+    for (int block = 1; block <= blocks; block++) {
+      final String blockGuid = probeId + "-b" + block;
+      containers.add(
+          new String[] {blockGuid, probeId + "-root", "1." + block, probeId + "-1-" + block, "1"});
+      final int slides = 1 + random.nextInt(settings.maxSlidesPerBlock());
+      for (int slide = 1; slide <= slides; slide++) {
+        final boolean blankCut = random.nextDouble() < settings.blankCutRatio();
+        containers.add(
+            new String[] {
+              blockGuid + "-s" + slide,
+              blockGuid,
+              "1." + block + "-" + slide + "-" + STAININGS[random.nextInt(STAININGS.length)],
+              probeId + "-1-" + block + "-" + slide,
+              blankCut ? "12" : "2"
+            });
+      }
+    }
+
+    var specimen = new PathoSpecimen();
+    specimen.setProbeID(probeId);
+    specimen.setPatientennummer(patientNumber(index));
+    specimen.setFallnummer(encounterNumber(index));
+    specimen.setAuftragsnummer(orderNumber(index));
+    specimen.setProbeGewinnungsmethode(
+        extractionMethods.get(random.nextInt(extractionMethods.size())));
+    final String probeName = probeName(random);
+    specimen.setProbeName(probeName);
+    specimen.setOrgan(probeName.split(" ")[0]);
+    specimen.setProbeEntnahmedatum(1_700_000_000_000L + index * 60_000L);
+    specimen.setContainerGUIDs(column(containers, 0));
+    specimen.setContainerParents(column(containers, 1));
+    specimen.setContainerNames(column(containers, 2));
+    specimen.setContainerLabels(column(containers, 3));
+    specimen.setContainerTyps(column(containers, 4));
+    return specimen;
+  }
+
+  /** independent, reproducible random per record and record type */
+  private SplittableRandom randomFor(long index, long stream) {
+    long seed = settings.seed() * 0x9E3779B97F4A7C15L + index * 0xBF58476D1CE4E5B9L + stream;
+    return new SplittableRandom(seed);
+  }
+
+  private String befundtyp(SplittableRandom random) {
+    final int total =
+        settings.mainReportWeight() + settings.correctionWeight() + settings.additionWeight();
+    final int value = random.nextInt(total);
+    if (value < settings.mainReportWeight()) return "Hauptbefund";
+    if (value < settings.mainReportWeight() + settings.correctionWeight())
+      return "Korrekturbericht " + (1 + random.nextInt(5));
+    return "Zusatzbefund " + (1 + random.nextInt(10));
+  }
+
+  private String probeName(SplittableRandom random) {
+    final String name = probeNames.get(random.nextInt(probeNames.size()));
+    if (random.nextDouble() >= settings.unmappedProbeNameRatio()) return name;
+    return switch (random.nextInt(3)) {
+      case 0 -> name.toLowerCase();
+      case 1 -> " " + name.replace(" ", "  ") + " ";
+      default -> name.length() > 4 ? name.substring(0, name.length() - 2) : name + ".";
+    };
+  }
+
+  /** log-uniform between min and max text length */
+  private String text(SplittableRandom random) {
+    final double min = Math.log(settings.minTextLength());
+    final double max = Math.log(settings.maxTextLength());
+    final int length = (int) Math.exp(min + random.nextDouble() * (max - min));
+    var builder = new StringBuilder(length + 100);
+    while (builder.length() < length) builder.append(SENTENCES[random.nextInt(SENTENCES.length)]);
+    builder.setLength(length);
+    return builder.toString();
+  }
+
+  private static String orderNumber(long index) {
+    return "H/2024/" + index;
+  }
+
+  private static String patientNumber(long index) {
+    // several orders per patient
+    return Long.toString(1_000_000 + index / 3);
+  }
+
+  private static String encounterNumber(long index) {
+    return Long.toString(5_000_000 + index / 2);
+  }
+
+  private static String probeId(long index) {
+    return "H2024" + index + "S1";
+  }
+
+  private static String column(List<String[]> rows, int index) {
+    var joiner = new StringJoiner(", ");
+    rows.forEach(row -> joiner.add(row[index]));
+    return joiner.toString();
+  }
+}
@@ -0,0 +1,136 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import de.unimarburg.diz.nexuspathotofhir.model.PathoInputBase;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+
+/**
+ * Writes generated reports or specimens as NDJSON file or to a Kafka topic.
+ *
+ * <pre>
+ * ./gradlew generateNexusData \
+ *     -PgeneratorArgs="--type=report --count=100000 --out=build/reports.ndjson"
+ * ./gradlew generateNexusData \
+ *     -PgeneratorArgs="--type=specimen --count=100000 --topic=patho-specimen --rate=500"
+ * </pre>
+ *
+ * Further options: {@code --seed}, {@code --mapping-dir}, {@code --min-text-length}, {@code
+ * --max-text-length}, {@code --main-report-weight}, {@code --correction-weight}, {@code
+ * --addition-weight}, {@code --max-blocks}, {@code --max-slides-per-block}, {@code
+ * --blank-cut-ratio}, {@code --unmapped-probe-name-ratio}.
+ */
+public class NexusDataGeneratorCli {
+
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  public static void main(String[] args) throws Exception {
+    final Map<String, String> options = parse(args);
+    final var defaults = NexusDataGenerator.Settings.defaults();
+    final var settings =
+        new NexusDataGenerator.Settings(
+            Long.parseLong(options.getOrDefault("seed", Long.toString(defaults.seed()))),
+            intOption(options, "min-text-length", defaults.minTextLength()),
+            intOption(options, "max-text-length", defaults.maxTextLength()),
+            intOption(options, "main-report-weight", defaults.mainReportWeight()),
+            intOption(options, "correction-weight", defaults.correctionWeight()),
+            intOption(options, "addition-weight", defaults.additionWeight()),
+            intOption(options, "max-blocks", defaults.maxBlocks()),
+            intOption(options, "max-slides-per-block", defaults.maxSlidesPerBlock()),
+            Double.parseDouble(
+                options.getOrDefault(
+                    "blank-cut-ratio", Double.toString(defaults.blankCutRatio()))),
+            Double.parseDouble(
+                options.getOrDefault(
+                    "unmapped-probe-name-ratio",
+                    Double.toString(defaults.unmappedProbeNameRatio()))));
+    final var generator =
+        NexusDataGenerator.fromMappings(
+            settings, Path.of(options.getOrDefault("mapping-dir", "src/main/resources/mappings")));
+
+    final long count = Long.parseLong(options.getOrDefault("count", "1000"));
+    final String type = options.getOrDefault("type", "report");
+    final Stream<? extends PathoInputBase> records =
+        switch (type) {
+          case "report" -> generator.reports();
+          case "specimen" -> generator.specimens();
+          default -> throw new IllegalArgumentException("unknown type " + type);
+        };
+
+    if (options.containsKey("topic")) {
+      toKafka(
+          records.limit(count).iterator(),
+          options.get("topic"),
+          options.getOrDefault("bootstrap-servers", "localhost:9092"),
+          intOption(options, "rate", 0));
+    } else if (options.containsKey("out")) {
+      toFile(records.limit(count).iterator(), Path.of(options.get("out")));
+    } else {
+      throw new IllegalArgumentException("either --out or --topic is required");
+    }
+  }
+
+  private static Map<String, String> parse(String[] args) {
+    final Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      if (!arg.startsWith("--") || !arg.contains("="))
+        throw new IllegalArgumentException("expected --name=value but got " + arg);
+      options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+    }
+    return options;
+  }
+
+  private static int intOption(Map<String, String> options, String name, int defaultValue) {
+    return options.containsKey(name) ? Integer.parseInt(options.get(name)) : defaultValue;
+  }
+
+  private static void toFile(Iterator<? extends PathoInputBase> records, Path out)
+      throws IOException {
+    if (out.getParent() != null) Files.createDirectories(out.getParent());
+    try (OutputStream stream = Files.newOutputStream(out);
+        SequenceWriter writer =
+            objectMapper.writer().withRootValueSeparator("\n").writeValues(stream)) {
+      while (records.hasNext()) writer.write(records.next());
+    }
+  }
+
+  private static void toKafka(
+      Iterator<? extends PathoInputBase> records, String topic, String bootstrapServers, int rate)
+      throws IOException, InterruptedException {
+    final Properties config = new Properties();
+    config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+    config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+    config.put(ProducerConfig.LINGER_MS_CONFIG, 20);
+    try (var producer =
+        new KafkaProducer<>(config, new StringSerializer(), new ByteArraySerializer())) {
+      final long start = System.nanoTime();
+      long sent = 0;
+      while (records.hasNext()) {
+        final PathoInputBase record = records.next();
+        producer.send(
+            new ProducerRecord<>(topic, record.getUUID(), objectMapper.writeValueAsBytes(record)));
+        sent++;
+        if (rate > 0) {
+          final long wait = start + sent * 1_000_000_000L / rate - System.nanoTime();
+          if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+        }
+      }
+      producer.flush();
+    }
+  }
+}
@@ -0,0 +1,211 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.unimarburg.diz.nexuspathotofhir.Application;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+/**
+ * Runs the real topology against an in-process broker and reports sustained throughput and end to
+ * end latency per binding. Latency is measured from the input record timestamp, which Kafka
+ * Streams passes on to the output record, until the bundle is consumed.
+ *
+ * <p>Run with {@code ./gradlew loadTest -Pload.records=20000 -Pload.rate=0}.
+ */
+@Tag("load")
+@SpringBootTest(
+    classes = Application.class,
+    properties = {
+      "spring.kafka.security.protocol=PLAINTEXT",
+      "spring.cloud.stream.kafka.streams.binder.brokers=${spring.kafka.bootstrap-servers}",
+      "spring.cloud.stream.kafka.streams.binder.configuration.state.dir="
+          + "${java.io.tmpdir}/patho-load-${random.uuid}",
+      "management.server.port=0",
+      "logging.level.de.unimarburg.diz.nexuspathotofhir=info",
+    })
+@EmbeddedKafka(
+    partitions = 4,
+    bootstrapServersProperty = "spring.kafka.bootstrap-servers",
+    topics = {"patho-report", "patho-specimen", "idat-patho-report", "idat-patho-specimen"})
+class PipelineLoadTest {
+
+  private static final Logger log = LoggerFactory.getLogger(PipelineLoadTest.class);
+
+  /** records per binding */
+  private static final int RECORDS = Integer.getInteger("load.records", 2000);
+
+  /** target records per second and binding, 0 sends as fast as possible */
+  private static final int RATE = Integer.getInteger("load.rate", 0);
+
+  private static final Duration TIMEOUT =
+      Duration.parse(System.getProperty("load.timeout", "PT5M"));
+
+  /** mappable records only, unmapped probe names would be measured as failures */
+  private static final NexusDataGenerator GENERATOR =
+      NexusDataGenerator.fromMappings(
+          withoutUnmappedProbeNames(NexusDataGenerator.Settings.defaults()),
+          Path.of("src/main/resources/mappings"));
+
+  @Autowired EmbeddedKafkaBroker broker;
+
+  @Test
+  void reportThroughputAndLatency() {
+    var result =
+        run("processPathoReport", "patho-report", "idat-patho-report", GENERATOR::report);
+    assertThat(result.received()).isEqualTo(RECORDS);
+  }
+
+  @Test
+  void specimenThroughputAndLatency() {
+    var result =
+        run(
+            "processPathoSpecimen", "patho-specimen", "idat-patho-specimen", GENERATOR::specimen);
+    assertThat(result.received()).isEqualTo(RECORDS);
+  }
+
+  private static NexusDataGenerator.Settings withoutUnmappedProbeNames(
+      NexusDataGenerator.Settings settings) {
+    return new NexusDataGenerator.Settings(
+        settings.seed(),
+        settings.minTextLength(),
+        settings.maxTextLength(),
+        settings.mainReportWeight(),
+        settings.correctionWeight(),
+        settings.additionWeight(),
+        settings.maxBlocks(),
+        settings.maxSlidesPerBlock(),
+        settings.blankCutRatio(),
+        0);
+  }
+
+  record Result(int received, double recordsPerSecond, long p50, long p99, long p999) {}
+
+  private Result run(
+      String binding, String inputTopic, String outputTopic, IntFunction<Object> records) {
+    try (Producer<String, Object> producer = producer();
+        Consumer<String, byte[]> consumer = consumer(binding, outputTopic)) {
+      // wait for the topology, startup must not count as latency
+      send(producer, inputTopic, "warmup", records.apply(RECORDS));
+      receive(consumer, Set.of("warmup"), new long[1], TIMEOUT);
+
+      final Set<String> keys = new HashSet<>();
+      final long start = System.nanoTime();
+      for (int i = 0; i < RECORDS; i++) {
+        final String key = binding + "-" + i;
+        keys.add(key);
+        send(producer, inputTopic, key, records.apply(i));
+        if (RATE > 0) throttle(start, i + 1);
+      }
+      producer.flush();
+
+      final long[] latencies = new long[RECORDS];
+      final int received = receive(consumer, keys, latencies, TIMEOUT);
+      final double seconds = (System.nanoTime() - start) / 1e9;
+
+      Arrays.sort(latencies, 0, received);
+      var result =
+          new Result(
+              received,
+              received / seconds,
+              percentile(latencies, received, 0.5),
+              percentile(latencies, received, 0.99),
+              percentile(latencies, received, 0.999));
+      log.info(
+          "{}: {} of {} records, {} records/s, latency p50={}ms p99={}ms p999={}ms",
+          binding,
+          result.received(),
+          RECORDS,
+          String.format("%.1f", result.recordsPerSecond()),
+          result.p50(),
+          result.p99(),
+          result.p999());
+      return result;
+    }
+  }
+
+  private static void send(
+      Producer<String, Object> producer, String topic, String key, Object value) {
+    producer.send(new ProducerRecord<>(topic, null, System.currentTimeMillis(), key, value));
+  }
+
+  private static void throttle(long start, int sent) {
+    final long due = start + sent * 1_000_000_000L / RATE;
+    final long wait = due - System.nanoTime();
+    if (wait > 0) {
+      try {
+        Thread.sleep(Duration.ofNanos(wait));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * consumes until all keys have been seen, split bundles count once
+   *
+   * @return number of received keys, their latencies are written to {@code latencies}
+   */
+  private static int receive(
+      Consumer<String, byte[]> consumer, Set<String> keys, long[] latencies, Duration timeout) {
+    final Set<String> pending = new HashSet<>(keys);
+    final long deadline = System.nanoTime() + timeout.toNanos();
+    int received = 0;
+    while (!pending.isEmpty() && System.nanoTime() < deadline) {
+      for (ConsumerRecord<String, byte[]> record : consumer.poll(Duration.ofMillis(100))) {
+        final long now = System.currentTimeMillis();
+        if (pending.remove(record.key())) latencies[received++] = now - record.timestamp();
+      }
+    }
+    return received;
+  }
+
+  private static long percentile(long[] sorted, int count, double quantile) {
+    if (count == 0) return -1;
+    return sorted[Math.min(count - 1, (int) Math.ceil(quantile * count) - 1)];
+  }
+
+  private Producer<String, Object> producer() {
+    Map<String, Object> props = KafkaTestUtils.producerProps(broker);
+    return new DefaultKafkaProducerFactory<>(
+            props, new StringSerializer(), new JsonSerializer<>().noTypeInfo())
+        .createProducer();
+  }
+
+  private Consumer<String, byte[]> consumer(String group, String topic) {
+    Map<String, Object> props = KafkaTestUtils.consumerProps(group + "-load", "false", broker);
+    props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+    Consumer<String, byte[]> consumer =
+        new DefaultKafkaConsumerFactory<>(
+                props, new StringDeserializer(), new ByteArrayDeserializer())
+            .createConsumer();
+    broker.consumeFromAnEmbeddedTopic(consumer, topic);
+    return consumer;
+  }
+}
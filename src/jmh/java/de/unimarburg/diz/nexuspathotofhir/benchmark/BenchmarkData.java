@@ -0,0 +1,203 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.benchmark;
+
+import de.unimarburg.diz.nexuspathotofhir.configuration.CsvMappings;
+import de.unimarburg.diz.nexuspathotofhir.configuration.FhirProperties;
+import de.unimarburg.diz.nexuspathotofhir.configuration.ProcessorProperties;
+import de.unimarburg.diz.nexuspathotofhir.mapper.DiagnosticConclusionGrouperMapper;
+import de.unimarburg.diz.nexuspathotofhir.mapper.DiagnosticReportMapper;
+import de.unimarburg.diz.nexuspathotofhir.mapper.MacroscopicGrouperMapper;
+import de.unimarburg.diz.nexuspathotofhir.mapper.MicroscopicGrouperMapper;
+import de.unimarburg.diz.nexuspathotofhir.mapper.PathoFindingDiagConclusionMapper;
+import de.unimarburg.diz.nexuspathotofhir.mapper.PathoFindingMacroMapper;
+import de.unimarburg.diz.nexuspathotofhir.mapper.PathoFindingMicroMapper;
+import de.unimarburg.diz.nexuspathotofhir.mapper.ServiceRequestMapper;
+import de.unimarburg.diz.nexuspathotofhir.mapper.ToFhirMapper;
+import de.unimarburg.diz.nexuspathotofhir.model.PathoReport;
+import de.unimarburg.diz.nexuspathotofhir.model.PathoSpecimen;
+import de.unimarburg.diz.nexuspathotofhir.processor.BundleDeduplication;
+import de.unimarburg.diz.nexuspathotofhir.processor.BundleSplitter;
+import de.unimarburg.diz.nexuspathotofhir.processor.DeadLetterHandler;
+import de.unimarburg.diz.nexuspathotofhir.processor.LatencyTracking;
+import de.unimarburg.diz.nexuspathotofhir.processor.LogicalIdAddressing;
+import de.unimarburg.diz.nexuspathotofhir.processor.MapperExecutionMode;
+import de.unimarburg.diz.nexuspathotofhir.processor.MapperFanOutExecutor;
+import de.unimarburg.diz.nexuspathotofhir.processor.PathologyReportProcessor;
+import de.unimarburg.diz.nexuspathotofhir.processor.PipelineMetrics;
+import de.unimarburg.diz.nexuspathotofhir.processor.ReportCoalescing;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import org.hl7.fhir.r4.model.Bundle;
+import org.springframework.core.env.StandardEnvironment;
+
+/** realistic inputs and production like configuration for benchmarks */
+public final class BenchmarkData {
+
+  /** directory of the mapping csv files, set by the gradle jmh task */
+  public static final String MAPPING_DIR_PROPERTY = "benchmark.mapping.dir";
+
+  private static final String SYSTEM_BASE = "https://your-local-system/pathology/";
+
+  private static final String FINDING_TEXT =
+      "Schleimhautbiopsate aus dem Magenantrum mit geringgradiger chronischer Gastritis, "
+          + "fokal intestinale Metaplasie, kein Anhalt für Dysplasie oder Malignität. ";
+
+  private BenchmarkData() {}
+
+  public static FhirProperties fhirProperties() {
+    var systems = new FhirProperties.FhirSystems();
+    systems.setServiceRequestId(SYSTEM_BASE + "serviceRequestId");
+    systems.setDiagnosticReportId(SYSTEM_BASE + "diagnosticReportId");
+    systems.setObservationId(SYSTEM_BASE + "observationId");
+    systems.setPatientId(SYSTEM_BASE + "patientId");
+    systems.setEncounterId(SYSTEM_BASE + "encounterId");
+    systems.setOrganizationId(SYSTEM_BASE + "department");
+    systems.setSpecimenRequestId(SYSTEM_BASE + "specimenRequestId");
+    systems.setDiagnosticFindingId(SYSTEM_BASE + "diagnosticFindingId");
+    systems.setSpecimenContainer(SYSTEM_BASE + "specimenContainer");
+    systems.setSpecimenId(SYSTEM_BASE + "specimenId");
+    systems.setPerformerId(SYSTEM_BASE + "performerId");
+    var properties = new FhirProperties();
+    properties.setSystems(systems);
+    return properties;
+  }
+
+  public static CsvMappings csvMappings() {
+    final String dir = System.getProperty(MAPPING_DIR_PROPERTY, "src/main/resources/mappings");
+    return new CsvMappings(
+        dir + "/specimenType.csv",
+        dir + "/specimenExtractionMethod.csv",
+        dir + "/specimenContainerType.csv",
+        dir + "/specimenBodysite.csv");
+  }
+
+  /** all report mappers, in the order of {@code PathologyReportProcessor} */
+  public static List<ToFhirMapper> reportMappers(
+      FhirProperties fhirProperties, CsvMappings csvMappings) {
+    return List.of(
+        new DiagnosticConclusionGrouperMapper(fhirProperties, csvMappings),
+        new DiagnosticReportMapper(fhirProperties, csvMappings),
+        new MacroscopicGrouperMapper(fhirProperties, csvMappings),
+        new MicroscopicGrouperMapper(fhirProperties, csvMappings),
+        new PathoFindingDiagConclusionMapper(fhirProperties, csvMappings),
+        new PathoFindingMacroMapper(fhirProperties, csvMappings),
+        new PathoFindingMicroMapper(fhirProperties, csvMappings),
+        new ServiceRequestMapper(fhirProperties, csvMappings));
+  }
+
+  /** executor for {@link #reportBundle}, shut it down on tear down */
+  public static MapperFanOutExecutor mapperExecutor() {
+    var processorProperties = new ProcessorProperties();
+    processorProperties.getMapperExecutor().setMode(MapperExecutionMode.PARALLEL_STREAM);
+    return new MapperFanOutExecutor(processorProperties, new SimpleMeterRegistry());
+  }
+
+  /**
+   * @param textLength approximate length of each free text finding
+   * @param executor executor of the report mappers, see {@link #mapperExecutor()}
+   * @return bundle as emitted for {@link #report(int)}
+   */
+  public static Bundle reportBundle(int textLength, MapperFanOutExecutor executor) {
+    var meterRegistry = new SimpleMeterRegistry();
+    var processorProperties = new ProcessorProperties();
+    var csvMappings = csvMappings();
+    var processor =
+        new PathologyReportProcessor(
+            reportMappers(fhirProperties(), csvMappings),
+            fhirProperties(),
+            csvMappings,
+            executor,
+            new BundleDeduplication(processorProperties, meterRegistry, csvMappings),
+            new ReportCoalescing(processorProperties, meterRegistry),
+            new DeadLetterHandler(processorProperties, meterRegistry),
+            new BundleSplitter(processorProperties, meterRegistry),
+            new PipelineMetrics(new StandardEnvironment(), meterRegistry),
+            new LatencyTracking(processorProperties, meterRegistry),
+            new LogicalIdAddressing(processorProperties, meterRegistry));
+    return processor.processReport(report(textLength));
+  }
+
+  /**
+   * @param textLength approximate length of each free text finding
+   */
+  public static PathoReport report(int textLength) {
+    var report = new PathoReport();
+    report.setBefundID("f3b1c2d4-5e6f-4a7b-8c9d-0e1f2a3b4c5d");
+    report.setBefundErstellungsdatum(1719565355113L);
+    report.setLetzteBearbeitungsdatum(1719565355113L);
+    report.setAuftragsnummer("H/2024/012345");
+    report.setPatientennummer("0000001");
+    report.setFallnummer("5000001");
+    report.setBefundtyp("Hauptbefund");
+    report.setTnm("pT1-3c N2a M1");
+    report.setMakroskopischerBefund(text("Makroskopie: ", textLength));
+    report.setMikroskopischerBefund(text("Mikroskopie: ", textLength));
+    report.setDiagnoseConclusion(text("Diagnose: ", textLength));
+    report.setProbeName("Magen PE");
+    report.setProbeID("H2024012345S1");
+    report.setProbeEntnahmedatum(1719478955113L);
+    report.setAuftragsgeberFABCode("KAR");
+    return report;
+  }
+
+  private static String text(String prefix, int length) {
+    var builder = new StringBuilder(prefix);
+    while (builder.length() < length) builder.append(FINDING_TEXT);
+    return builder.toString();
+  }
+
+  /**
+   * root container with blocks (type 1), each holding slides (type 2)
+   *
+   * @param slides total number of slides, one block per ten slides
+   */
+  public static PathoSpecimen specimen(int slides) {
+    final String probeId = "H2024012345S1";
+    final int blocks = Math.max(1, (slides + 9) / 10);
+
+    final List<String[]> containers = new ArrayList<>();
+    // guid, parent guid, name, label, type
+    containers.add(new String[] {"root", "NA", "1", probeId, "3"});
+    for (int block = 1; block <= blocks; block++) {
+      final String blockGuid = "block-" + block;
+      containers.add(
+          new String[] {
+            blockGuid, "root", "1." + block, probeId + "-1-" + block, "1",
+          });
+      for (int slide = 1; slide <= 10 && (block - 1) * 10 + slide <= slides; slide++) {
+        containers.add(
+            new String[] {
+              "slide-" + block + "-" + slide,
+              blockGuid,
+              "1." + block + "-" + slide + "-HE",
+              probeId + "-1-" + block + "-" + slide,
+              "2",
+            });
+      }
+    }
+
+    var specimen = new PathoSpecimen();
+    specimen.setProbeID(probeId);
+    specimen.setPatientennummer("0000001");
+    specimen.setFallnummer("5000001");
+    specimen.setAuftragsnummer("H/2024/012345");
+    specimen.setProbeGewinnungsmethode("Biopsien");
+    specimen.setProbeName("Magen PE");
+    specimen.setOrgan("Magen");
+    specimen.setProbeEntnahmedatum(1719478955113L);
+    specimen.setContainerGUIDs(column(containers, 0));
+    specimen.setContainerParents(column(containers, 1));
+    specimen.setContainerNames(column(containers, 2));
+    specimen.setContainerLabels(column(containers, 3));
+    specimen.setContainerTyps(column(containers, 4));
+    return specimen;
+  }
+
+  private static String column(List<String[]> rows, int index) {
+    var joiner = new StringJoiner(", ");
+    rows.forEach(row -> joiner.add(row[index]));
+    return joiner.toString();
+  }
+}
@@ -0,0 +1,83 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.benchmark;
+
+import de.unimarburg.diz.nexuspathotofhir.processor.MapperFanOutExecutor;
+import de.unimarburg.diz.nexuspathotofhir.serde.BundleEncoding;
+import de.unimarburg.diz.nexuspathotofhir.serde.FhirDeserializer;
+import de.unimarburg.diz.nexuspathotofhir.serde.FhirSerializer;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.hl7.fhir.r4.model.Bundle;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link FhirSerializer} and {@link FhirDeserializer} on report bundles from a few KB (text length
+ * 500) to several MB (text length 1000000) per {@link BundleEncoding}. The encoded size is
+ * reported as auxiliary counter {@code bytes}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BundleSerdeBenchmark {
+
+  /** length of each free text finding */
+  @Param({"500", "50000", "1000000"})
+  public int textLength;
+
+  @Param({"JSON", "SMILE", "CBOR"})
+  public BundleEncoding encoding;
+
+  /** encoded size of the bundle */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Size {
+    public long bytes;
+  }
+
+  private MapperFanOutExecutor executor;
+  private FhirSerializer<Bundle> serializer;
+  private FhirDeserializer<Bundle> deserializer;
+  private Bundle bundle;
+  private byte[] data;
+
+  @Setup
+  public void setup() {
+    serializer = new FhirSerializer<>(encoding);
+    deserializer = new FhirDeserializer<>(Bundle.class);
+    executor = BenchmarkData.mapperExecutor();
+    bundle = BenchmarkData.reportBundle(textLength, executor);
+    data = serializer.serialize("bundle", bundle);
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  @Benchmark
+  public byte[] serialize(Size size) {
+    final byte[] serialized = serializer.serialize("bundle", new RecordHeaders(), bundle);
+    size.bytes = serialized.length;
+    return serialized;
+  }
+
+  @Benchmark
+  public Bundle deserialize() {
+    return deserializer.deserialize("bundle", new RecordHeaders(), data);
+  }
+}
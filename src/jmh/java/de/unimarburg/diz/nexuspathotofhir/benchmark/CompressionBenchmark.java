@@ -0,0 +1,107 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.benchmark;
+
+import de.unimarburg.diz.nexuspathotofhir.processor.MapperFanOutExecutor;
+import de.unimarburg.diz.nexuspathotofhir.serde.BundleEncoding;
+import de.unimarburg.diz.nexuspathotofhir.serde.FhirSerializer;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.common.compress.Compression;
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.Record;
+import org.apache.kafka.common.record.RecordBatch;
+import org.apache.kafka.common.record.SimpleRecord;
+import org.apache.kafka.common.utils.BufferSupplier;
+import org.apache.kafka.common.utils.CloseableIterator;
+import org.hl7.fhir.r4.model.Bundle;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Producer side compression and consumer side decompression of one encoded report bundle per
+ * record batch, as done by the Kafka client for the binder {@code compression.type}. Encoded and
+ * compressed size are reported as auxiliary counters {@code payloadBytes} and {@code
+ * compressedBytes}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompressionBenchmark {
+
+  /** length of each free text finding */
+  @Param({"500", "50000", "1000000"})
+  public int textLength;
+
+  @Param({"NONE", "GZIP", "SNAPPY", "LZ4", "ZSTD"})
+  public CompressionType compressionType;
+
+  @Param({"JSON", "SMILE"})
+  public BundleEncoding encoding;
+
+  /** sizes of the last compressed batch */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Size {
+    public long payloadBytes;
+    public long compressedBytes;
+  }
+
+  private MapperFanOutExecutor executor;
+  private Compression compression;
+  private byte[] payload;
+  private MemoryRecords compressed;
+
+  @Setup
+  public void setup() {
+    compression = Compression.of(compressionType).build();
+    executor = BenchmarkData.mapperExecutor();
+    payload =
+        new FhirSerializer<Bundle>(encoding)
+            .serialize("bundle", BenchmarkData.reportBundle(textLength, executor));
+    compressed = compress(new Size());
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  @Benchmark
+  public MemoryRecords compress(Size size) {
+    final MemoryRecords records =
+        MemoryRecords.withRecords(
+            compression, new SimpleRecord(System.currentTimeMillis(), null, payload));
+    size.payloadBytes = payload.length;
+    size.compressedBytes = records.sizeInBytes();
+    return records;
+  }
+
+  @Benchmark
+  public void decompress(Blackhole blackhole) {
+    for (RecordBatch batch : compressed.batches()) {
+      try (CloseableIterator<Record> records = batch.streamingIterator(BufferSupplier.NO_CACHING)) {
+        while (records.hasNext()) {
+          final ByteBuffer value = records.next().value();
+          // read the whole value, decompression is lazy for some codecs
+          blackhole.consume(value.get(value.limit() - 1));
+        }
+      }
+    }
+  }
+}
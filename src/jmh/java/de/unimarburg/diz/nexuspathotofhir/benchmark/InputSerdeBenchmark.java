@@ -0,0 +1,74 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.benchmark;
+
+import de.unimarburg.diz.nexuspathotofhir.model.PathoReport;
+import de.unimarburg.diz.nexuspathotofhir.model.PathoSpecimen;
+import de.unimarburg.diz.nexuspathotofhir.serde.PathoReportSerde;
+import de.unimarburg.diz.nexuspathotofhir.serde.PathoSpecimenSerde;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** deserialization of the Nexus input records as done by the input bindings */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InputSerdeBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class ReportInput {
+    /** length of each free text finding */
+    @Param({"500", "20000"})
+    public int textLength;
+
+    Deserializer<PathoReport> deserializer;
+    byte[] data;
+
+    @Setup
+    public void setup() {
+      try (var serde = new PathoReportSerde()) {
+        data = serde.serializer().serialize("report", BenchmarkData.report(textLength));
+      }
+      deserializer = new PathoReportSerde().deserializer();
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class SpecimenInput {
+    @Param({"4", "400"})
+    public int slides;
+
+    Deserializer<PathoSpecimen> deserializer;
+    byte[] data;
+
+    @Setup
+    public void setup() {
+      try (var serde = new PathoSpecimenSerde()) {
+        data = serde.serializer().serialize("specimen", BenchmarkData.specimen(slides));
+      }
+      deserializer = new PathoSpecimenSerde().deserializer();
+    }
+  }
+
+  @Benchmark
+  public PathoReport deserializeReport(ReportInput input) {
+    return input.deserializer.deserialize("report", input.data);
+  }
+
+  @Benchmark
+  public PathoSpecimen deserializeSpecimen(SpecimenInput input) {
+    return input.deserializer.deserialize("specimen", input.data);
+  }
+}
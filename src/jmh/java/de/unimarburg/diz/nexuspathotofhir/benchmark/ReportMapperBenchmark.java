@@ -0,0 +1,77 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.benchmark;
+
+import de.unimarburg.diz.nexuspathotofhir.mapper.ReportMappingContext;
+import de.unimarburg.diz.nexuspathotofhir.mapper.ToFhirMapper;
+import de.unimarburg.diz.nexuspathotofhir.model.PathoReport;
+import java.util.concurrent.TimeUnit;
+import org.hl7.fhir.r4.model.Bundle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time per report of each {@link ToFhirMapper}. {@code IntraoperativeGrouperMapper} is not
+ * implemented yet and therefore not part of the parameters.
+ *
+ * <p>{@link #apply()} derives the {@link ReportMappingContext} per call as a single mapper does,
+ * {@link #applyWithContext()} reuses it as the report processor does for all mappers of a record.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReportMapperBenchmark {
+
+  @Param({
+    "DiagnosticConclusionGrouperMapper",
+    "DiagnosticReportMapper",
+    "MacroscopicGrouperMapper",
+    "MicroscopicGrouperMapper",
+    "PathoFindingDiagConclusionMapper",
+    "PathoFindingMacroMapper",
+    "PathoFindingMicroMapper",
+    "ServiceRequestMapper",
+  })
+  public String mapper;
+
+  /** length of each free text finding */
+  @Param({"500", "20000"})
+  public int textLength;
+
+  private ToFhirMapper fixture;
+  private PathoReport report;
+  private ReportMappingContext context;
+
+  @Setup
+  public void setup() {
+    fixture =
+        BenchmarkData.reportMappers(BenchmarkData.fhirProperties(), BenchmarkData.csvMappings())
+            .stream()
+            .filter(m -> m.getClass().getSimpleName().equals(mapper))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("unknown mapper " + mapper));
+    report = BenchmarkData.report(textLength);
+    context = ReportMappingContext.of(report, BenchmarkData.fhirProperties());
+  }
+
+  @Benchmark
+  public Bundle.BundleEntryComponent apply() {
+    return fixture.apply(report);
+  }
+
+  @Benchmark
+  public Bundle.BundleEntryComponent applyWithContext() {
+    return fixture.apply(context);
+  }
+}
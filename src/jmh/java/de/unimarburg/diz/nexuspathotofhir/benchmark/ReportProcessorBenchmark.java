@@ -0,0 +1,87 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.benchmark;
+
+import de.unimarburg.diz.nexuspathotofhir.configuration.ProcessorProperties;
+import de.unimarburg.diz.nexuspathotofhir.model.PathoReport;
+import de.unimarburg.diz.nexuspathotofhir.processor.BundleDeduplication;
+import de.unimarburg.diz.nexuspathotofhir.processor.BundleSplitter;
+import de.unimarburg.diz.nexuspathotofhir.processor.DeadLetterHandler;
+import de.unimarburg.diz.nexuspathotofhir.processor.LatencyTracking;
+import de.unimarburg.diz.nexuspathotofhir.processor.LogicalIdAddressing;
+import de.unimarburg.diz.nexuspathotofhir.processor.MapperExecutionMode;
+import de.unimarburg.diz.nexuspathotofhir.processor.MapperFanOutExecutor;
+import de.unimarburg.diz.nexuspathotofhir.processor.PathologyReportProcessor;
+import de.unimarburg.diz.nexuspathotofhir.processor.PipelineMetrics;
+import de.unimarburg.diz.nexuspathotofhir.processor.ReportCoalescing;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.hl7.fhir.r4.model.Bundle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.StandardEnvironment;
+
+/** {@link PathologyReportProcessor#processReport} with all mappers per execution mode */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReportProcessorBenchmark {
+
+  @Param({"POOL", "VIRTUAL", "STRUCTURED", "PARALLEL_STREAM"})
+  public MapperExecutionMode mode;
+
+  /** length of each free text finding */
+  @Param({"500", "20000"})
+  public int textLength;
+
+  private MapperFanOutExecutor executor;
+  private PathologyReportProcessor processor;
+  private PathoReport report;
+
+  @Setup
+  public void setup() {
+    var meterRegistry = new SimpleMeterRegistry();
+    var processorProperties = new ProcessorProperties();
+    processorProperties.getMapperExecutor().setMode(mode);
+    executor = new MapperFanOutExecutor(processorProperties, meterRegistry);
+    var fhirProperties = BenchmarkData.fhirProperties();
+    var csvMappings = BenchmarkData.csvMappings();
+    var mappers = BenchmarkData.reportMappers(fhirProperties, csvMappings);
+    processor =
+        new PathologyReportProcessor(
+            mappers,
+            fhirProperties,
+            csvMappings,
+            executor,
+            new BundleDeduplication(processorProperties, meterRegistry, csvMappings),
+            new ReportCoalescing(processorProperties, meterRegistry),
+            new DeadLetterHandler(processorProperties, meterRegistry),
+            new BundleSplitter(processorProperties, meterRegistry),
+            new PipelineMetrics(new StandardEnvironment(), meterRegistry),
+            new LatencyTracking(processorProperties, meterRegistry),
+            new LogicalIdAddressing(processorProperties, meterRegistry));
+    report = BenchmarkData.report(textLength);
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  @Benchmark
+  public Bundle processReport() {
+    return processor.processReport(report);
+  }
+}
@@ -0,0 +1,76 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.benchmark;
+
+import de.unimarburg.diz.nexuspathotofhir.configuration.ProcessorProperties;
+import de.unimarburg.diz.nexuspathotofhir.mapper.SpecimenMapper;
+import de.unimarburg.diz.nexuspathotofhir.model.PathoSpecimen;
+import de.unimarburg.diz.nexuspathotofhir.processor.BundleDeduplication;
+import de.unimarburg.diz.nexuspathotofhir.processor.BundleSplitter;
+import de.unimarburg.diz.nexuspathotofhir.processor.DeadLetterHandler;
+import de.unimarburg.diz.nexuspathotofhir.processor.LatencyTracking;
+import de.unimarburg.diz.nexuspathotofhir.processor.LogicalIdAddressing;
+import de.unimarburg.diz.nexuspathotofhir.processor.PipelineMetrics;
+import de.unimarburg.diz.nexuspathotofhir.processor.SpecimenChildDiff;
+import de.unimarburg.diz.nexuspathotofhir.processor.SpecimenProcessor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.hl7.fhir.r4.model.Bundle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.StandardEnvironment;
+
+/** {@link SpecimenMapper} and {@link SpecimenProcessor#processSpecimen} by container count */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SpecimenBenchmark {
+
+  @Param({"4", "40", "400"})
+  public int slides;
+
+  private SpecimenMapper mapper;
+  private SpecimenProcessor processor;
+  private PathoSpecimen specimen;
+
+  @Setup
+  public void setup() {
+    var meterRegistry = new SimpleMeterRegistry();
+    var processorProperties = new ProcessorProperties();
+    var csvMappings = BenchmarkData.csvMappings();
+    mapper = new SpecimenMapper(BenchmarkData.fhirProperties(), csvMappings);
+    processor =
+        new SpecimenProcessor(
+            mapper,
+            new BundleDeduplication(processorProperties, meterRegistry, csvMappings),
+            new DeadLetterHandler(processorProperties, meterRegistry),
+            new BundleSplitter(processorProperties, meterRegistry),
+            new PipelineMetrics(new StandardEnvironment(), meterRegistry),
+            new LatencyTracking(processorProperties, meterRegistry),
+            new SpecimenChildDiff(processorProperties, meterRegistry),
+            new LogicalIdAddressing(processorProperties, meterRegistry),
+            processorProperties);
+    specimen = BenchmarkData.specimen(slides);
+  }
+
+  @Benchmark
+  public Bundle.BundleEntryComponent mapSpecimen() {
+    return mapper.apply(specimen);
+  }
+
+  @Benchmark
+  public Bundle processSpecimen() {
+    return processor.processSpecimen(specimen);
+  }
+}
@@ -1,6 +1,7 @@
 /* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2023 */
 package de.unimarburg.diz.nexuspathotofhir.configuration;
 
+import com.google.common.collect.ImmutableMap;
 import com.opencsv.CSVReader;
 import com.opencsv.exceptions.CsvValidationException;
 import de.unimarburg.diz.nexuspathotofhir.model.MappingEntry;
@@ -10,8 +11,13 @@ import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,17 +36,58 @@ public class CsvMappings {
   private final String specimenContainerType;
   private final String specimenBodysiteMappingLocation;
 
-  private Map<String, MappingEntry> specimenContainerTypeMap;
-  private Map<String, MappingEntry> specimenExtractionMethodMap;
-  private Map<String, MappingEntry> specimentTypeMappingLocationMap;
-  private Map<String, MappingEntry> bodysiteMappingLocationMap;
+  private final boolean fuzzyLookup;
+
+  /** probe names resolved by fuzzy matching, over all snapshots */
+  private final LongAdder fuzzyResolutions = new LongAdder();
+
+  /** replaced as a whole on reload, readers never see a partially loaded state */
+  private volatile Active active;
+
+  private final List<Consumer<MappingSnapshot>> reloadListeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * Snapshot with the probe name indexes built from it. Mappers take it once per record, so all
+   * lookups of a record see the same tables even if a reload happens meanwhile.
+   */
+  public record Active(
+      MappingSnapshot snapshot, ProbeNameIndex specimenTypes, ProbeNameIndex specimenBodysites) {
+
+    /**
+     * @return specimen type of a free-text probe name, see {@link ProbeNameIndex}
+     */
+    public MappingEntry lookupSpecimenType(String probeName) {
+      return specimenTypes.get(probeName);
+    }
+
+    /**
+     * @return body site of a free-text probe name, see {@link ProbeNameIndex}
+     */
+    public MappingEntry lookupSpecimenBodysite(String probeName) {
+      return specimenBodysites.get(probeName);
+    }
+  }
+
+  public CsvMappings(
+      String specimenTypeMappingLocation,
+      String specimenExtractionMethod,
+      String specimenContainerType,
+      String specimenBodysiteMappingLocation) {
+    this(
+        specimenTypeMappingLocation,
+        specimenExtractionMethod,
+        specimenContainerType,
+        specimenBodysiteMappingLocation,
+        false);
+  }
 
   @Autowired
   public CsvMappings(
       @Value("${mapping.location.specimenType}") String specimenTypeMappingLocation,
       @Value("${mapping.location.specimenExtractionMethod}") String specimenExtractionMethod,
       @Value("${mapping.location.specimenContainerType}") String specimenContainerType,
-      @Value("${mapping.location.specimenBodysite}") String specimenBodysiteMappingLocation) {
+      @Value("${mapping.location.specimenBodysite}") String specimenBodysiteMappingLocation,
+      @Value("${mapping.lookup.fuzzy:false}") boolean fuzzyLookup) {
 
     if (!StringUtils.hasLength(specimenTypeMappingLocation))
       throw new IllegalArgumentException("'mapping.location.specimenType' must be set.");
@@ -54,10 +101,33 @@ public class CsvMappings {
     this.specimenTypeMappingLocation = specimenTypeMappingLocation;
     this.specimenExtractionMethod = specimenExtractionMethod;
     this.specimenBodysiteMappingLocation = specimenBodysiteMappingLocation;
+    this.fuzzyLookup = fuzzyLookup;
+    this.active = activate(load(1L));
   }
 
+  /** reads all tables eagerly, so stream threads never read files or initialize maps */
+  private MappingSnapshot load(long version) {
+    final Map<String, MappingEntry> bodysites;
+    if (StringUtils.hasText(specimenBodysiteMappingLocation)) {
+      bodysites = readLineByLine(getPath(specimenBodysiteMappingLocation));
+    } else {
+      log.warn("'mapping.location.specimenBodysite' is not set, body sites will not be mapped.");
+      bodysites = Map.of();
+    }
+    return new MappingSnapshot(
+        version,
+        readLineByLine(getPath(specimenTypeMappingLocation)),
+        readLineByLine(getPath(specimenExtractionMethod)),
+        readLineByLine(getPath(specimenContainerType)),
+        bodysites);
+  }
+
+  /**
+   * @return immutable table by local code
+   * @throws IllegalArgumentException on duplicate local codes
+   */
   public static Map<String, MappingEntry> readLineByLine(Path filePath) {
-    var map = new HashMap<String, MappingEntry>();
+    var map = new LinkedHashMap<String, MappingEntry>();
 
     CsvMappings.log.info("Reading mapping csv from '{}'", filePath);
 
@@ -87,48 +157,122 @@ public class CsvMappings {
       throw new RuntimeException(e);
     }
 
-    return map;
+    final List<String> unmapped =
+        map.values().stream()
+            .filter(entry -> !entry.isMapped())
+            .map(MappingEntry::getLocalCode)
+            .toList();
+    if (!unmapped.isEmpty())
+      CsvMappings.log.warn(
+          "mapping file '{}' has no code for {} - please update your mapping file.",
+          filePath,
+          unmapped);
+
+    return ImmutableMap.copyOf(map);
+  }
+
+  private Active activate(MappingSnapshot snapshot) {
+    return new Active(
+        snapshot,
+        new ProbeNameIndex(
+            "specimen type", snapshot.specimenTypes(), fuzzyLookup, fuzzyResolutions::increment),
+        new ProbeNameIndex(
+            "body site", snapshot.specimenBodysites(), fuzzyLookup, fuzzyResolutions::increment));
+  }
+
+  public MappingSnapshot snapshot() {
+    return active.snapshot();
+  }
+
+  /** current tables and indexes, take it once per record */
+  public Active active() {
+    return active;
+  }
+
+  /**
+   * Reads all mapping files again and replaces the current snapshot. Mappers keep reading the
+   * previous snapshot until the new one is complete.
+   *
+   * @return new snapshot
+   * @throws RuntimeException if a file cannot be read or is invalid (e.g. duplicate local codes),
+   *     the current snapshot is kept
+   */
+  public synchronized MappingSnapshot reload() {
+    final MappingSnapshot next = load(snapshot().version() + 1);
+    active = activate(next);
+    log.info("mapping snapshot version {} is active", next.version());
+    reloadListeners.forEach(listener -> listener.accept(next));
+    return next;
+  }
+
+  /** called with each snapshot read from the mapping files by {@link #reload()} */
+  public void onReload(Consumer<MappingSnapshot> listener) {
+    reloadListeners.add(listener);
+  }
+
+  /**
+   * Replaces the current snapshot by tables from another source, e.g. the mapping topic.
+   *
+   * @return new snapshot, its version follows the current one
+   */
+  public synchronized MappingSnapshot replace(MappingSnapshot tables) {
+    final MappingSnapshot next =
+        new MappingSnapshot(
+            snapshot().version() + 1,
+            tables.specimenTypes(),
+            tables.specimenExtractionMethods(),
+            tables.specimenContainerTypes(),
+            tables.specimenBodysites());
+    active = activate(next);
+    log.info("mapping snapshot version {} is active", next.version());
+    return next;
+  }
+
+  /** number of probe names resolved by abbreviation or edit distance, see {@link ProbeNameIndex} */
+  public long fuzzyResolutions() {
+    return fuzzyResolutions.sum();
+  }
+
+  /** configured mapping files */
+  public List<Path> locations() {
+    return Stream.of(
+            specimenTypeMappingLocation,
+            specimenExtractionMethod,
+            specimenContainerType,
+            specimenBodysiteMappingLocation)
+        .filter(StringUtils::hasText)
+        .map(this::getPath)
+        .toList();
   }
 
   public Map<String, MappingEntry> specimenTypes() {
-    if (specimentTypeMappingLocationMap == null) {
-      if (!StringUtils.hasText(specimenTypeMappingLocation))
-        throw new IllegalArgumentException("path to specimenTypeMappingLocation CSV is empty");
-      var path = getPath(specimenTypeMappingLocation);
-      specimentTypeMappingLocationMap = CsvMappings.readLineByLine(path);
-    }
-    return specimentTypeMappingLocationMap;
+    return snapshot().specimenTypes();
+  }
+
+  /**
+   * @return specimen type of a free-text probe name, see {@link ProbeNameIndex}
+   */
+  public MappingEntry lookupSpecimenType(String probeName) {
+    return active.lookupSpecimenType(probeName);
+  }
+
+  /**
+   * @return body site of a free-text probe name, see {@link ProbeNameIndex}
+   */
+  public MappingEntry lookupSpecimenBodysite(String probeName) {
+    return active.lookupSpecimenBodysite(probeName);
   }
 
   public Map<String, MappingEntry> specimenBodysite() {
-    if (bodysiteMappingLocationMap == null) {
-      if (!StringUtils.hasText(specimenBodysiteMappingLocation))
-        throw new IllegalArgumentException("path to specimenBodysiteMappingLocation CSV is empty");
-      var path = getPath(specimenBodysiteMappingLocation);
-      bodysiteMappingLocationMap = CsvMappings.readLineByLine(path);
-    }
-    return bodysiteMappingLocationMap;
+    return snapshot().specimenBodysites();
   }
 
   public Map<String, MappingEntry> specimenExtractionMethod() {
-    if (specimenExtractionMethodMap == null) {
-      if (!StringUtils.hasText(specimenExtractionMethod))
-        throw new IllegalArgumentException("path to specimenExtractionMethod CSV is empty");
-      var path = getPath(specimenExtractionMethod);
-
-      specimenExtractionMethodMap = CsvMappings.readLineByLine(path);
-    }
-    return specimenExtractionMethodMap;
+    return snapshot().specimenExtractionMethods();
   }
 
   public Map<String, MappingEntry> specimenContainerType() {
-    if (specimenContainerTypeMap == null) {
-      if (!StringUtils.hasText(specimenContainerType))
-        throw new IllegalArgumentException("path to specimenContainerType CSV is empty");
-      var path = getPath(specimenContainerType);
-      specimenContainerTypeMap = CsvMappings.readLineByLine(path);
-    }
-    return specimenContainerTypeMap;
+    return snapshot().specimenContainerTypes();
   }
 
   @NotNull private Path getPath(String location) {
@@ -1,18 +1,26 @@
 /* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2023 */
 package de.unimarburg.diz.nexuspathotofhir.configuration;
 
+import de.unimarburg.diz.nexuspathotofhir.model.PathoReport;
+import de.unimarburg.diz.nexuspathotofhir.model.PathoSpecimen;
+import de.unimarburg.diz.nexuspathotofhir.processor.PipelineMetrics;
 import de.unimarburg.diz.nexuspathotofhir.serde.FhirDeserializer;
 import de.unimarburg.diz.nexuspathotofhir.serde.FhirSerializer;
+import de.unimarburg.diz.nexuspathotofhir.serde.PathoReportSerde;
+import de.unimarburg.diz.nexuspathotofhir.serde.PathoSpecimenSerde;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.common.serialization.Serdes;
 import org.apache.kafka.streams.errors.StreamsUncaughtExceptionHandler;
 import org.hl7.fhir.r4.model.Bundle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.StreamsBuilderFactoryBeanConfigurer;
+import org.springframework.kafka.config.TopicBuilder;
 
 @Configuration
 @EnableKafka
@@ -28,7 +36,8 @@ public class KafkaConfiguration {
               kafkaStreams.setUncaughtExceptionHandler(
                   e -> {
                     log.error("Uncaught exception occurred.", e);
-                    // default handler response
+                    // records failing to map are dead-lettered, anything arriving here is not
+                    // record specific (including an exceeded dead-letter rate)
                     return StreamsUncaughtExceptionHandler.StreamThreadExceptionResponse
                         .SHUTDOWN_CLIENT;
                   }));
@@ -36,7 +45,30 @@ public class KafkaConfiguration {
   }
 
   @Bean
-  public Serde<Bundle> fhirSerde() {
-    return Serdes.serdeFrom(new FhirSerializer<>(), new FhirDeserializer<>(Bundle.class));
+  public Serde<Bundle> fhirSerde(
+      ProcessorProperties processorProperties, PipelineMetrics pipelineMetrics) {
+    return pipelineMetrics.instrument(
+        Serdes.serdeFrom(
+            new FhirSerializer<>(processorProperties.getOutputEncoding()),
+            new FhirDeserializer<>(Bundle.class)),
+        Bundle.class);
+  }
+
+  /** input serdes are declared as beans to time their deserialization */
+  @Bean
+  public Serde<PathoReport> pathoReportSerde(PipelineMetrics pipelineMetrics) {
+    return pipelineMetrics.instrument(new PathoReportSerde(), PathoReport.class);
+  }
+
+  @Bean
+  public Serde<PathoSpecimen> pathoSpecimenSerde(PipelineMetrics pipelineMetrics) {
+    return pipelineMetrics.instrument(new PathoSpecimenSerde(), PathoSpecimen.class);
+  }
+
+  /** created by the publishing instance, a single partition keeps the topic small to read */
+  @Bean
+  @ConditionalOnProperty(name = "mapping.distribution.publish", havingValue = "true")
+  public NewTopic mappingTopic(MappingDistributionProperties distribution) {
+    return TopicBuilder.name(distribution.getTopic()).partitions(1).compact().build();
   }
 }
@@ -0,0 +1,40 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.configuration;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Where the mapping tables come from. With {@code topic}, every instance reads them from a
+ * compacted topic (see {@link MappingTopicReader}); the instance with {@code publish} enabled
+ * writes its mapping files to that topic (see {@link MappingTopicPublisher}).
+ */
+@Configuration
+@ConfigurationProperties(value = "mapping.distribution")
+@Data
+public class MappingDistributionProperties {
+
+  public enum Mode {
+    /** every instance reads its own mapping files */
+    FILE,
+    /** mapping files are the initial state until the topic has been read */
+    TOPIC
+  }
+
+  private Mode mode = Mode.FILE;
+
+  /** compacted topic holding one record per mapping line */
+  private String topic = "patho-mappings";
+
+  /** write the local mapping files to the topic on startup and on reload */
+  private boolean publish = false;
+
+  /** max time to read the topic up to its end offsets before publishing */
+  private Duration bootstrapTimeout = Duration.ofSeconds(30);
+
+  public boolean isTopicMode() {
+    return mode == Mode.TOPIC;
+  }
+}
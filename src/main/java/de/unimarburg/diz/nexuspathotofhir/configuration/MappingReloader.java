@@ -0,0 +1,177 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.configuration;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Watches the directories of the mapping files ({@code mapping.location.*}) and reloads {@link
+ * CsvMappings} in the background once their content changed. Events are debounced, so editors
+ * writing a file in several steps and config map updates (symlink swaps) cause a single reload. An
+ * invalid file is logged and the previous snapshot stays active until the file is fixed. Off
+ * unless {@code mapping.reload.enabled} is set.
+ *
+ * <p>Instances reading the mapping topic without publishing it do not watch their files, the topic
+ * content would be replaced by local files otherwise.
+ */
+@Component
+public class MappingReloader {
+
+  public static final String METRIC_VERSION = "patho.mapping.version";
+  public static final String METRIC_RELOAD_DURATION = "patho.mapping.reload.duration";
+  public static final String METRIC_FUZZY_RESOLUTIONS = "patho.mapping.fuzzy.resolutions";
+
+  private static final Logger log = LoggerFactory.getLogger(MappingReloader.class);
+
+  private final CsvMappings csvMappings;
+  private final boolean enabled;
+  private final Duration debounce;
+  private final Timer reloaded;
+  private final Timer failed;
+
+  /** content of the mapping files at the last reload attempt */
+  private HashCode fingerprint;
+
+  private WatchService watchService;
+  private Thread watcher;
+
+  @Autowired
+  public MappingReloader(
+      CsvMappings csvMappings,
+      MeterRegistry meterRegistry,
+      MappingDistributionProperties distribution,
+      @Value("${mapping.reload.enabled:false}") boolean enabled,
+      @Value("${mapping.reload.debounce:2s}") Duration debounce) {
+    if (debounce == null || debounce.isNegative())
+      throw new IllegalArgumentException("'mapping.reload.debounce' must not be negative.");
+
+    this.csvMappings = csvMappings;
+    this.enabled = enabled && (!distribution.isTopicMode() || distribution.isPublish());
+    this.debounce = debounce;
+    this.fingerprint = fingerprint();
+
+    Gauge.builder(METRIC_VERSION, csvMappings, mappings -> mappings.snapshot().version())
+        .description("version of the active mapping snapshot")
+        .register(meterRegistry);
+    FunctionCounter.builder(METRIC_FUZZY_RESOLUTIONS, csvMappings, CsvMappings::fuzzyResolutions)
+        .description("probe names resolved by abbreviation or edit distance, once per snapshot")
+        .register(meterRegistry);
+    this.reloaded = reloadTimer(meterRegistry, "success");
+    this.failed = reloadTimer(meterRegistry, "failure");
+  }
+
+  private static Timer reloadTimer(MeterRegistry meterRegistry, String outcome) {
+    return Timer.builder(METRIC_RELOAD_DURATION)
+        .description("duration of reading all mapping files and swapping the snapshot")
+        .tag("outcome", outcome)
+        .register(meterRegistry);
+  }
+
+  @PostConstruct
+  public void start() throws IOException {
+    if (!enabled) return;
+
+    final Set<Path> directories = new LinkedHashSet<>();
+    for (Path location : csvMappings.locations()) {
+      directories.add(location.toAbsolutePath().getParent());
+    }
+    watchService = FileSystems.getDefault().newWatchService();
+    for (Path directory : directories) {
+      directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+    }
+    watcher = Thread.ofPlatform().name("mapping-reloader").daemon(true).start(this::watch);
+    log.info("watching mapping files in {}", directories);
+  }
+
+  private void watch() {
+    try {
+      while (true) {
+        consume(watchService.take());
+        // wait until the files are quiet
+        WatchKey key;
+        while ((key = watchService.poll(debounce.toMillis(), TimeUnit.MILLISECONDS)) != null) {
+          consume(key);
+        }
+        reloadIfChanged();
+      }
+    } catch (ClosedWatchServiceException | InterruptedException e) {
+      log.debug("mapping reloader stopped");
+    }
+  }
+
+  private static void consume(WatchKey key) {
+    key.pollEvents();
+    key.reset();
+  }
+
+  /**
+   * @return true if a new snapshot has been activated
+   */
+  synchronized boolean reloadIfChanged() {
+    final HashCode current = fingerprint();
+    if (current.equals(fingerprint)) return false;
+    fingerprint = current;
+
+    final long start = System.nanoTime();
+    try {
+      csvMappings.reload();
+      reloaded.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      return true;
+    } catch (RuntimeException e) {
+      failed.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      log.error(
+          "reloading mapping files failed, keeping version {}",
+          csvMappings.snapshot().version(),
+          e);
+      return false;
+    }
+  }
+
+  /** hash over the content of all mapping files, missing files included */
+  private HashCode fingerprint() {
+    final Hasher hasher = Hashing.farmHashFingerprint64().newHasher();
+    for (Path location : csvMappings.locations()) {
+      hasher.putString(location.toString(), StandardCharsets.UTF_8);
+      try {
+        hasher.putBytes(Files.readAllBytes(location));
+      } catch (IOException e) {
+        hasher.putInt(-1);
+      }
+    }
+    return hasher.hash();
+  }
+
+  @PreDestroy
+  public void stop() throws IOException {
+    if (watchService != null) watchService.close();
+    if (watcher != null) watcher.interrupt();
+  }
+}
@@ -0,0 +1,27 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.configuration;
+
+import com.google.common.collect.ImmutableMap;
+import de.unimarburg.diz.nexuspathotofhir.model.MappingEntry;
+import java.util.Map;
+
+/**
+ * All mapping tables read at once. The maps are immutable, so mapper threads read them without
+ * locking; lookups with a {@code null} key return {@code null}.
+ *
+ * @param version starts at 1 and is incremented by each reload
+ */
+public record MappingSnapshot(
+    long version,
+    Map<String, MappingEntry> specimenTypes,
+    Map<String, MappingEntry> specimenExtractionMethods,
+    Map<String, MappingEntry> specimenContainerTypes,
+    Map<String, MappingEntry> specimenBodysites) {
+
+  public MappingSnapshot {
+    specimenTypes = ImmutableMap.copyOf(specimenTypes);
+    specimenExtractionMethods = ImmutableMap.copyOf(specimenExtractionMethods);
+    specimenContainerTypes = ImmutableMap.copyOf(specimenContainerTypes);
+    specimenBodysites = ImmutableMap.copyOf(specimenBodysites);
+  }
+}
@@ -0,0 +1,191 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.configuration;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.unimarburg.diz.nexuspathotofhir.model.MappingEntry;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Record format of the compacted mapping topic: key {@code <table>|<localCode>}, value the mapping
+ * line as JSON, removed lines are tombstones. Compaction keeps the latest line per key, so reading
+ * the topic from the beginning yields the complete tables.
+ */
+final class MappingTopic {
+
+  private static final Logger log = LoggerFactory.getLogger(MappingTopic.class);
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+  private static final char SEPARATOR = '|';
+
+  enum Table {
+    SPECIMEN_TYPE("specimenType", MappingSnapshot::specimenTypes),
+    SPECIMEN_EXTRACTION_METHOD(
+        "specimenExtractionMethod", MappingSnapshot::specimenExtractionMethods),
+    SPECIMEN_CONTAINER_TYPE("specimenContainerType", MappingSnapshot::specimenContainerTypes),
+    SPECIMEN_BODYSITE("specimenBodysite", MappingSnapshot::specimenBodysites);
+
+    private final String prefix;
+    private final Function<MappingSnapshot, Map<String, MappingEntry>> table;
+
+    Table(String prefix, Function<MappingSnapshot, Map<String, MappingEntry>> table) {
+      this.prefix = prefix;
+      this.table = table;
+    }
+
+    String key(String localCode) {
+      return prefix + SEPARATOR + localCode;
+    }
+
+    static Table of(String key) {
+      final int separator = key.indexOf(SEPARATOR);
+      if (separator < 0) return null;
+      final String prefix = key.substring(0, separator);
+      for (Table table : values()) {
+        if (table.prefix.equals(prefix)) return table;
+      }
+      return null;
+    }
+  }
+
+  private record Line(
+      String localCode, String localShortName, String snomedCode, String snomedDisplayName) {}
+
+  private MappingTopic() {}
+
+  /** all lines of the snapshot by record key */
+  static Map<String, String> records(MappingSnapshot snapshot) {
+    final Map<String, String> records = new LinkedHashMap<>();
+    for (Table table : Table.values()) {
+      for (MappingEntry entry : table.table.apply(snapshot).values()) {
+        records.put(table.key(entry.getLocalCode()), encode(entry));
+      }
+    }
+    return records;
+  }
+
+  /** records to send to turn {@code current} into {@code next}, {@code null} values delete */
+  static Map<String, String> changes(Map<String, String> current, Map<String, String> next) {
+    final Map<String, String> changes = new LinkedHashMap<>();
+    for (String key : current.keySet()) {
+      if (!next.containsKey(key)) changes.put(key, null);
+    }
+    for (var record : next.entrySet()) {
+      if (!Objects.equals(current.get(record.getKey()), record.getValue()))
+        changes.put(record.getKey(), record.getValue());
+    }
+    return changes;
+  }
+
+  /** tables of the topic content, unknown keys and malformed values are skipped */
+  static MappingSnapshot snapshot(long version, Map<String, String> records) {
+    final Map<Table, Map<String, MappingEntry>> tables = new EnumMap<>(Table.class);
+    for (Table table : Table.values()) tables.put(table, new LinkedHashMap<>());
+
+    for (var record : records.entrySet()) {
+      final Table table = Table.of(record.getKey());
+      final MappingEntry entry = table != null ? decode(record.getValue()) : null;
+      if (entry == null) {
+        log.warn("skipping invalid mapping record '{}'", record.getKey());
+        continue;
+      }
+      tables.get(table).put(entry.getLocalCode(), entry);
+    }
+    return new MappingSnapshot(
+        version,
+        tables.get(Table.SPECIMEN_TYPE),
+        tables.get(Table.SPECIMEN_EXTRACTION_METHOD),
+        tables.get(Table.SPECIMEN_CONTAINER_TYPE),
+        tables.get(Table.SPECIMEN_BODYSITE));
+  }
+
+  static String encode(MappingEntry entry) {
+    try {
+      return objectMapper.writeValueAsString(
+          new Line(
+              entry.getLocalCode(),
+              entry.getLocalShortName(),
+              entry.getSnomedCode(),
+              entry.getSnomedDisplayName()));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @return null if the value is not a mapping line
+   */
+  static MappingEntry decode(String value) {
+    if (value == null) return null;
+    try {
+      final Line line = objectMapper.readValue(value, Line.class);
+      if (line.localCode() == null) return null;
+      return new MappingEntry(
+          line.localCode(), line.localShortName(), line.snomedCode(), line.snomedDisplayName());
+    } catch (JsonProcessingException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Applies a record to the topic content, like the store of a {@code GlobalKTable}.
+   *
+   * @return true if the content changed
+   */
+  static boolean apply(Map<String, String> records, ConsumerRecord<String, String> record) {
+    if (record.key() == null) return false;
+    if (record.value() == null) return records.remove(record.key()) != null;
+    return !record.value().equals(records.put(record.key(), record.value()));
+  }
+
+  /**
+   * Assigns all partitions of the topic, independent of any consumer group.
+   *
+   * @return end offsets at assignment, the topic has been read completely once they are reached
+   */
+  static Map<TopicPartition, Long> assignFromBeginning(
+      Consumer<String, String> consumer, String topic) {
+    final List<TopicPartition> partitions =
+        consumer.partitionsFor(topic).stream()
+            .map(partition -> new TopicPartition(topic, partition.partition()))
+            .toList();
+    consumer.assign(partitions);
+    consumer.seekToBeginning(partitions);
+    return consumer.endOffsets(partitions);
+  }
+
+  static boolean caughtUp(Consumer<String, String> consumer, Map<TopicPartition, Long> end) {
+    for (var partition : end.entrySet()) {
+      if (consumer.position(partition.getKey()) < partition.getValue()) return false;
+    }
+    return true;
+  }
+
+  /**
+   * @return topic content up to the end offsets at the time of the call
+   * @throws IllegalStateException if the end offsets are not reached within {@code timeout}
+   */
+  static Map<String, String> readAll(
+      Consumer<String, String> consumer, String topic, Duration timeout) {
+    final Map<TopicPartition, Long> end = assignFromBeginning(consumer, topic);
+    final Map<String, String> records = new LinkedHashMap<>();
+    final long deadline = System.nanoTime() + timeout.toNanos();
+    while (!caughtUp(consumer, end)) {
+      if (System.nanoTime() > deadline)
+        throw new IllegalStateException(
+            String.format("mapping topic '%s' could not be read within %s.", topic, timeout));
+      for (var record : consumer.poll(Duration.ofMillis(500))) apply(records, record);
+    }
+    return records;
+  }
+}
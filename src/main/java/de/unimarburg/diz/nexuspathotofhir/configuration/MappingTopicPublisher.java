@@ -0,0 +1,123 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.configuration;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes the local mapping files to the compacted mapping topic, on startup and after each reload
+ * by {@link MappingReloader}. Only changed lines are sent, removed lines become tombstones; the
+ * current topic content is read on startup to detect lines removed while no publisher was running.
+ * Should be enabled on a single instance.
+ */
+@Component
+@ConditionalOnProperty(name = "mapping.distribution.publish", havingValue = "true")
+public class MappingTopicPublisher {
+
+  private static final Logger log = LoggerFactory.getLogger(MappingTopicPublisher.class);
+
+  private final CsvMappings csvMappings;
+  private final MappingDistributionProperties distribution;
+  private final ConsumerFactory<String, String> consumerFactory;
+  private final KafkaTemplate<String, String> kafkaTemplate;
+
+  /** topic content as last published */
+  private Map<String, String> published;
+
+  @Autowired
+  public MappingTopicPublisher(
+      CsvMappings csvMappings,
+      MappingDistributionProperties distribution,
+      ConsumerFactory<String, String> consumerFactory,
+      ProducerFactory<String, String> producerFactory) {
+    if (!distribution.isTopicMode())
+      throw new IllegalArgumentException(
+          "'mapping.distribution.publish' requires 'mapping.distribution.mode' to be 'topic'.");
+    if (distribution.getBootstrapTimeout() == null
+        || distribution.getBootstrapTimeout().isNegative())
+      throw new IllegalArgumentException(
+          "'mapping.distribution.bootstrap-timeout' must not be negative.");
+
+    this.csvMappings = csvMappings;
+    this.distribution = distribution;
+    this.consumerFactory = consumerFactory;
+    this.kafkaTemplate =
+        new KafkaTemplate<>(
+            producerFactory,
+            Map.of(
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.ACKS_CONFIG, "all"));
+  }
+
+  @PostConstruct
+  public void start() {
+    final Properties properties = new Properties();
+    properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+    properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+    properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+    try (Consumer<String, String> consumer =
+        consumerFactory.createConsumer(null, "patho-mapping-publisher", null, properties)) {
+      published =
+          MappingTopic.readAll(
+              consumer, distribution.getTopic(), distribution.getBootstrapTimeout());
+    }
+
+    publish(csvMappings.snapshot());
+    csvMappings.onReload(
+        snapshot -> {
+          try {
+            publish(snapshot);
+          } catch (RuntimeException e) {
+            log.error("publishing mapping version {} failed", snapshot.version(), e);
+          }
+        });
+  }
+
+  /**
+   * @throws IllegalStateException if a record could not be sent within the bootstrap timeout
+   */
+  synchronized void publish(MappingSnapshot snapshot) {
+    final Map<String, String> next = MappingTopic.records(snapshot);
+    final Map<String, String> changes = MappingTopic.changes(published, next);
+    if (changes.isEmpty()) return;
+
+    final List<CompletableFuture<?>> sent = new ArrayList<>(changes.size());
+    for (var change : changes.entrySet()) {
+      sent.add(kafkaTemplate.send(distribution.getTopic(), change.getKey(), change.getValue()));
+    }
+    kafkaTemplate.flush();
+    try {
+      CompletableFuture.allOf(sent.toArray(CompletableFuture[]::new))
+          .get(distribution.getBootstrapTimeout().toMillis(), TimeUnit.MILLISECONDS);
+    } catch (Exception e) {
+      if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+      throw new IllegalStateException(
+          String.format("mapping topic '%s' could not be written.", distribution.getTopic()), e);
+    }
+    published = next;
+    log.info(
+        "published {} changed mapping lines of version {} to '{}'",
+        changes.size(),
+        snapshot.version(),
+        distribution.getTopic());
+  }
+}
@@ -0,0 +1,175 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.configuration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Materializes the compacted mapping topic on every instance and activates its content as {@link
+ * CsvMappings} snapshot, so {@code SpecimenMapper} and {@code ToFhirMapper} look codes up in the
+ * cluster-wide tables. Like a {@code GlobalKTable}, all partitions are read from the beginning
+ * without consumer group; the local mapping files stay active until the topic has been read up to
+ * its end offsets, from then on each batch of changes replaces the snapshot.
+ *
+ * <p>Failures while reading are logged and retried with exponential backoff, the current mappings
+ * stay active meanwhile. Only {@link #stop()} ends the reader. The health of this component is
+ * down while the last attempt failed.
+ */
+@Component
+@ConditionalOnProperty(name = "mapping.distribution.mode", havingValue = "topic")
+public class MappingTopicReader implements HealthIndicator {
+
+  public static final String METRIC_RECORDS = "patho.mapping.topic.records";
+  public static final String METRIC_FAILURES = "patho.mapping.topic.failures";
+
+  private static final Logger log = LoggerFactory.getLogger(MappingTopicReader.class);
+  private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+  static final Duration INITIAL_BACKOFF = Duration.ofSeconds(1);
+  static final Duration MAX_BACKOFF = Duration.ofMinutes(1);
+
+  private final CsvMappings csvMappings;
+  private final ConsumerFactory<String, String> consumerFactory;
+  private final String topic;
+
+  /** topic content by record key, only accessed by the reader thread */
+  private final Map<String, String> records = new HashMap<>();
+
+  private final Counter failures;
+  private final CountDownLatch stopped = new CountDownLatch(1);
+
+  private volatile int size;
+  private volatile boolean running;
+  private volatile RuntimeException failure;
+  private Consumer<String, String> consumer;
+  private Thread reader;
+
+  @Autowired
+  public MappingTopicReader(
+      CsvMappings csvMappings,
+      MappingDistributionProperties distribution,
+      ConsumerFactory<String, String> consumerFactory,
+      MeterRegistry meterRegistry) {
+    if (!distribution.isTopicMode())
+      throw new IllegalArgumentException("'mapping.distribution.mode' must be 'topic'.");
+
+    this.csvMappings = csvMappings;
+    this.consumerFactory = consumerFactory;
+    this.topic = distribution.getTopic();
+
+    Gauge.builder(METRIC_RECORDS, this, mappingTopicReader -> mappingTopicReader.size)
+        .description("mapping lines materialized from the mapping topic")
+        .register(meterRegistry);
+    this.failures =
+        Counter.builder(METRIC_FAILURES)
+            .description("failed attempts to read the mapping topic, each retried")
+            .register(meterRegistry);
+  }
+
+  @PostConstruct
+  public void start() {
+    final Properties properties = new Properties();
+    properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+    properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+    properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+    consumer = consumerFactory.createConsumer(null, "patho-mapping-reader", null, properties);
+
+    running = true;
+    reader = Thread.ofPlatform().name("mapping-topic-reader").daemon(true).start(this::read);
+    log.info("reading mappings from topic '{}'", topic);
+  }
+
+  private void read() {
+    Map<TopicPartition, Long> end = null;
+    boolean caughtUp = false;
+    boolean changed = false;
+    Duration backoff = INITIAL_BACKOFF;
+    try {
+      while (running) {
+        try {
+          if (end == null) end = MappingTopic.assignFromBeginning(consumer, topic);
+          for (var record : consumer.poll(POLL_TIMEOUT)) {
+            changed |= MappingTopic.apply(records, record);
+          }
+          if (!caughtUp && MappingTopic.caughtUp(consumer, end)) {
+            caughtUp = true;
+            changed = true;
+            log.info("mapping topic '{}' read up to its end offsets", topic);
+          }
+          if (caughtUp && changed) {
+            activate();
+            changed = false;
+          }
+          failure = null;
+          backoff = INITIAL_BACKOFF;
+        } catch (WakeupException e) {
+          log.debug("mapping topic reader woken up");
+        } catch (RuntimeException e) {
+          failure = e;
+          failures.increment();
+          log.error(
+              "reading mapping topic '{}' failed, keeping version {}, retrying in {}",
+              topic,
+              csvMappings.snapshot().version(),
+              backoff,
+              e);
+          if (stopped.await(backoff.toMillis(), TimeUnit.MILLISECONDS)) break;
+          final Duration doubled = backoff.multipliedBy(2);
+          backoff = doubled.compareTo(MAX_BACKOFF) < 0 ? doubled : MAX_BACKOFF;
+        }
+      }
+      log.debug("mapping topic reader stopped");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      consumer.close();
+    }
+  }
+
+  private void activate() {
+    size = records.size();
+    if (records.isEmpty()) {
+      // nothing published yet, an empty table would leave every code unmapped
+      log.warn("mapping topic '{}' is empty, keeping the current mappings", topic);
+      return;
+    }
+    csvMappings.replace(MappingTopic.snapshot(0L, records));
+  }
+
+  /** down with the last error while reading the topic fails */
+  @Override
+  public Health health() {
+    final RuntimeException current = failure;
+    final Health.Builder health = current == null ? Health.up() : Health.down(current);
+    return health.withDetail("topic", topic).withDetail("records", size).build();
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    running = false;
+    stopped.countDown();
+    if (consumer != null) consumer.wakeup();
+    if (reader != null) reader.join(POLL_TIMEOUT.toMillis() * 5);
+  }
+}
@@ -2,11 +2,23 @@
 package de.unimarburg.diz.nexuspathotofhir.configuration;
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
 
 public class PathoFhirContext {
   private static final FhirContext fhirContext = FhirContext.forR4();
 
+  /** parsers are not thread safe but cheap to reuse, so each thread keeps its own */
+  private static final ThreadLocal<IParser> jsonParser =
+      ThreadLocal.withInitial(fhirContext::newJsonParser);
+
   public static FhirContext getInstance() {
     return fhirContext;
   }
+
+  /**
+   * @return json parser of the calling thread, must not be reconfigured or passed to other threads
+   */
+  public static IParser getJsonParser() {
+    return jsonParser.get();
+  }
 }
@@ -0,0 +1,187 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.configuration;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import de.unimarburg.diz.nexuspathotofhir.model.MappingEntry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lookup of a mapping table by free-text probe name, built once per {@link MappingSnapshot}. The
+ * exact local code wins, then the normalized name (case, whitespace and punctuation ignored). If
+ * fuzzy matching is enabled, names are finally matched token by token as abbreviation of a key
+ * ("Mam li" matches "Mamma li", "Mamma Lipom" does not) or within a small edit distance. Fuzzy
+ * candidates are limited to keys starting with the same character and only a unique best match is
+ * returned, results are cached per probe name.
+ */
+public final class ProbeNameIndex {
+
+  private static final Logger log = LoggerFactory.getLogger(ProbeNameIndex.class);
+  private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+  /** shortest token accepted as abbreviation */
+  private static final int MIN_PREFIX_LENGTH = 2;
+
+  /** shortest normalized name matched by edit distance */
+  private static final int MIN_DISTANCE_LENGTH = 5;
+
+  private static final int MAX_EDIT_DISTANCE = 1;
+  private static final long CACHE_SIZE = 10_000L;
+
+  private final String table;
+  private final boolean fuzzy;
+  private final Runnable onFuzzyMatch;
+  private final Map<String, MappingEntry> exact;
+  private final Map<String, MappingEntry> normalized;
+  private final Map<Character, List<Candidate>> candidates;
+  private final Cache<String, Optional<MappingEntry>> resolved =
+      CacheBuilder.newBuilder().maximumSize(CACHE_SIZE).build();
+
+  private record Candidate(String name, String[] tokens, MappingEntry entry) {}
+
+  /**
+   * @param table name used in log messages
+   * @param entries immutable table by local code
+   * @param fuzzy enables abbreviation and edit distance matching
+   */
+  public ProbeNameIndex(String table, Map<String, MappingEntry> entries, boolean fuzzy) {
+    this(table, entries, fuzzy, () -> {});
+  }
+
+  /**
+   * @param onFuzzyMatch called once per probe name resolved by abbreviation or edit distance
+   */
+  public ProbeNameIndex(
+      String table, Map<String, MappingEntry> entries, boolean fuzzy, Runnable onFuzzyMatch) {
+    this.table = table;
+    this.fuzzy = fuzzy;
+    this.onFuzzyMatch = onFuzzyMatch;
+    this.exact = entries;
+    this.normalized = new HashMap<>();
+    this.candidates = new HashMap<>();
+
+    for (var entry : entries.entrySet()) {
+      final String name = normalize(entry.getKey());
+      if (name.isEmpty() || normalized.putIfAbsent(name, entry.getValue()) != null) continue;
+      candidates
+          .computeIfAbsent(name.charAt(0), c -> new ArrayList<>())
+          .add(new Candidate(name, name.split(" "), entry.getValue()));
+    }
+  }
+
+  /** lower case, separated by single spaces, punctuation removed */
+  static String normalize(String value) {
+    return SEPARATORS.matcher(value.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+  }
+
+  /**
+   * @return entry of the probe name, null if it cannot be resolved unambiguously
+   */
+  public MappingEntry get(String probeName) {
+    if (probeName == null) return null;
+
+    final MappingEntry entry = exact.get(probeName);
+    if (entry != null) return entry;
+
+    Optional<MappingEntry> result = resolved.getIfPresent(probeName);
+    if (result == null) {
+      result = Optional.ofNullable(resolve(probeName));
+      resolved.put(probeName, result);
+    }
+    return result.orElse(null);
+  }
+
+  private MappingEntry resolve(String probeName) {
+    final String name = normalize(probeName);
+    if (name.isEmpty()) return null;
+
+    final MappingEntry entry = normalized.get(name);
+    if (entry != null || !fuzzy) return entry;
+
+    final List<Candidate> sameStart = candidates.getOrDefault(name.charAt(0), List.of());
+    MappingEntry match = abbreviation(name.split(" "), sameStart);
+    if (match == null) match = closest(name, sameStart);
+    if (match != null) {
+      log.info("{} '{}' resolved to '{}'", table, probeName, match.getLocalCode());
+      onFuzzyMatch.run();
+    }
+    return match;
+  }
+
+  private static MappingEntry abbreviation(String[] tokens, List<Candidate> candidates) {
+    MappingEntry match = null;
+    for (Candidate candidate : candidates) {
+      if (!abbreviates(tokens, candidate.tokens())) continue;
+      if (match != null && match != candidate.entry()) return null;
+      match = candidate.entry();
+    }
+    return match;
+  }
+
+  /**
+   * each input token is a prefix of the key token at the same position, never the other way round:
+   * a key token must not swallow a longer input word ("li" of "Lipom")
+   */
+  private static boolean abbreviates(String[] tokens, String[] keyTokens) {
+    if (tokens.length != keyTokens.length) return false;
+    for (int i = 0; i < tokens.length; i++) {
+      if (tokens[i].length() < MIN_PREFIX_LENGTH || !keyTokens[i].startsWith(tokens[i]))
+        return false;
+    }
+    return true;
+  }
+
+  private static MappingEntry closest(String name, List<Candidate> candidates) {
+    if (name.length() < MIN_DISTANCE_LENGTH) return null;
+
+    MappingEntry match = null;
+    int best = MAX_EDIT_DISTANCE + 1;
+    for (Candidate candidate : candidates) {
+      final int distance = distance(name, candidate.name(), best);
+      if (distance < best) {
+        best = distance;
+        match = candidate.entry();
+      } else if (distance == best && match != null) {
+        // ambiguous
+        match = null;
+      }
+    }
+    return match;
+  }
+
+  /**
+   * Levenshtein distance, stops once the distance reaches {@code limit}.
+   *
+   * @return distance or {@code limit} if it is at least {@code limit}
+   */
+  static int distance(String a, String b, int limit) {
+    if (Math.abs(a.length() - b.length()) >= limit) return limit;
+
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) previous[j] = j;
+
+    for (int i = 1; i <= a.length(); i++) {
+      current[0] = i;
+      int rowMin = current[0];
+      for (int j = 1; j <= b.length(); j++) {
+        final int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+        current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+        rowMin = Math.min(rowMin, current[j]);
+      }
+      if (rowMin >= limit) return limit;
+      final int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return Math.min(previous[b.length()], limit);
+  }
+}
@@ -0,0 +1,155 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.configuration;
+
+import de.unimarburg.diz.nexuspathotofhir.model.ReportCoalesceKey;
+import de.unimarburg.diz.nexuspathotofhir.processor.MapperExecutionMode;
+import de.unimarburg.diz.nexuspathotofhir.serde.BundleEncoding;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(value = "processor")
+@Data
+public class ProcessorProperties {
+
+  /** wire format of emitted bundles */
+  private BundleEncoding outputEncoding = BundleEncoding.JSON;
+
+  @NestedConfigurationProperty private MapperExecutor mapperExecutor = new MapperExecutor();
+
+  @NestedConfigurationProperty private Deduplication deduplication = new Deduplication();
+
+  @NestedConfigurationProperty private Coalescing coalescing = new Coalescing();
+
+  @NestedConfigurationProperty private OrderJoin orderJoin = new OrderJoin();
+
+  @NestedConfigurationProperty private DeadLetter deadLetter = new DeadLetter();
+
+  @NestedConfigurationProperty private Splitting splitting = new Splitting();
+
+  @NestedConfigurationProperty private Latency latency = new Latency();
+
+  @NestedConfigurationProperty
+  private SpecimenHierarchy specimenHierarchy = new SpecimenHierarchy();
+
+  @NestedConfigurationProperty private LogicalIds logicalIds = new LogicalIds();
+
+  @Data
+  public static class MapperExecutor {
+    /** how the mappers of one report are dispatched */
+    private MapperExecutionMode mode = MapperExecutionMode.POOL;
+
+    /** platform threads shared by all stream threads in {@link MapperExecutionMode#POOL} */
+    private int poolSize = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * pending mapper tasks in {@link MapperExecutionMode#POOL}; if exceeded the stream thread waits
+     * for a free slot, at most {@link #timeout}
+     */
+    private int queueCapacity = 256;
+
+    /** max duration of a single mapper, measured from dispatch */
+    private Duration timeout = Duration.ofSeconds(30);
+  }
+
+  @Data
+  public static class Deduplication {
+    /**
+     * skip records which are identical to the last record mapped for the same record key; requires
+     * {@code processing.guarantee: exactly_once_v2}, see {@code BundleDeduplication}
+     */
+    private boolean enabled = false;
+
+    /** fingerprints not updated for this long are purged */
+    private Duration retention = Duration.ofDays(30);
+  }
+
+  @Data
+  public static class Coalescing {
+    /** buffer report versions and map only the newest one */
+    private boolean enabled = false;
+
+    /** how long a version waits for newer versions before it is mapped */
+    private Duration gracePeriod = Duration.ofSeconds(30);
+
+    /** attribute which identifies versions of the same report */
+    private ReportCoalesceKey key = ReportCoalesceKey.BEFUND_ID;
+
+    /** how long the emitted version of a report is kept to discard late older versions */
+    private Duration retention = Duration.ofDays(7);
+  }
+
+  @Data
+  public static class OrderJoin {
+    /** how long a specimen or report waits for its partner before it is emitted alone */
+    private Duration window = Duration.ofMinutes(10);
+
+    /** how long the latest specimen and report of an order are kept for late partners */
+    private Duration retention = Duration.ofDays(30);
+  }
+
+  @Data
+  public static class DeadLetter {
+    /** route records failing to map to a dead-letter topic instead of stopping the client */
+    private boolean enabled = true;
+
+    /** dead-letter topic per binding, defaults to '{binding}-dlq' */
+    private Map<String, String> topics = new HashMap<>();
+
+    /** dead-lettered records per minute and binding which are tolerated before shutdown */
+    private int maxPerMinute = 60;
+
+    public String topicOf(String binding) {
+      return topics.getOrDefault(binding, binding + "-dlq");
+    }
+  }
+
+  @Data
+  public static class Splitting {
+    /** split batch bundles exceeding {@link #maxBytes} into several bundles */
+    private boolean enabled = true;
+
+    /** max estimated JSON size of an emitted bundle, keep below the producer max.request.size */
+    private int maxBytes = 4 * 1024 * 1024;
+  }
+
+  @Data
+  public static class Latency {
+    /** publish latency histograms and add latency headers to emitted bundles */
+    private boolean enabled = true;
+  }
+
+  @Data
+  public static class SpecimenHierarchy {
+    /**
+     * emit blocks and slides as child specimens of the root specimen, only new, changed or removed
+     * children per update
+     */
+    private boolean enabled = false;
+
+    /** fingerprints of children not seen for this long are purged */
+    private Duration retention = Duration.ofDays(30);
+  }
+
+  @Data
+  public static class LogicalIds {
+    /** address resources by an id derived from their identifier instead of conditional urls */
+    private boolean enabled = false;
+
+    /**
+     * resource types written and referenced by logical id, references to other types stay
+     * conditional
+     */
+    private Set<String> resourceTypes =
+        new LinkedHashSet<>(
+            List.of("DiagnosticReport", "Observation", "ServiceRequest", "Specimen"));
+  }
+}
@@ -3,7 +3,6 @@ package de.unimarburg.diz.nexuspathotofhir.mapper;
 
 import de.unimarburg.diz.nexuspathotofhir.configuration.CsvMappings;
 import de.unimarburg.diz.nexuspathotofhir.configuration.FhirProperties;
-import de.unimarburg.diz.nexuspathotofhir.model.PathoInputBase;
 import de.unimarburg.diz.nexuspathotofhir.model.PathoReport;
 import de.unimarburg.diz.nexuspathotofhir.util.IdentifierAndReferenceUtil;
 import de.unimarburg.diz.nexuspathotofhir.util.PathologyIdentifierResourceType;
@@ -35,21 +34,14 @@ public class DiagnosticConclusionGrouperMapper extends ToFhirMapper {
   }
 
   @Override
-  public Observation map(PathoInputBase inputBase) {
-    log.debug("creating DiagnosticConclusionGrouper from patho-guid '{}'", inputBase.getUUID());
-    if (!(inputBase instanceof PathoReport input))
-      throw new IllegalArgumentException("input must be a PathoReport");
-    var pathoFindingGrouper = super.mapBaseGrouper(input);
+  public Observation map(ReportMappingContext context) {
+    final PathoReport input = context.report();
+    log.debug("creating DiagnosticConclusionGrouper from patho-guid '{}'", input.getUUID());
+    var pathoFindingGrouper = super.mapBaseGrouper(context);
 
     // Add identifier
     pathoFindingGrouper.addIdentifier(
-        IdentifierAndReferenceUtil.getIdentifier(
-            input,
-            PathologyIdentifierResourceType.DIAGNOSTIC_CONCLUSION_GROUPER,
-            fhirProperties.getSystems().getDiagnosticFindingId(),
-            "",
-            input.getBefundtyp(),
-            input.getBefundID()));
+        context.grouperIdentifier(PathologyIdentifierResourceType.DIAGNOSTIC_CONCLUSION_GROUPER));
 
     // Add Meta: source, profile
     pathoFindingGrouper.setMeta(
@@ -63,45 +55,17 @@ public class DiagnosticConclusionGrouperMapper extends ToFhirMapper {
     // Add hasMember
     // TODO: For multiple PathoFindings
     ArrayList<Reference> hasMembers = new ArrayList<>();
-    Identifier identifierPathoFinding =
-        IdentifierAndReferenceUtil.getIdentifier(
-            input,
-            PathologyIdentifierResourceType.PATHO_FINDING,
-            fhirProperties.getSystems().getDiagnosticFindingId(),
-            "",
-            input.getBefundtyp(),
-            input.getBefundID(),
-            "DIAGNOSE_CONCLUSION");
-    hasMembers.add(
-        IdentifierAndReferenceUtil.getReferenceTo("Observation", identifierPathoFinding));
+    hasMembers.add(context.findingReference(ReportMappingContext.FINDING_DIAGNOSE_CONCLUSION));
     pathoFindingGrouper.setHasMember(hasMembers);
 
     // Add derivedFrom
     ArrayList<Reference> derievedFrom = new ArrayList<>();
 
     // Add macroscopic-grouper
-    Identifier idPathoFindingGrouperMacro =
-        IdentifierAndReferenceUtil.getIdentifier(
-            input,
-            PathologyIdentifierResourceType.MACROSCOPIC_GROUPER,
-            fhirProperties.getSystems().getDiagnosticFindingId(),
-            "",
-            input.getBefundtyp(),
-            input.getBefundID());
+    derievedFrom.add(context.grouperReference(PathologyIdentifierResourceType.MACROSCOPIC_GROUPER));
 
     // Add microscopic-grouper
-    Identifier idPathoFindingGrouperMicro =
-        IdentifierAndReferenceUtil.getIdentifier(
-            input,
-            PathologyIdentifierResourceType.MICROSCOPIC_GROUPER,
-            fhirProperties.getSystems().getDiagnosticFindingId(),
-            "",
-            input.getBefundtyp(),
-            input.getBefundID());
-    derievedFrom.add(
-        IdentifierAndReferenceUtil.getReferenceTo("Observation", idPathoFindingGrouperMacro));
-    derievedFrom.add(
-        IdentifierAndReferenceUtil.getReferenceTo("Observation", idPathoFindingGrouperMicro));
+    derievedFrom.add(context.grouperReference(PathologyIdentifierResourceType.MICROSCOPIC_GROUPER));
     pathoFindingGrouper.setDerivedFrom(derievedFrom);
 
     // Add ValueString
@@ -115,8 +79,8 @@ public class DiagnosticConclusionGrouperMapper extends ToFhirMapper {
   }
 
   @Override
-  @Nullable public Bundle.BundleEntryComponent apply(PathoInputBase value) {
-    var mapped = map(value);
+  @Nullable public Bundle.BundleEntryComponent apply(ReportMappingContext context) {
+    var mapped = map(context);
     if (mapped == null) return null;
 
     final Identifier identifierFirstRep = mapped.getIdentifierFirstRep();
@@ -134,8 +98,7 @@ public class DiagnosticConclusionGrouperMapper extends ToFhirMapper {
         new Bundle.BundleEntryRequestComponent()
             .setMethod(Bundle.HTTPVerb.PUT)
             .setUrl(
-                String.format(
-                    "%s?identifier=%s|%s",
+                IdentifierAndReferenceUtil.getConditionalUrl(
                     mapped.fhirType(),
                     identifierFirstRep.getSystem(),
                     identifierFirstRep.getValue())));
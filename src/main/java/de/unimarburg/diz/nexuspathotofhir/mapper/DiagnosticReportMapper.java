@@ -3,7 +3,6 @@ package de.unimarburg.diz.nexuspathotofhir.mapper;
 
 import de.unimarburg.diz.nexuspathotofhir.configuration.CsvMappings;
 import de.unimarburg.diz.nexuspathotofhir.configuration.FhirProperties;
-import de.unimarburg.diz.nexuspathotofhir.model.PathoInputBase;
 import de.unimarburg.diz.nexuspathotofhir.model.PathoReport;
 import de.unimarburg.diz.nexuspathotofhir.util.IdentifierAndReferenceUtil;
 import de.unimarburg.diz.nexuspathotofhir.util.PathologyIdentifierResourceType;
@@ -24,9 +23,8 @@ public class DiagnosticReportMapper extends ToFhirMapper {
   }
 
   @Override
-  public DiagnosticReport map(PathoInputBase inputBase) {
-    if (!(inputBase instanceof PathoReport input))
-      throw new IllegalArgumentException("input must be a PathoReport");
+  public DiagnosticReport map(ReportMappingContext context) {
+    final PathoReport input = context.report();
 
     var diagnosticReport = new DiagnosticReport();
 
@@ -48,13 +46,7 @@ public class DiagnosticReportMapper extends ToFhirMapper {
             fhirProperties.getSystems().getDiagnosticReportId()));
 
     // map based on
-    diagnosticReport.addBasedOn(
-        IdentifierAndReferenceUtil.getReferenceTo(
-            "ServiceRequest",
-            IdentifierAndReferenceUtil.getIdentifier(
-                input,
-                PathologyIdentifierResourceType.SERVICE_REQUEST,
-                fhirProperties.getSystems().getServiceRequestId())));
+    diagnosticReport.addBasedOn(context.serviceRequestReference());
 
     // map status
     getConditionalReportStatus(diagnosticReport, input.getBefundtyp());
@@ -70,57 +62,21 @@ public class DiagnosticReportMapper extends ToFhirMapper {
     // TODO map performer
 
     // Encounter
-    diagnosticReport.setEncounter(
-        IdentifierAndReferenceUtil.getReferenceTo(
-            "Encounter", input.getFallnummer(), fhirProperties.getSystems().getEncounterId()));
+    diagnosticReport.setEncounter(context.encounterReference());
 
     // Patient
-    diagnosticReport.setSubject(
-        IdentifierAndReferenceUtil.getReferenceTo(
-            "Patient", input.getPatientennummer(), fhirProperties.getSystems().getPatientId()));
+    diagnosticReport.setSubject(context.patientReference());
 
     // map result (TODO)
 
     ArrayList<Reference> resultRefereces = new ArrayList<>();
-    // Create Reference ID MicroBefundGrouper
-    Identifier idPathoFindingGrouperMicro =
-        IdentifierAndReferenceUtil.getIdentifier(
-            input,
-            PathologyIdentifierResourceType.MICROSCOPIC_GROUPER,
-            fhirProperties.getSystems().getDiagnosticFindingId(),
-            "",
-            input.getBefundtyp(),
-            input.getBefundID());
-
-    // Create Reference ID MacroBefundGrouper
-    Identifier idPathoFindingGrouperMacro =
-        IdentifierAndReferenceUtil.getIdentifier(
-            input,
-            PathologyIdentifierResourceType.MACROSCOPIC_GROUPER,
-            fhirProperties.getSystems().getDiagnosticFindingId(),
-            "",
-            input.getBefundtyp(),
-            input.getBefundID());
-
-    // Create Reference ID DiagnoseConclusionGrouper
-
-    Identifier idPathoFindingGrouperDiagConclusion =
-        IdentifierAndReferenceUtil.getIdentifier(
-            input,
-            PathologyIdentifierResourceType.DIAGNOSTIC_CONCLUSION_GROUPER,
-            fhirProperties.getSystems().getDiagnosticFindingId(),
-            "",
-            input.getBefundtyp(),
-            input.getBefundID());
-
-    // Add each references to result array
+    // Add grouper references to result array
     resultRefereces.add(
-        IdentifierAndReferenceUtil.getReferenceTo("Observation", idPathoFindingGrouperMicro));
+        context.grouperReference(PathologyIdentifierResourceType.MICROSCOPIC_GROUPER));
     resultRefereces.add(
-        IdentifierAndReferenceUtil.getReferenceTo("Observation", idPathoFindingGrouperMacro));
+        context.grouperReference(PathologyIdentifierResourceType.MACROSCOPIC_GROUPER));
     resultRefereces.add(
-        IdentifierAndReferenceUtil.getReferenceTo(
-            "Observation", idPathoFindingGrouperDiagConclusion));
+        context.grouperReference(PathologyIdentifierResourceType.DIAGNOSTIC_CONCLUSION_GROUPER));
     diagnosticReport.setResult(resultRefereces);
 
     // map conclusion code
@@ -134,7 +90,7 @@ public class DiagnosticReportMapper extends ToFhirMapper {
                     .setDisplay("Snomed diagnose")
                     .setSystem("http://snomed.info/sct")));
     // map effectiveDateTime
-    Date probeEinnahmeDatum = new Date(input.getProbeEntnahmedatum());
+    Date probeEinnahmeDatum = requireProbeEntnahmedatum(context);
     diagnosticReport.setEffective(new DateTimeType().setValue(probeEinnahmeDatum));
 
     // Performer
@@ -162,8 +118,8 @@ public class DiagnosticReportMapper extends ToFhirMapper {
   }
 
   @Override
-  @Nullable public Bundle.BundleEntryComponent apply(PathoInputBase value) {
-    var mapped = map(value);
+  @Nullable public Bundle.BundleEntryComponent apply(ReportMappingContext context) {
+    var mapped = map(context);
     if (mapped == null) return null;
 
     final Identifier identifierFirstRep = mapped.getIdentifierFirstRep();
@@ -181,8 +137,7 @@ public class DiagnosticReportMapper extends ToFhirMapper {
         new Bundle.BundleEntryRequestComponent()
             .setMethod(Bundle.HTTPVerb.PUT)
             .setUrl(
-                String.format(
-                    "%s?identifier=%s|%s",
+                IdentifierAndReferenceUtil.getConditionalUrl(
                     mapped.fhirType(),
                     identifierFirstRep.getSystem(),
                     identifierFirstRep.getValue())));
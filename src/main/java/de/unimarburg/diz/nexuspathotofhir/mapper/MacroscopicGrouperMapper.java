@@ -3,7 +3,6 @@ package de.unimarburg.diz.nexuspathotofhir.mapper;
 
 import de.unimarburg.diz.nexuspathotofhir.configuration.CsvMappings;
 import de.unimarburg.diz.nexuspathotofhir.configuration.FhirProperties;
-import de.unimarburg.diz.nexuspathotofhir.model.PathoInputBase;
 import de.unimarburg.diz.nexuspathotofhir.model.PathoReport;
 import de.unimarburg.diz.nexuspathotofhir.util.IdentifierAndReferenceUtil;
 import de.unimarburg.diz.nexuspathotofhir.util.PathologyIdentifierResourceType;
@@ -25,21 +24,14 @@ public class MacroscopicGrouperMapper extends ToFhirMapper {
   }
 
   @Override
-  public Observation map(PathoInputBase inputBase) {
-    log.debug("creating MacroscopicGrouper from patho-guid '{}'", inputBase.getUUID());
-    if (!(inputBase instanceof PathoReport input))
-      throw new IllegalArgumentException("input must be a PathoReport");
-    var pathoFindingGrouper = super.mapBaseGrouper(input);
+  public Observation map(ReportMappingContext context) {
+    final PathoReport input = context.report();
+    log.debug("creating MacroscopicGrouper from patho-guid '{}'", input.getUUID());
+    var pathoFindingGrouper = super.mapBaseGrouper(context);
 
     // Add identifier
     pathoFindingGrouper.addIdentifier(
-        IdentifierAndReferenceUtil.getIdentifier(
-            input,
-            PathologyIdentifierResourceType.MACROSCOPIC_GROUPER,
-            fhirProperties.getSystems().getDiagnosticFindingId(),
-            "",
-            input.getBefundtyp(),
-            input.getBefundID()));
+        context.grouperIdentifier(PathologyIdentifierResourceType.MACROSCOPIC_GROUPER));
 
     // Add Meta: source, profile
     pathoFindingGrouper.setMeta(
@@ -53,16 +45,7 @@ public class MacroscopicGrouperMapper extends ToFhirMapper {
     // Add hasMember
     // TODO: For multiple PathoFindings
     ArrayList<Reference> hasMembers = new ArrayList<>();
-    Identifier identifier =
-        IdentifierAndReferenceUtil.getIdentifier(
-            input,
-            PathologyIdentifierResourceType.PATHO_FINDING,
-            fhirProperties.getSystems().getDiagnosticFindingId(),
-            "",
-            input.getBefundtyp(),
-            input.getBefundID(),
-            "MACRO");
-    hasMembers.add(IdentifierAndReferenceUtil.getReferenceTo("Observation", identifier));
+    hasMembers.add(context.findingReference(ReportMappingContext.FINDING_MACRO));
     pathoFindingGrouper.setHasMember(hasMembers);
 
     // Add ValueString
@@ -71,8 +54,8 @@ public class MacroscopicGrouperMapper extends ToFhirMapper {
   }
 
   @Override
-  @Nullable public Bundle.BundleEntryComponent apply(PathoInputBase value) {
-    var mapped = map(value);
+  @Nullable public Bundle.BundleEntryComponent apply(ReportMappingContext context) {
+    var mapped = map(context);
     if (mapped == null) return null;
 
     final Identifier identifierFirstRep = mapped.getIdentifierFirstRep();
@@ -90,8 +73,7 @@ public class MacroscopicGrouperMapper extends ToFhirMapper {
         new Bundle.BundleEntryRequestComponent()
             .setMethod(Bundle.HTTPVerb.PUT)
             .setUrl(
-                String.format(
-                    "%s?identifier=%s|%s",
+                IdentifierAndReferenceUtil.getConditionalUrl(
                     mapped.fhirType(),
                     identifierFirstRep.getSystem(),
                     identifierFirstRep.getValue())));
@@ -3,7 +3,6 @@ package de.unimarburg.diz.nexuspathotofhir.mapper;
 
 import de.unimarburg.diz.nexuspathotofhir.configuration.CsvMappings;
 import de.unimarburg.diz.nexuspathotofhir.configuration.FhirProperties;
-import de.unimarburg.diz.nexuspathotofhir.model.PathoInputBase;
 import de.unimarburg.diz.nexuspathotofhir.model.PathoReport;
 import de.unimarburg.diz.nexuspathotofhir.util.IdentifierAndReferenceUtil;
 import de.unimarburg.diz.nexuspathotofhir.util.PathologyIdentifierResourceType;
@@ -25,22 +24,15 @@ public class MicroscopicGrouperMapper extends ToFhirMapper {
   }
 
   @Override
-  public Observation map(PathoInputBase inputBase) {
-    log.debug("creating MicroscopicGrouper from patho-guid '{}'", inputBase.getUUID());
-    if (!(inputBase instanceof PathoReport input))
-      throw new IllegalArgumentException("input must be a PathoReport");
+  public Observation map(ReportMappingContext context) {
+    final PathoReport input = context.report();
+    log.debug("creating MicroscopicGrouper from patho-guid '{}'", input.getUUID());
 
-    var pathoFindingGrouper = super.mapBaseGrouper(input);
+    var pathoFindingGrouper = super.mapBaseGrouper(context);
 
     // identifier
     pathoFindingGrouper.addIdentifier(
-        IdentifierAndReferenceUtil.getIdentifier(
-            input,
-            PathologyIdentifierResourceType.MICROSCOPIC_GROUPER,
-            fhirProperties.getSystems().getDiagnosticFindingId(),
-            "",
-            input.getBefundtyp(),
-            input.getBefundID()));
+        context.grouperIdentifier(PathologyIdentifierResourceType.MICROSCOPIC_GROUPER));
 
     // Add Meta: source, profile
     pathoFindingGrouper.setMeta(
@@ -54,16 +46,7 @@ public class MicroscopicGrouperMapper extends ToFhirMapper {
     // Add hasMember
     // TODO: For multiple PathoFindings
     ArrayList<Reference> hasMembers = new ArrayList<>();
-    Identifier identifier =
-        IdentifierAndReferenceUtil.getIdentifier(
-            input,
-            PathologyIdentifierResourceType.PATHO_FINDING,
-            fhirProperties.getSystems().getDiagnosticFindingId(),
-            "",
-            input.getBefundtyp(),
-            input.getBefundID(),
-            "MICRO");
-    hasMembers.add(IdentifierAndReferenceUtil.getReferenceTo("Observation", identifier));
+    hasMembers.add(context.findingReference(ReportMappingContext.FINDING_MICRO));
     pathoFindingGrouper.setHasMember(hasMembers);
 
     // Add ValueString
@@ -72,8 +55,8 @@ public class MicroscopicGrouperMapper extends ToFhirMapper {
   }
 
   @Override
-  @Nullable public Bundle.BundleEntryComponent apply(PathoInputBase value) {
-    var mapped = map(value);
+  @Nullable public Bundle.BundleEntryComponent apply(ReportMappingContext context) {
+    var mapped = map(context);
     if (mapped == null) return null;
 
     final Identifier identifierFirstRep = mapped.getIdentifierFirstRep();
@@ -91,8 +74,7 @@ public class MicroscopicGrouperMapper extends ToFhirMapper {
         new Bundle.BundleEntryRequestComponent()
             .setMethod(Bundle.HTTPVerb.PUT)
             .setUrl(
-                String.format(
-                    "%s?identifier=%s|%s",
+                IdentifierAndReferenceUtil.getConditionalUrl(
                     mapped.fhirType(),
                     identifierFirstRep.getSystem(),
                     identifierFirstRep.getValue())));
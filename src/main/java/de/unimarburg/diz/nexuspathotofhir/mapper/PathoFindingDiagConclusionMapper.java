@@ -3,10 +3,8 @@ package de.unimarburg.diz.nexuspathotofhir.mapper;
 
 import de.unimarburg.diz.nexuspathotofhir.configuration.CsvMappings;
 import de.unimarburg.diz.nexuspathotofhir.configuration.FhirProperties;
-import de.unimarburg.diz.nexuspathotofhir.model.PathoInputBase;
 import de.unimarburg.diz.nexuspathotofhir.model.PathoReport;
 import de.unimarburg.diz.nexuspathotofhir.util.IdentifierAndReferenceUtil;
-import de.unimarburg.diz.nexuspathotofhir.util.PathologyIdentifierResourceType;
 import java.util.*;
 import org.hl7.fhir.r4.model.*;
 import org.jetbrains.annotations.NotNull;
@@ -24,21 +22,13 @@ public class PathoFindingDiagConclusionMapper extends ToFhirMapper {
   }
 
   @Override
-  public Observation map(PathoInputBase inputBase) {
-    if (!(inputBase instanceof PathoReport input))
-      throw new IllegalArgumentException("input must be a PathoReport");
-    var pathoFinding = super.mapBasePathoFinding(input);
+  public Observation map(ReportMappingContext context) {
+    final PathoReport input = context.report();
+    var pathoFinding = super.mapBasePathoFinding(context);
     // Add identifier TODO: For multiple observations
     // Add Numbers after befundtype
     pathoFinding.addIdentifier(
-        IdentifierAndReferenceUtil.getIdentifier(
-            input,
-            PathologyIdentifierResourceType.PATHO_FINDING,
-            fhirProperties.getSystems().getDiagnosticFindingId(),
-            "",
-            input.getBefundtyp(),
-            input.getBefundID(),
-            "DIAGNOSE_CONCLUSION"));
+        context.findingIdentifier(ReportMappingContext.FINDING_DIAGNOSE_CONCLUSION));
 
     // CategoryCode
     pathoFinding.setCategory(
@@ -72,8 +62,8 @@ public class PathoFindingDiagConclusionMapper extends ToFhirMapper {
   }
 
   @Override
-  @Nullable public Bundle.BundleEntryComponent apply(PathoInputBase value) {
-    var mapped = map(value);
+  @Nullable public Bundle.BundleEntryComponent apply(ReportMappingContext context) {
+    var mapped = map(context);
     if (mapped == null) return null;
 
     final Identifier identifierFirstRep = mapped.getIdentifierFirstRep();
@@ -91,8 +81,7 @@ public class PathoFindingDiagConclusionMapper extends ToFhirMapper {
         new Bundle.BundleEntryRequestComponent()
             .setMethod(Bundle.HTTPVerb.PUT)
             .setUrl(
-                String.format(
-                    "%s?identifier=%s|%s",
+                IdentifierAndReferenceUtil.getConditionalUrl(
                     mapped.fhirType(),
                     identifierFirstRep.getSystem(),
                     identifierFirstRep.getValue())));
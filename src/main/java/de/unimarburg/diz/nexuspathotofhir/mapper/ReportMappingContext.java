@@ -0,0 +1,194 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.mapper;
+
+import de.unimarburg.diz.nexuspathotofhir.configuration.CsvMappings;
+import de.unimarburg.diz.nexuspathotofhir.configuration.FhirProperties;
+import de.unimarburg.diz.nexuspathotofhir.model.PathoReport;
+import de.unimarburg.diz.nexuspathotofhir.model.ReportDocType;
+import de.unimarburg.diz.nexuspathotofhir.util.IdentifierAndReferenceUtil;
+import de.unimarburg.diz.nexuspathotofhir.util.PathologyIdentifierResourceType;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Reference;
+import org.springframework.util.StringUtils;
+
+/**
+ * Values of one {@link PathoReport} shared by all {@link ToFhirMapper}: references to patient,
+ * encounter and service request, the specimen collection date, the document type, the grouper and
+ * finding identifiers and the mapping tables. Derived once per record, the mappers only read them.
+ *
+ * <p>Derivations which fail on invalid input are repeated on access, so each mapper still fails
+ * with the exception it would have thrown on its own.
+ */
+public final class ReportMappingContext {
+
+  /** finding kinds, suffix of {@link PathologyIdentifierResourceType#PATHO_FINDING} identifiers */
+  public static final String FINDING_MACRO = "MACRO";
+
+  public static final String FINDING_MICRO = "MICRO";
+  public static final String FINDING_DIAGNOSE_CONCLUSION = "DIAGNOSE_CONCLUSION";
+
+  private static final PathologyIdentifierResourceType[] GROUPERS = {
+    PathologyIdentifierResourceType.MACROSCOPIC_GROUPER,
+    PathologyIdentifierResourceType.MICROSCOPIC_GROUPER,
+    PathologyIdentifierResourceType.DIAGNOSTIC_CONCLUSION_GROUPER
+  };
+
+  private static final String[] FINDINGS = {
+    FINDING_MACRO, FINDING_MICRO, FINDING_DIAGNOSE_CONCLUSION
+  };
+
+  private final PathoReport report;
+  private final String findingSystem;
+  private final String patientReference;
+  private final String encounterReference;
+  private final String serviceRequestReference;
+  private final Date probeEntnahmedatum;
+
+  /** null if the document type is invalid */
+  private final ReportDocType docType;
+
+  /** empty if the report has no order number */
+  private final Map<PathologyIdentifierResourceType, String> grouperIds;
+
+  private final Map<String, String> findingIds;
+
+  /** null if the mappers look up their current tables */
+  private final CsvMappings.Active mappings;
+
+  private ReportMappingContext(
+      PathoReport report, FhirProperties.FhirSystems systems, CsvMappings.Active mappings) {
+    this.report = report;
+    this.mappings = mappings;
+    this.findingSystem = systems.getDiagnosticFindingId();
+    this.patientReference =
+        IdentifierAndReferenceUtil.getConditionalUrl(
+            "Patient", systems.getPatientId(), report.getPatientennummer());
+    this.encounterReference =
+        IdentifierAndReferenceUtil.getConditionalUrl(
+            "Encounter", systems.getEncounterId(), report.getFallnummer());
+    this.serviceRequestReference =
+        IdentifierAndReferenceUtil.getConditionalUrl(
+            "ServiceRequest", systems.getServiceRequestId(), report.getAuftragsnummer());
+    this.probeEntnahmedatum =
+        report.getProbeEntnahmedatum() != null ? new Date(report.getProbeEntnahmedatum()) : null;
+    this.docType = docTypeOrNull(report);
+
+    this.grouperIds = new EnumMap<>(PathologyIdentifierResourceType.class);
+    this.findingIds = new HashMap<>(FINDINGS.length * 2);
+    if (StringUtils.hasText(report.getAuftragsnummer())) {
+      for (PathologyIdentifierResourceType grouper : GROUPERS)
+        grouperIds.put(grouper, grouperIdValue(report, grouper));
+      for (String finding : FINDINGS) findingIds.put(finding, findingIdValue(report, finding));
+    }
+  }
+
+  /**
+   * @param fhirProperties systems of references and identifiers
+   */
+  public static ReportMappingContext of(PathoReport report, FhirProperties fhirProperties) {
+    return of(report, fhirProperties, null);
+  }
+
+  /**
+   * @param fhirProperties systems of references and identifiers
+   * @param mappings mapping tables of this record, see {@link CsvMappings#active()}
+   */
+  public static ReportMappingContext of(
+      PathoReport report, FhirProperties fhirProperties, CsvMappings.Active mappings) {
+    if (report == null) throw new IllegalArgumentException("report was null");
+    return new ReportMappingContext(report, fhirProperties.getSystems(), mappings);
+  }
+
+  private static ReportDocType docTypeOrNull(PathoReport report) {
+    try {
+      return report.getDocType();
+    } catch (IllegalStateException e) {
+      return null;
+    }
+  }
+
+  private static String grouperIdValue(
+      PathoReport report, PathologyIdentifierResourceType grouper) {
+    return IdentifierAndReferenceUtil.getPathoIdentifierValue(
+        report, grouper, new String[] {"", report.getBefundtyp(), report.getBefundID()});
+  }
+
+  private static String findingIdValue(PathoReport report, String finding) {
+    return IdentifierAndReferenceUtil.getPathoIdentifierValue(
+        report,
+        PathologyIdentifierResourceType.PATHO_FINDING,
+        new String[] {"", report.getBefundtyp(), report.getBefundID(), finding});
+  }
+
+  public PathoReport report() {
+    return report;
+  }
+
+  /**
+   * @return mapping tables of this record, null if not taken with the context
+   */
+  public CsvMappings.Active mappings() {
+    return mappings;
+  }
+
+  /** new instance per call, references are owned by the resource they are set on */
+  public Reference patientReference() {
+    return new Reference(patientReference);
+  }
+
+  public Reference encounterReference() {
+    return new Reference(encounterReference);
+  }
+
+  public Reference serviceRequestReference() {
+    return new Reference(serviceRequestReference);
+  }
+
+  /**
+   * @return specimen collection date, null if missing. Shared by all mappers, do not modify.
+   */
+  public Date probeEntnahmedatum() {
+    return probeEntnahmedatum;
+  }
+
+  /**
+   * @throws IllegalStateException if the document type is not supported
+   */
+  public ReportDocType docType() {
+    return docType != null ? docType : report.getDocType();
+  }
+
+  /**
+   * @param grouper macroscopic, microscopic or diagnostic conclusion grouper
+   * @throws IllegalArgumentException if the report has no order number
+   */
+  public Identifier grouperIdentifier(PathologyIdentifierResourceType grouper) {
+    final String value = grouperIds.get(grouper);
+    return new Identifier()
+        .setSystem(findingSystem)
+        .setValue(value != null ? value : grouperIdValue(report, grouper));
+  }
+
+  /**
+   * @param finding one of the {@code FINDING_*} kinds
+   * @throws IllegalArgumentException if the report has no order number
+   */
+  public Identifier findingIdentifier(String finding) {
+    final String value = findingIds.get(finding);
+    return new Identifier()
+        .setSystem(findingSystem)
+        .setValue(value != null ? value : findingIdValue(report, finding));
+  }
+
+  public Reference grouperReference(PathologyIdentifierResourceType grouper) {
+    return IdentifierAndReferenceUtil.getReferenceTo("Observation", grouperIdentifier(grouper));
+  }
+
+  public Reference findingReference(String finding) {
+    return IdentifierAndReferenceUtil.getReferenceTo("Observation", findingIdentifier(finding));
+  }
+}
@@ -3,7 +3,6 @@ package de.unimarburg.diz.nexuspathotofhir.mapper;
 
 import de.unimarburg.diz.nexuspathotofhir.configuration.CsvMappings;
 import de.unimarburg.diz.nexuspathotofhir.configuration.FhirProperties;
-import de.unimarburg.diz.nexuspathotofhir.model.PathoInputBase;
 import de.unimarburg.diz.nexuspathotofhir.model.PathoReport;
 import de.unimarburg.diz.nexuspathotofhir.util.IdentifierAndReferenceUtil;
 import de.unimarburg.diz.nexuspathotofhir.util.PathologyIdentifierResourceType;
@@ -28,9 +27,8 @@ public class ServiceRequestMapper extends ToFhirMapper {
   }
 
   @Override
-  public ServiceRequest map(PathoInputBase inputBase) {
-    if (!(inputBase instanceof PathoReport input))
-      throw new IllegalArgumentException("input must be a PathoReport");
+  public ServiceRequest map(ReportMappingContext context) {
+    final PathoReport input = context.report();
 
     log.debug(
         "creating service_request '{}' from patho-guid '{}'",
@@ -57,13 +55,9 @@ public class ServiceRequestMapper extends ToFhirMapper {
             fhirProperties.getSystems().getServiceRequestId()));
 
     // encounter refefence
-    serviceRequest.setEncounter(
-        IdentifierAndReferenceUtil.getReferenceTo(
-            "Encounter", input.getFallnummer(), fhirProperties.getSystems().getEncounterId()));
+    serviceRequest.setEncounter(context.encounterReference());
     // subject refefence
-    serviceRequest.setSubject(
-        IdentifierAndReferenceUtil.getReferenceTo(
-            "Patient", input.getPatientennummer(), fhirProperties.getSystems().getPatientId()));
+    serviceRequest.setSubject(context.patientReference());
 
     // TODO: Add multiple specimen
 
@@ -118,8 +112,8 @@ public class ServiceRequestMapper extends ToFhirMapper {
   }
 
   @Override
-  @Nullable public Bundle.BundleEntryComponent apply(PathoInputBase value) {
-    var mapped = map(value);
+  @Nullable public Bundle.BundleEntryComponent apply(ReportMappingContext context) {
+    var mapped = map(context);
     if (mapped == null) return null;
 
     final Identifier identifierFirstRep = mapped.getIdentifierFirstRep();
@@ -137,8 +131,7 @@ public class ServiceRequestMapper extends ToFhirMapper {
         new Bundle.BundleEntryRequestComponent()
             .setMethod(Bundle.HTTPVerb.PUT)
             .setUrl(
-                String.format(
-                    "%s?identifier=%s|%s",
+                IdentifierAndReferenceUtil.getConditionalUrl(
                     mapped.fhirType(),
                     identifierFirstRep.getSystem(),
                     identifierFirstRep.getValue())));
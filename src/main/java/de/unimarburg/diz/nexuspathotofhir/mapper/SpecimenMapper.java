@@ -7,6 +7,7 @@ import de.unimarburg.diz.nexuspathotofhir.model.MappingEntry;
 import de.unimarburg.diz.nexuspathotofhir.model.PathoInputBase;
 import de.unimarburg.diz.nexuspathotofhir.model.PathoSpecimen;
 import de.unimarburg.diz.nexuspathotofhir.model.SpecimenContainerTyp;
+import de.unimarburg.diz.nexuspathotofhir.model.SpecimenContainers;
 import de.unimarburg.diz.nexuspathotofhir.util.IdentifierAndReferenceUtil;
 import java.time.Instant;
 import java.util.*;
@@ -35,10 +36,19 @@ public class SpecimenMapper extends ToFhirMapperSpecimen {
 
   @Override
   @Nullable public Specimen map(PathoInputBase inputBase) {
+    return map(inputBase, true);
+  }
+
+  /**
+   * @param withContainers false if the containers are mapped as child specimens instead
+   */
+  @Nullable private Specimen map(PathoInputBase inputBase, boolean withContainers) {
     if (inputBase == null || !inputBase.isBaseValid()) return null;
     if (!(inputBase instanceof PathoSpecimen input))
       throw new IllegalArgumentException("input must be a PathoSpecimen");
-    if (csvMappings.specimenTypes() == null || csvMappings.specimenTypes().isEmpty())
+    // one snapshot for all lookups of this record
+    final CsvMappings.Active mappings = csvMappings.active();
+    if (mappings.snapshot().specimenTypes().isEmpty())
       throw new RuntimeException("specimentTypes mapping is missing");
 
     if (!checkInputIsValid(input)) {
@@ -69,7 +79,7 @@ public class SpecimenMapper extends ToFhirMapperSpecimen {
             input.getAuftragsnummer(),
             fhirProperties.getSystems().getServiceRequestId()));
 
-    mapSpecimenType(result, input);
+    mapSpecimenType(result, input, mappings);
     // fixme: never null since profile mandatory value > error topic?
     final boolean isInvalidResource = result.hasType();
     if (!isInvalidResource) {
@@ -79,12 +89,12 @@ public class SpecimenMapper extends ToFhirMapperSpecimen {
       return null;
     }
 
-    mapContainer(result, input);
+    if (withContainers) mapContainer(result, input);
 
     // set Status
     result.setStatus(Specimen.SpecimenStatus.AVAILABLE);
 
-    mapSpecimenCollection(result, input);
+    mapSpecimenCollection(result, input, mappings);
 
     return result;
   }
@@ -92,23 +102,13 @@ public class SpecimenMapper extends ToFhirMapperSpecimen {
   public boolean checkInputIsValid(PathoSpecimen input) {
 
     boolean isValid = true;
-    var arrayLength =
-        Arrays.asList(
-            input.getContainerLabelsArray().length,
-            input.getContainerGUIDsArray().length,
-            input.getContainerTypesArray().length,
-            // note getSubContainerIdsArray() removes 'NA' value which is 'root' therefore we need
-            // to add +1
-            input.getSubContainerIdsArray().length + 1);
-
-    var countSet = new HashSet<Integer>();
-    arrayLength.forEach(a -> countSet.add(a));
-    if (countSet.size() > 1) {
+    final SpecimenContainers containers = input.getContainers();
+    if (!containers.isConsistent()) {
       log.error("input has different count of lables,guids,types,ids: '{}'", input);
       isValid = false;
     }
 
-    if (input.getRootIndex() < 0) {
+    if (containers.rootIndex() < 0) {
       log.error("input has no root container lable: '{}'", input);
       isValid = false;
     }
@@ -137,7 +137,8 @@ public class SpecimenMapper extends ToFhirMapperSpecimen {
 
   @NotNull(
       "specimen FHIR profile has mandatory collection information, therefore result is never null")
-  private Specimen mapSpecimenCollection(Specimen target, PathoSpecimen input) {
+  private Specimen mapSpecimenCollection(
+      Specimen target, PathoSpecimen input, CsvMappings.Active mappings) {
     final Specimen.SpecimenCollectionComponent collection =
         new Specimen.SpecimenCollectionComponent();
 
@@ -150,36 +151,30 @@ public class SpecimenMapper extends ToFhirMapperSpecimen {
     /*
      * mandatory from patho profile
      */
-    final Coding extractionMethodCoding = getExtractionMethodCoding(input);
+    final Coding extractionMethodCoding = getExtractionMethodCoding(input, mappings);
     if (extractionMethodCoding != null)
       collection.setMethod(new CodeableConcept().addCoding(extractionMethodCoding));
 
     /*
     optional body site
      */
-    var bodySite = mapBodySite(input);
+    var bodySite = mapBodySite(input, mappings);
     collection.setBodySite(bodySite);
 
     target.setCollection(collection);
     return target;
   }
 
-  protected Coding getExtractionMethodCoding(PathoSpecimen input) {
+  protected Coding getExtractionMethodCoding(PathoSpecimen input, CsvMappings.Active mappings) {
 
-    if (!csvMappings.specimenExtractionMethod().containsKey(input.getProbeGewinnungsmethode()))
-      return null;
-    else {
-      var method = csvMappings.specimenExtractionMethod().get(input.getProbeGewinnungsmethode());
-      return method.asFhirCoding();
-    }
+    var method =
+        mappings.snapshot().specimenExtractionMethods().get(input.getProbeGewinnungsmethode());
+    return method != null ? method.asFhirCoding() : null;
   }
 
-  protected CodeableConcept mapBodySite(PathoSpecimen input) {
-    if (csvMappings.specimenBodysite().containsKey(input.getProbeName())) {
-      var coding = csvMappings.specimenBodysite().get(input.getProbeName()).asFhirCoding();
-      return new CodeableConcept(coding);
-    }
-    return null;
+  protected CodeableConcept mapBodySite(PathoSpecimen input, CsvMappings.Active mappings) {
+    var bodySite = mappings.lookupSpecimenBodysite(input.getProbeName());
+    return bodySite != null ? new CodeableConcept(bodySite.asFhirCoding()) : null;
   }
 
   private void setIdentifiers(Specimen result, PathoSpecimen input) {
@@ -206,46 +201,99 @@ public class SpecimenMapper extends ToFhirMapperSpecimen {
     List<Specimen.SpecimenContainerComponent> container = new ArrayList<>();
 
     // hier brauchen wir alle Container
-    var containerLabels = input.getContainerLabelsArray();
-    var containerTypes = input.getContainerTypesArray();
-    for (int i = 0; i < containerLabels.length; i++) {
+    for (SpecimenContainers.Container subContainer : subContainers(input)) {
+      container.add(containerComponent(input, subContainer));
+    }
+    specimen.setContainer(container);
+  }
+
+  /** sub containers in list order, root container and blank cuts excluded */
+  private List<SpecimenContainers.Container> subContainers(PathoSpecimen input) {
+    final List<SpecimenContainers.Container> result = new ArrayList<>();
+    final SpecimenContainers containers = input.getContainers();
+    for (SpecimenContainers.Container subContainer : containers.containers()) {
       // skip root container
-      if (i == input.getRootIndex()) continue;
+      if (subContainer.index() == containers.rootIndex()) continue;
 
-      var subContainerLabel = containerLabels[i];
-      var subContainerType = Integer.valueOf(containerTypes[i]);
-      var mappedType = SpecimenContainerTyp.valueOf(subContainerType);
-      if (mappedType == SpecimenContainerTyp.BLANK_CUT) {
+      if (subContainer.type() == SpecimenContainerTyp.BLANK_CUT) {
         log.warn(
             "skipping subcontainer '{}' since typ is blank cut. Specimen ID '{}'",
-            subContainerLabel,
+            subContainer.label(),
             input.getProbeID());
         continue;
       }
+      result.add(subContainer);
+    }
+    return result;
+  }
 
-      final Specimen.SpecimenContainerComponent specimenContainerComponent =
-          new Specimen.SpecimenContainerComponent();
-      specimenContainerComponent
-          .addIdentifier()
-          .setUse(Identifier.IdentifierUse.USUAL)
-          .setValue(subContainerLabel)
-          .setSystem(fhirProperties.getSystems().getSpecimenContainer());
-
-      var containerType = addContainerType(input, mappedType);
-      specimenContainerComponent.setType(new CodeableConcept(containerType));
-      container.add(specimenContainerComponent);
+  private Specimen.SpecimenContainerComponent containerComponent(
+      PathoSpecimen input, SpecimenContainers.Container subContainer) {
+    final Specimen.SpecimenContainerComponent specimenContainerComponent =
+        new Specimen.SpecimenContainerComponent();
+    specimenContainerComponent
+        .addIdentifier()
+        .setUse(Identifier.IdentifierUse.USUAL)
+        .setValue(subContainer.label())
+        .setSystem(fhirProperties.getSystems().getSpecimenContainer());
+
+    var containerType = addContainerType(input, subContainer.type());
+    specimenContainerComponent.setType(new CodeableConcept(containerType));
+    return specimenContainerComponent;
+  }
+
+  /**
+   * One child specimen per block and slide, identified by {@code <probe id>-<container label>}
+   * since labels are only unique within a specimen. Slides reference the specimen of their block,
+   * blocks the root specimen.
+   *
+   * @param root mapped root specimen, subject, request, type and collection are copied
+   */
+  protected List<Specimen> mapChildren(Specimen root, PathoSpecimen input) {
+    final String specimenSystem = fhirProperties.getSystems().getSpecimenId();
+    final SpecimenContainers containers = input.getContainers();
+    final List<Specimen> children = new ArrayList<>();
+    for (SpecimenContainers.Container subContainer : subContainers(input)) {
+      final Specimen child = new Specimen();
+      setMeta(child);
+      child.addIdentifier(
+          new Identifier()
+              .setValue(childId(input, subContainer.label()))
+              .setSystem(specimenSystem));
+
+      final SpecimenContainers.Container parent = containers.parent(subContainer);
+      final String parentId =
+          parent == null || parent.index() == containers.rootIndex()
+              ? input.getProbeID()
+              : childId(input, parent.label());
+      child.addParent(
+          IdentifierAndReferenceUtil.getReferenceTo("Specimen", parentId, specimenSystem));
+
+      child.setSubject(root.getSubject().copy());
+      root.getRequest().forEach(request -> child.addRequest(request.copy()));
+      child.setType(root.getType().copy());
+      child.setStatus(Specimen.SpecimenStatus.AVAILABLE);
+      child.setCollection(root.getCollection().copy());
+      child.addContainer(containerComponent(input, subContainer));
+      children.add(child);
     }
-    specimen.setContainer(container);
+    return children;
+  }
+
+  private static String childId(PathoSpecimen input, String label) {
+    return input.getProbeID() + "-" + label;
   }
 
   /**
    * @param specimen fhir resource to be modified
+   * @param mappings tables of this record, see {@link CsvMappings#active()}
    */
-  protected void mapSpecimenType(Specimen specimen, PathoSpecimen input) {
+  protected void mapSpecimenType(
+      Specimen specimen, PathoSpecimen input, CsvMappings.Active mappings) {
     final CodeableConcept specimenTypeCoding = new CodeableConcept();
 
-    if (csvMappings.specimenTypes().containsKey(input.getProbeName())) {
-      var type = csvMappings.specimenTypes().get(input.getProbeName());
+    var type = mappings.lookupSpecimenType(input.getProbeName());
+    if (type != null) {
       specimenTypeCoding.addCoding(type.asFhirCoding());
       specimen.setType(specimenTypeCoding);
     } else {
@@ -326,6 +374,24 @@ public class SpecimenMapper extends ToFhirMapperSpecimen {
             .setSource(ToFhirMapperSpecimen.META_SOURCE));
   }
 
+  /**
+   * Maps the specimen as hierarchy: the root specimen without containers followed by the child
+   * specimens of {@link #mapChildren}.
+   *
+   * @return empty if the input cannot be mapped
+   */
+  public List<Bundle.BundleEntryComponent> applyHierarchy(PathoInputBase value) {
+    final Specimen root = map(value, false);
+    if (root == null) return List.of();
+
+    final List<Bundle.BundleEntryComponent> entries = new ArrayList<>();
+    entries.add(buildBundleComponent(root, root.getIdentifierFirstRep()));
+    for (Specimen child : mapChildren(root, (PathoSpecimen) value)) {
+      entries.add(buildBundleComponent(child, child.getIdentifierFirstRep()));
+    }
+    return entries;
+  }
+
   @Override
   @Nullable public Bundle.BundleEntryComponent apply(PathoInputBase value) {
     var mapped = map(value);
@@ -346,8 +412,7 @@ public class SpecimenMapper extends ToFhirMapperSpecimen {
         new Bundle.BundleEntryRequestComponent()
             .setMethod(Bundle.HTTPVerb.PUT)
             .setUrl(
-                String.format(
-                    "%s?identifier=%s|%s",
+                IdentifierAndReferenceUtil.getConditionalUrl(
                     mapped.fhirType(),
                     identifierFirstRep.getSystem(),
                     identifierFirstRep.getValue())));
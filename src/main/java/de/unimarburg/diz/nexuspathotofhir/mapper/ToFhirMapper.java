@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Objects;
 import org.apache.kafka.streams.kstream.ValueMapper;
 import org.hl7.fhir.r4.model.*;
 import org.slf4j.Logger;
@@ -35,61 +36,71 @@ public abstract class ToFhirMapper
     this.csvMappings = csvMappings;
   }
 
-  public abstract Resource map(PathoInputBase input);
+  /**
+   * @throws IllegalArgumentException if the input is not a {@link PathoReport}
+   */
+  public Resource map(PathoInputBase input) {
+    return map(contextOf(input));
+  }
+
+  /** map with values derived once per record, see {@link ReportMappingContext} */
+  public abstract Resource map(ReportMappingContext context);
+
+  protected ReportMappingContext contextOf(PathoInputBase input) {
+    if (!(input instanceof PathoReport report))
+      throw new IllegalArgumentException("input must be a PathoReport");
+    return ReportMappingContext.of(report, fhirProperties, csvMappings.active());
+  }
+
+  /** tables of the record, all lookups of one record read the same snapshot */
+  protected CsvMappings.Active mappingsOf(ReportMappingContext context) {
+    return context.mappings() != null ? context.mappings() : csvMappings.active();
+  }
 
   // PathoFinding Grouper
-  public Observation mapBaseGrouper(PathoReport input) {
-    if (input == null) return null;
+  public Observation mapBaseGrouper(ReportMappingContext context) {
+    if (context == null) return null;
+    final PathoReport input = context.report();
     final Observation observationGrouper = new Observation();
     // Encounter
-    observationGrouper.setEncounter(
-        IdentifierAndReferenceUtil.getReferenceTo(
-            "Encounter", input.getFallnummer(), fhirProperties.getSystems().getEncounterId()));
+    observationGrouper.setEncounter(context.encounterReference());
 
     // Patient
-    observationGrouper.setSubject(
-        IdentifierAndReferenceUtil.getReferenceTo(
-            "Patient", input.getPatientennummer(), fhirProperties.getSystems().getPatientId()));
+    observationGrouper.setSubject(context.patientReference());
 
     // ServiceRequestIdentifier
     ArrayList<Reference> basedOnRef = new ArrayList<>();
-    basedOnRef.add(
-        IdentifierAndReferenceUtil.getReferenceTo(
-            "ServiceRequest",
-            input.getAuftragsnummer(),
-            fhirProperties.getSystems().getServiceRequestId()));
+    basedOnRef.add(context.serviceRequestReference());
     observationGrouper.setBasedOn(basedOnRef);
 
     // EffectiveDate
     if (input.getAuftragsnummer() != null) {
-      Date probeEntnahmeDatum = new Date(input.getProbeEntnahmedatum());
+      Date probeEntnahmeDatum = requireProbeEntnahmedatum(context);
       observationGrouper.setEffective(new DateTimeType().setValue(probeEntnahmeDatum));
     } else {
       throw new IllegalArgumentException("probeEntnahmedatum is null");
     }
 
     // Status
-    DecideStatusOfBefund.setFindingStatus(observationGrouper, input.getDocType());
+    DecideStatusOfBefund.setFindingStatus(observationGrouper, context.docType());
     // Specimen
 
     return observationGrouper;
   }
 
   // PathoFinding
-  public Observation mapBasePathoFinding(PathoReport input) {
-    if (input == null) return null;
-    if (csvMappings.specimenTypes() == null || csvMappings.specimenTypes().isEmpty())
+  public Observation mapBasePathoFinding(ReportMappingContext context) {
+    if (context == null) return null;
+    final PathoReport input = context.report();
+    final CsvMappings.Active mappings = mappingsOf(context);
+    if (mappings.snapshot().specimenTypes().isEmpty())
       // throw new RuntimeException("specimentTypes mapping is missing");
       log.error("specimentTypes mapping is missing");
     final Observation observationFinding = new Observation();
     // Encounter
-    observationFinding.setEncounter(
-        IdentifierAndReferenceUtil.getReferenceTo(
-            "Encounter", input.getFallnummer(), fhirProperties.getSystems().getEncounterId()));
+    observationFinding.setEncounter(context.encounterReference());
     // Subject/Patient
-    observationFinding.setSubject(
-        IdentifierAndReferenceUtil.getReferenceTo(
-            "Patient", input.getPatientennummer(), fhirProperties.getSystems().getPatientId()));
+    observationFinding.setSubject(context.patientReference());
     // Metadata: Profile and Source
     observationFinding.setMeta(
         new Meta()
@@ -99,28 +110,32 @@ public abstract class ToFhirMapper
                         "https://www.medizininformatik-initiative.de/fhir/ext/modul-patho/StructureDefinition/mii-pr-patho-finding")))
             .setSource(META_SOURCE));
     // EffectiveDate
-    Date probeEinnahmeDatum = new Date(input.getProbeEntnahmedatum());
+    Date probeEinnahmeDatum = requireProbeEntnahmedatum(context);
     observationFinding.setEffective(new DateTimeType().setValue(probeEinnahmeDatum));
 
     // ServiceRequestIdentifier
     ArrayList<Reference> basedOnRef = new ArrayList<>();
-    basedOnRef.add(
-        IdentifierAndReferenceUtil.getReferenceTo(
-            "ServiceRequest",
-            input.getAuftragsnummer(),
-            fhirProperties.getSystems().getServiceRequestId()));
+    basedOnRef.add(context.serviceRequestReference());
     observationFinding.setBasedOn(basedOnRef);
 
     //
-    mapProbeNameToCode(observationFinding, input);
+    mapProbeNameToCode(observationFinding, input, mappings);
 
     // status
-    DecideStatusOfBefund.setFindingStatus(observationFinding, input.getDocType());
+    DecideStatusOfBefund.setFindingStatus(observationFinding, context.docType());
 
     return observationFinding;
   }
 
-  protected void mapProbeNameToCode(Observation observation, PathoReport input) {
+  /**
+   * @throws NullPointerException if the report has no specimen collection date
+   */
+  protected static Date requireProbeEntnahmedatum(ReportMappingContext context) {
+    return Objects.requireNonNull(context.probeEntnahmedatum(), "probeEntnahmedatum is null");
+  }
+
+  protected void mapProbeNameToCode(
+      Observation observation, PathoReport input, CsvMappings.Active mappings) {
     if (StringUtils.hasText(input.getProbeName())) {
       log.debug("ProbeName is present");
       // Split the String by ','
@@ -130,7 +145,7 @@ public abstract class ToFhirMapper
         String[] arrayProbeName =
             Arrays.stream(input.getProbeName().split(",")).map(String::trim).toArray(String[]::new);
         for (String probeName : arrayProbeName) {
-          var code = csvMappings.specimenTypes().get(probeName);
+          var code = mappings.lookupSpecimenType(probeName);
           if (code != null) {
             coding.add(code.asFhirCoding());
           } else {
@@ -140,7 +155,7 @@ public abstract class ToFhirMapper
         observation.setCode(new CodeableConcept().setCoding(coding));
       } else {
         log.debug("Contains single ProbeID");
-        var code = csvMappings.specimenTypes().get(input.getProbeName());
+        var code = mappings.lookupSpecimenType(input.getProbeName());
         if (code != null) {
           observation.setCode(new CodeableConcept().addCoding(code.asFhirCoding()));
         } else {
@@ -152,7 +167,11 @@ public abstract class ToFhirMapper
     }
   }
 
-  public abstract Bundle.BundleEntryComponent apply(PathoInputBase input);
+  public Bundle.BundleEntryComponent apply(PathoInputBase input) {
+    return apply(contextOf(input));
+  }
+
+  public abstract Bundle.BundleEntryComponent apply(ReportMappingContext context);
 
   protected Bundle.BundleEntryRequestComponent buildPutRequest(
       Resource resource, String identifierSystem) {
@@ -161,8 +180,7 @@ public abstract class ToFhirMapper
     return request
         .setMethod(Bundle.HTTPVerb.PUT)
         .setUrl(
-            String.format(
-                "%s?identifier=%s|%s",
+            IdentifierAndReferenceUtil.getConditionalUrl(
                 resource.getResourceType().name(), identifierSystem, resource.getId()));
   }
 }
@@ -3,6 +3,7 @@ package de.unimarburg.diz.nexuspathotofhir.mapper;
 
 import de.unimarburg.diz.nexuspathotofhir.configuration.FhirProperties;
 import de.unimarburg.diz.nexuspathotofhir.model.PathoInputBase;
+import de.unimarburg.diz.nexuspathotofhir.util.IdentifierAndReferenceUtil;
 import org.apache.kafka.streams.kstream.ValueMapper;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Resource;
@@ -36,8 +37,7 @@ public abstract class ToFhirMapperSpecimen
     return request
         .setMethod(Bundle.HTTPVerb.PUT)
         .setUrl(
-            String.format(
-                "%s?identifier=%s|%s",
+            IdentifierAndReferenceUtil.getConditionalUrl(
                 resource.getResourceType().name(), identifierSystem, resource.getId()));
   }
 }
@@ -0,0 +1,22 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** report waiting for newer versions, keeps the original record key and timestamp */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BufferedReport {
+
+  private String recordKey;
+
+  private long recordTimestamp;
+
+  /** wall clock time when this version has been buffered */
+  private long bufferedAt;
+
+  private PathoReport report;
+}
@@ -1,40 +1,49 @@
 /* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2023 */
 package de.unimarburg.diz.nexuspathotofhir.model;
 
-import lombok.Data;
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.Value;
 import org.hl7.fhir.r4.model.Coding;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.util.StringUtils;
 
-@Data
+/**
+ * Immutable mapping line. The SNOMED coding is built and checked once, {@link #asFhirCoding()}
+ * only copies the template since codings are added to (mutable) resources.
+ */
+@Value
 public class MappingEntry {
-  private String snomedCode;
-  private String snomedDisplayName;
-  private String localCode;
-  private String localShortName;
+  String snomedCode;
+  String snomedDisplayName;
+  String localCode;
+  String localShortName;
+
+  /** false if the mapping file lacks the code of this line */
+  boolean mapped;
+
+  @Getter(AccessLevel.NONE)
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  Coding coding;
 
   public static final String SNOMED_SYSTEM = "http://snomed.info/sct";
   public static final String SNOMED_VERSION =
       "http://snomed.info/sct/900000000000207008/version/20250101";
 
-  private static final Logger log = LoggerFactory.getLogger(MappingEntry.class);
-
   public MappingEntry(
       String localCode, String localShortName, String snomedCode, String snomedDisplayName) {
     this.snomedCode = snomedCode;
     this.snomedDisplayName = snomedDisplayName;
     this.localCode = localCode;
     this.localShortName = localShortName;
+    this.mapped = StringUtils.hasText(snomedCode);
+    this.coding = new Coding(SNOMED_SYSTEM, snomedCode, snomedDisplayName);
+    this.coding.setVersion(SNOMED_VERSION);
   }
 
   public Coding asFhirCoding() {
-    var coding = new Coding(SNOMED_SYSTEM, this.snomedCode, this.snomedDisplayName);
-    coding.setVersion(SNOMED_VERSION);
-
-    if (!StringUtils.hasText(this.snomedCode)) {
-      log.warn("unknown code '{}' - please update your mapping file.", localCode);
-    }
-    return coding;
+    return coding.copy();
   }
 }
@@ -0,0 +1,24 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * specimen and report of one order, either may be missing. The keys are the record keys at the
+ * input topics, so each part can be dead-lettered as it was read.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PathoOrder {
+
+  private PathoSpecimen specimen;
+
+  private String specimenKey;
+
+  private PathoReport report;
+
+  private String reportKey;
+}
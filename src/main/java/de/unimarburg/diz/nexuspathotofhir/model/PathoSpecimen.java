@@ -6,7 +6,12 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import org.springframework.util.StringUtils;
 
 @Data
@@ -49,10 +54,7 @@ public class PathoSpecimen implements PathoInputBase {
 
   @JsonIgnore
   public int getRootIndex() {
-    if (containerTyps == null) return -1;
-    final String[] split = containerTyps.split(",");
-    var rootIndex = Arrays.stream(split).toList().indexOf("3");
-    return rootIndex;
+    return getContainers().rootIndex();
   }
 
   /**
@@ -149,6 +151,44 @@ public class PathoSpecimen implements PathoInputBase {
    */
   @JsonIgnore private Map<String, Integer> subContainerTypes;
 
+  /** parsed on first access, reset by the setters of the container lists */
+  @JsonIgnore
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private transient SpecimenContainers containers;
+
+  /** container tree, parsed once per record */
+  @JsonIgnore
+  public SpecimenContainers getContainers() {
+    if (containers == null)
+      containers =
+          SpecimenContainers.parse(
+              containerLabels, containerGUIDs, containerTyps, containerParents);
+    return containers;
+  }
+
+  public void setContainerGUIDs(String containerGUIDs) {
+    this.containerGUIDs = containerGUIDs;
+    this.containers = null;
+  }
+
+  public void setContainerLabels(String containerLabels) {
+    this.containerLabels = containerLabels;
+    this.containers = null;
+  }
+
+  public void setContainerTyps(String containerTyps) {
+    this.containerTyps = containerTyps;
+    this.containers = null;
+  }
+
+  public void setContainerParents(String containerParents) {
+    this.containerParents = containerParents;
+    this.containers = null;
+  }
+
   @Override
   @JsonIgnore
   public boolean isBaseValid() {
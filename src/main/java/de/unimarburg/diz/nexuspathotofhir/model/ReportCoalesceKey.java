@@ -0,0 +1,20 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.model;
+
+/** attribute which identifies versions of the same report */
+public enum ReportCoalesceKey {
+  /** report id, shared by the versions of one report */
+  BEFUND_ID,
+  /**
+   * pathology service number, shared by main report, corrections and additions. Additions are
+   * separate reports, with this key only the newest report of an order is mapped.
+   */
+  AUFTRAGSNUMMER;
+
+  public String of(PathoReport report) {
+    return switch (this) {
+      case BEFUND_ID -> report.getBefundID();
+      case AUFTRAGSNUMMER -> report.getAuftragsnummer();
+    };
+  }
+}
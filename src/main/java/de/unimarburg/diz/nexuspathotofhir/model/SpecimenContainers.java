@@ -0,0 +1,151 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Container tree of a {@link PathoSpecimen}, parsed in one pass from its comma-joined container
+ * lists. Containers keep the order of the lists, each one links to its parent by the parent guid.
+ */
+public final class SpecimenContainers {
+
+  private static final String NO_PARENT = "NA";
+
+  /**
+   * @param index position in the container lists
+   * @param typeCode nexus container type, null if missing or not a number
+   * @param parentIndex index of the parent container, -1 for root or unknown parents
+   */
+  public record Container(
+      int index, String label, String guid, Integer typeCode, String parentGuid, int parentIndex) {
+
+    /**
+     * @throws IllegalArgumentException if the type is missing or not supported
+     */
+    public SpecimenContainerTyp type() {
+      if (typeCode == null)
+        throw new IllegalArgumentException(
+            "container '%s' has no numeric container typ.".formatted(label));
+      return SpecimenContainerTyp.valueOf(typeCode);
+    }
+  }
+
+  private final List<Container> containers;
+  private final int rootIndex;
+  private final int labelCount;
+  private final int guidCount;
+  private final int typeCount;
+  private final int parentCount;
+
+  private SpecimenContainers(
+      List<Container> containers,
+      int rootIndex,
+      int labelCount,
+      int guidCount,
+      int typeCount,
+      int parentCount) {
+    this.containers = containers;
+    this.rootIndex = rootIndex;
+    this.labelCount = labelCount;
+    this.guidCount = guidCount;
+    this.typeCount = typeCount;
+    this.parentCount = parentCount;
+  }
+
+  /** lists are comma-separated and trimmed per value, missing lists count as empty */
+  public static SpecimenContainers parse(
+      String labels, String guids, String types, String parents) {
+    final String[] labelValues = split(labels);
+    final String[] guidValues = split(guids);
+    final String[] typeValues = split(types);
+    final String[] parentValues = split(parents);
+
+    final Map<String, Integer> indexByGuid = new HashMap<>(guidValues.length * 2);
+    for (int i = 0; i < guidValues.length; i++) indexByGuid.putIfAbsent(guidValues[i], i);
+
+    int rootIndex = -1;
+    final Integer[] typeCodes = new Integer[typeValues.length];
+    for (int i = 0; i < typeValues.length; i++) {
+      typeCodes[i] = typeCode(typeValues[i]);
+      if (rootIndex < 0 && "3".equals(typeValues[i])) rootIndex = i;
+    }
+
+    int parentCount = 0;
+    for (String parent : parentValues) {
+      if (!NO_PARENT.equals(parent)) parentCount++;
+    }
+
+    final List<Container> containers = new ArrayList<>(labelValues.length);
+    for (int i = 0; i < labelValues.length; i++) {
+      final String parentGuid = value(parentValues, i);
+      final Integer parentIndex =
+          parentGuid == null || NO_PARENT.equals(parentGuid) ? null : indexByGuid.get(parentGuid);
+      containers.add(
+          new Container(
+              i,
+              labelValues[i],
+              value(guidValues, i),
+              i < typeCodes.length ? typeCodes[i] : null,
+              NO_PARENT.equals(parentGuid) ? null : parentGuid,
+              parentIndex != null ? parentIndex : -1));
+    }
+
+    return new SpecimenContainers(
+        Collections.unmodifiableList(containers),
+        rootIndex,
+        labelValues.length,
+        guidValues.length,
+        typeValues.length,
+        parentCount);
+  }
+
+  private static String[] split(String value) {
+    if (value == null) return new String[0];
+    final String[] values = value.split(",");
+    for (int i = 0; i < values.length; i++) values[i] = values[i].trim();
+    return values;
+  }
+
+  private static String value(String[] values, int index) {
+    return index < values.length ? values[index] : null;
+  }
+
+  private static Integer typeCode(String value) {
+    try {
+      return Integer.valueOf(value);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /** all containers in list order, root included */
+  public List<Container> containers() {
+    return containers;
+  }
+
+  /**
+   * @return index of the first root container (type 3), -1 if there is none
+   */
+  public int rootIndex() {
+    return rootIndex;
+  }
+
+  /**
+   * @return parent container, null for the root or if the parent guid is unknown
+   */
+  public Container parent(Container container) {
+    return container.parentIndex() >= 0 ? containers.get(container.parentIndex()) : null;
+  }
+
+  /**
+   * @return true if labels, guids and types have the same length and the parents list has one
+   *     entry ('NA') less, for the root
+   */
+  public boolean isConsistent() {
+    return labelCount == guidCount && labelCount == typeCount && labelCount == parentCount + 1;
+  }
+}
@@ -0,0 +1,259 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.Longs;
+import de.unimarburg.diz.nexuspathotofhir.configuration.CsvMappings;
+import de.unimarburg.diz.nexuspathotofhir.configuration.MappingSnapshot;
+import de.unimarburg.diz.nexuspathotofhir.configuration.ProcessorProperties;
+import de.unimarburg.diz.nexuspathotofhir.model.MappingEntry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Named;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessor;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorContext;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorSupplier;
+import org.apache.kafka.streams.processor.api.FixedKeyRecord;
+import org.apache.kafka.streams.state.StoreBuilder;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.TimestampedKeyValueStore;
+import org.apache.kafka.streams.state.ValueAndTimestamp;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Skips records whose content did not change since the last record mapped for the same key. The
+ * fingerprint covers the serialized input record and the mapping tables, so a changed mapping
+ * maps every record once more.
+ *
+ * <p>{@link #apply} drops unchanged records and passes the fingerprint of the others as header,
+ * {@link #remember} stores it once the record is mapped. Records which fail to map are not
+ * remembered and may be replayed. Fingerprints are kept per binding in a persistent state store
+ * and purged after {@code processor.deduplication.retention} without update.
+ *
+ * <p>The fingerprint is written to the store before the output is produced. Only with {@code
+ * processing.guarantee: exactly_once_v2} both are committed atomically; under {@code
+ * at_least_once} a crash in between replays the record, finds the fingerprint and drops it, so
+ * the bundle is lost. Disabled by default for that reason.
+ */
+@Component
+public class BundleDeduplication {
+
+  public static final String METRIC_SUPPRESSED = "patho.bundles.suppressed";
+  public static final String HEADER_FINGERPRINT = "x-input-fingerprint";
+
+  private final boolean enabled;
+  private final Duration retention;
+  private final MeterRegistry meterRegistry;
+  private final CsvMappings csvMappings;
+
+  /** fingerprint of the mapping tables, computed once per snapshot */
+  private volatile MappingFingerprint mappingFingerprint;
+
+  private record MappingFingerprint(MappingSnapshot snapshot, long fingerprint) {}
+
+  @Autowired
+  public BundleDeduplication(
+      ProcessorProperties processorProperties,
+      MeterRegistry meterRegistry,
+      CsvMappings csvMappings) {
+    var config = processorProperties.getDeduplication();
+    this.enabled = config.isEnabled();
+    this.retention = config.getRetention();
+    this.meterRegistry = meterRegistry;
+    this.csvMappings = csvMappings;
+
+    if (enabled) StoreRetention.validate(retention, "processor.deduplication.retention");
+  }
+
+  /**
+   * @param records input records right before mapping
+   * @param serde serde of the input records, its bytes are fingerprinted
+   * @param binding function name, used for store name and metric tag
+   * @return records which differ from the last mapped record of their key
+   */
+  public <V> KStream<String, V> apply(KStream<String, V> records, Serde<V> serde, String binding) {
+    if (!enabled) return records;
+
+    final Counter suppressed =
+        Counter.builder(METRIC_SUPPRESSED)
+            .description("records not mapped since identical to the previously mapped record")
+            .tag("binding", binding)
+            .register(meterRegistry);
+    final var supplier =
+        new CheckSupplier<>(
+            storeName(binding),
+            serde.serializer(),
+            this::mappingFingerprint,
+            retention,
+            suppressed);
+    return records.processValues(supplier, Named.as(binding + "-deduplicate"));
+  }
+
+  /**
+   * @param mapped mapped records of {@link #apply}
+   * @param binding function name, used for store name
+   * @return the same records, their fingerprint stored and its header removed
+   */
+  public <V> KStream<String, V> remember(KStream<String, V> mapped, String binding) {
+    if (!enabled) return mapped;
+
+    return mapped.processValues(
+        () -> new RememberProcessor<V>(storeName(binding)),
+        Named.as(binding + "-deduplicate-remember"),
+        storeName(binding));
+  }
+
+  public static String storeName(String binding) {
+    return binding + "-input-fingerprints";
+  }
+
+  long mappingFingerprint() {
+    final MappingSnapshot snapshot = csvMappings.snapshot();
+    MappingFingerprint current = mappingFingerprint;
+    if (current == null || current.snapshot() != snapshot) {
+      // content based, versions are counted per instance and restart
+      final Hasher hasher = Hashing.farmHashFingerprint64().newHasher();
+      putTable(hasher, snapshot.specimenTypes());
+      putTable(hasher, snapshot.specimenExtractionMethods());
+      putTable(hasher, snapshot.specimenContainerTypes());
+      putTable(hasher, snapshot.specimenBodysites());
+      current = new MappingFingerprint(snapshot, hasher.hash().asLong());
+      mappingFingerprint = current;
+    }
+    return current.fingerprint();
+  }
+
+  /** entries in table order, strings length prefixed so adjacent values cannot shift */
+  private static void putTable(Hasher hasher, Map<String, MappingEntry> table) {
+    hasher.putInt(table.size());
+    table.forEach(
+        (key, entry) -> {
+          putString(hasher, key);
+          putString(hasher, entry.getLocalCode());
+          putString(hasher, entry.getLocalShortName());
+          putString(hasher, entry.getSnomedCode());
+          putString(hasher, entry.getSnomedDisplayName());
+          hasher.putBoolean(entry.isMapped());
+        });
+  }
+
+  private static void putString(Hasher hasher, String value) {
+    if (value == null) {
+      hasher.putInt(-1);
+      return;
+    }
+    hasher.putInt(value.length()).putString(value, StandardCharsets.UTF_8);
+  }
+
+  private record CheckSupplier<V>(
+      String storeName,
+      Serializer<V> serializer,
+      LongSupplier mappingFingerprint,
+      Duration retention,
+      Counter suppressed)
+      implements FixedKeyProcessorSupplier<String, V, V> {
+
+    @Override
+    public FixedKeyProcessor<String, V, V> get() {
+      return new CheckProcessor<>(this);
+    }
+
+    @Override
+    public Set<StoreBuilder<?>> stores() {
+      return Set.of(
+          Stores.timestampedKeyValueStoreBuilder(
+              Stores.persistentTimestampedKeyValueStore(storeName),
+              Serdes.String(),
+              Serdes.Long()));
+    }
+  }
+
+  private static class CheckProcessor<V> implements FixedKeyProcessor<String, V, V> {
+    private final CheckSupplier<V> config;
+    private FixedKeyProcessorContext<String, V> context;
+    private TimestampedKeyValueStore<String, Long> store;
+
+    private CheckProcessor(CheckSupplier<V> config) {
+      this.config = config;
+    }
+
+    @Override
+    public void init(FixedKeyProcessorContext<String, V> context) {
+      this.context = context;
+      this.store = context.getStateStore(config.storeName());
+      StoreRetention.schedule(context, store, config.retention());
+    }
+
+    @Override
+    public void process(FixedKeyRecord<String, V> record) {
+      final Headers headers = new RecordHeaders(record.headers().toArray());
+      headers.remove(HEADER_FINGERPRINT);
+      if (record.key() == null || record.value() == null) {
+        context.forward(record.withHeaders(headers));
+        return;
+      }
+
+      final long fingerprint =
+          Hashing.farmHashFingerprint64()
+              .newHasher()
+              .putLong(config.mappingFingerprint().getAsLong())
+              .putBytes(config.serializer().serialize(null, record.value()))
+              .hash()
+              .asLong();
+      final ValueAndTimestamp<Long> previous = store.get(record.key());
+      if (previous != null && previous.value() == fingerprint) {
+        config.suppressed().increment();
+        return;
+      }
+      headers.add(HEADER_FINGERPRINT, Longs.toByteArray(fingerprint));
+      context.forward(record.withHeaders(headers));
+    }
+  }
+
+  private static class RememberProcessor<V> implements FixedKeyProcessor<String, V, V> {
+    private final String storeName;
+    private FixedKeyProcessorContext<String, V> context;
+    private TimestampedKeyValueStore<String, Long> store;
+
+    private RememberProcessor(String storeName) {
+      this.storeName = storeName;
+    }
+
+    @Override
+    public void init(FixedKeyProcessorContext<String, V> context) {
+      this.context = context;
+      this.store = context.getStateStore(storeName);
+    }
+
+    @Override
+    public void process(FixedKeyRecord<String, V> record) {
+      final Header header = record.headers().lastHeader(HEADER_FINGERPRINT);
+      if (header == null || header.value() == null || header.value().length != Long.BYTES) {
+        context.forward(record);
+        return;
+      }
+
+      store.put(
+          record.key(),
+          ValueAndTimestamp.make(
+              Longs.fromByteArray(header.value()), context.currentSystemTimeMs()));
+      final Headers headers = new RecordHeaders(record.headers().toArray());
+      headers.remove(HEADER_FINGERPRINT);
+      context.forward(record.withHeaders(headers));
+    }
+  }
+}
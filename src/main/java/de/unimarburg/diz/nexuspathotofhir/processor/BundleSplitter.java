@@ -0,0 +1,231 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+import ca.uhn.fhir.util.FhirTerser;
+import de.unimarburg.diz.nexuspathotofhir.configuration.PathoFhirContext;
+import de.unimarburg.diz.nexuspathotofhir.configuration.ProcessorProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Named;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessor;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorContext;
+import org.apache.kafka.streams.processor.api.FixedKeyRecord;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.PrimitiveType;
+import org.hl7.fhir.r4.model.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Splits {@code BATCH} bundles whose estimated JSON size exceeds {@code
+ * processor.splitting.max-bytes} into several bundles of consecutive entries, so the producer does
+ * not fail on {@code max.request.size}. Parts keep the record key and carry the original bundle id,
+ * their index and the part count as headers. Bundles below the limit pass unchanged.
+ */
+@Component
+public class BundleSplitter {
+
+  public static final String METRIC_SPLIT = "patho.bundles.split";
+  public static final String METRIC_OVERSIZED_ENTRIES = "patho.bundles.oversized.entries";
+
+  public static final String HEADER_BUNDLE_ID = "x-bundle-id";
+  public static final String HEADER_PART = "x-bundle-part";
+  public static final String HEADER_PARTS = "x-bundle-parts";
+
+  /** lower bound of the max size, a bundle envelope without entries */
+  static final int BUNDLE_OVERHEAD = 256;
+
+  /** entry object with its resource and request objects */
+  static final int ENTRY_OVERHEAD = 64;
+
+  /** property name, quotes and separators of one value */
+  static final int ELEMENT_OVERHEAD = 32;
+
+  private static final FhirTerser TERSER = PathoFhirContext.getInstance().newTerser();
+
+  private static final Logger log = LoggerFactory.getLogger(BundleSplitter.class);
+
+  private final boolean enabled;
+  private final int maxBytes;
+  private final MeterRegistry meterRegistry;
+
+  @Autowired
+  public BundleSplitter(ProcessorProperties processorProperties, MeterRegistry meterRegistry) {
+    this.enabled = processorProperties.getSplitting().isEnabled();
+    this.maxBytes = processorProperties.getSplitting().getMaxBytes();
+    this.meterRegistry = meterRegistry;
+
+    if (enabled && maxBytes <= BUNDLE_OVERHEAD)
+      throw new IllegalArgumentException(
+          "'processor.splitting.max-bytes' must be greater than " + BUNDLE_OVERHEAD);
+  }
+
+  /**
+   * @param bundles bundles to emit
+   * @param binding function name, used for processor name and metric tags
+   * @return bundles, oversized ones replaced by their parts
+   */
+  public KStream<String, Bundle> apply(KStream<String, Bundle> bundles, String binding) {
+    if (!enabled) return bundles;
+
+    final Counter split =
+        Counter.builder(METRIC_SPLIT)
+            .description("bundles split since they exceeded the max size")
+            .tag("binding", binding)
+            .register(meterRegistry);
+    final Counter oversized =
+        Counter.builder(METRIC_OVERSIZED_ENTRIES)
+            .description("single bundle entries exceeding the max size")
+            .tag("binding", binding)
+            .register(meterRegistry);
+    return bundles.processValues(
+        () -> new SplittingProcessor(split, oversized), Named.as(binding + "-split"));
+  }
+
+  /**
+   * @return consecutive parts of at most {@code maxBytes} estimated JSON size, the bundle itself if
+   *     it fits or cannot be split
+   */
+  public List<Bundle> split(Bundle bundle) {
+    return split(bundle, () -> {});
+  }
+
+  /**
+   * Entries are estimated one by one while packing, nothing is encoded. A bundle which fits ends
+   * up as a single part and is returned unchanged.
+   */
+  private List<Bundle> split(Bundle bundle, Runnable onOversizedEntry) {
+    if (bundle.getType() != Bundle.BundleType.BATCH || bundle.getEntry().isEmpty())
+      return List.of(bundle);
+
+    final List<List<Bundle.BundleEntryComponent>> parts = new ArrayList<>();
+    List<Bundle.BundleEntryComponent> current = new ArrayList<>();
+    long currentSize = BUNDLE_OVERHEAD;
+    for (Bundle.BundleEntryComponent entry : bundle.getEntry()) {
+      final long entrySize = estimateSize(entry);
+      if (BUNDLE_OVERHEAD + entrySize > maxBytes) onOversizedEntry.run();
+
+      if (!current.isEmpty() && currentSize + entrySize > maxBytes) {
+        parts.add(current);
+        current = new ArrayList<>();
+        currentSize = BUNDLE_OVERHEAD;
+      }
+      current.add(entry);
+      currentSize += entrySize;
+    }
+    parts.add(current);
+    if (parts.size() == 1) return List.of(bundle);
+
+    final List<Bundle> result = new ArrayList<>(parts.size());
+    for (int i = 0; i < parts.size(); i++) {
+      var part = new Bundle().setType(Bundle.BundleType.BATCH).setMeta(bundle.getMeta().copy());
+      part.setId(bundle.getIdPart() + "-" + i);
+      part.setEntry(parts.get(i));
+      result.add(part);
+    }
+    return result;
+  }
+
+  /**
+   * Upper estimate of the JSON size of an entry from its primitive values: their UTF-8 length
+   * including escapes plus {@link #ELEMENT_OVERHEAD} for name and punctuation of each value.
+   */
+  static long estimateSize(Bundle.BundleEntryComponent entry) {
+    long size = ENTRY_OVERHEAD;
+    if (entry.hasRequest()) {
+      size += ELEMENT_OVERHEAD + encodedLength(entry.getRequest().getMethodElement().getCode());
+      size += ELEMENT_OVERHEAD + encodedLength(entry.getRequest().getUrl());
+    }
+    if (entry.hasFullUrl()) size += ELEMENT_OVERHEAD + encodedLength(entry.getFullUrl());
+    final Resource resource = entry.getResource();
+    if (resource == null) return size;
+
+    size += ELEMENT_OVERHEAD + resource.fhirType().length();
+    for (PrimitiveType<?> value :
+        TERSER.getAllPopulatedChildElementsOfType(resource, PrimitiveType.class))
+      size += ELEMENT_OVERHEAD + encodedLength(value.getValueAsString());
+    return size;
+  }
+
+  /** UTF-8 length of a JSON string value, escaped characters counted with their escape */
+  static long encodedLength(String value) {
+    if (value == null) return 0;
+    long length = 0;
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if (c < 0x20) length += 6;
+      else if (c == '"' || c == '\\') length += 2;
+      else if (c < 0x80) length += 1;
+      else if (c < 0x800) length += 2;
+      else if (Character.isSurrogate(c)) length += 2;
+      else length += 3;
+    }
+    return length;
+  }
+
+  private class SplittingProcessor implements FixedKeyProcessor<String, Bundle, Bundle> {
+    private final Counter split;
+    private final Counter oversized;
+    private FixedKeyProcessorContext<String, Bundle> context;
+
+    private SplittingProcessor(Counter split, Counter oversized) {
+      this.split = split;
+      this.oversized = oversized;
+    }
+
+    @Override
+    public void init(FixedKeyProcessorContext<String, Bundle> context) {
+      this.context = context;
+    }
+
+    @Override
+    public void process(FixedKeyRecord<String, Bundle> record) {
+      if (record.value() == null) {
+        context.forward(record);
+        return;
+      }
+
+      final List<Bundle> parts =
+          split(
+              record.value(),
+              () -> {
+                log.warn(
+                    "bundle '{}' of record '{}' contains an entry exceeding {} bytes",
+                    record.value().getIdPart(),
+                    record.key(),
+                    maxBytes);
+                oversized.increment();
+              });
+      if (parts.size() == 1) {
+        context.forward(record.withValue(parts.getFirst()));
+        return;
+      }
+
+      log.debug(
+          "splitting bundle '{}' of record '{}' into {} parts",
+          record.value().getIdPart(),
+          record.key(),
+          parts.size());
+      split.increment();
+      for (int i = 0; i < parts.size(); i++) {
+        final Headers headers = new RecordHeaders(record.headers().toArray());
+        headers.add(HEADER_BUNDLE_ID, bytes(record.value().getIdPart()));
+        headers.add(HEADER_PART, bytes(Integer.toString(i)));
+        headers.add(HEADER_PARTS, bytes(Integer.toString(parts.size())));
+        context.forward(record.withValue(parts.get(i)).withHeaders(headers));
+      }
+    }
+
+    private static byte[] bytes(String value) {
+      return value.getBytes(StandardCharsets.UTF_8);
+    }
+  }
+}
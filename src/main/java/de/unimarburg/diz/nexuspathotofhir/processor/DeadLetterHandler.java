@@ -0,0 +1,294 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+import de.unimarburg.diz.nexuspathotofhir.configuration.ProcessorProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.kstream.Branched;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Named;
+import org.apache.kafka.streams.kstream.Produced;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessor;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorContext;
+import org.apache.kafka.streams.processor.api.FixedKeyRecord;
+import org.hl7.fhir.r4.model.Bundle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the mapping of a binding and routes input records whose mapping throws to a dead-letter
+ * topic, so a single malformed record does not stop the stream. The failure is described by
+ * headers (see {@code HEADER_*}). If more than {@code processor.dead-letter.max-per-minute}
+ * records of one binding fail, a {@link DeadLetterRateExceededException} is thrown and handled by
+ * the uncaught exception handler, since the cause is most likely not the input. Headers added by
+ * the stages of this pipeline are not written to the dead-letter topic.
+ */
+@Component
+public class DeadLetterHandler {
+
+  public static final String METRIC_DEAD_LETTERED = "patho.records.dead-lettered";
+
+  public static final String HEADER_REASON = "x-dlq-reason";
+  public static final String HEADER_MESSAGE = "x-dlq-message";
+  public static final String HEADER_BINDING = "x-dlq-binding";
+
+  /** headers of this pipeline, dead-lettered records carry the input headers only */
+  static final Set<String> PIPELINE_HEADERS =
+      Set.of(
+          BundleDeduplication.HEADER_FINGERPRINT,
+          LatencyTracking.HEADER_PROCESSING_START,
+          LatencyTracking.HEADER_PROCESSING_START_NANOS,
+          LatencyTracking.HEADER_SOURCE_MODIFIED,
+          LatencyTracking.HEADER_EMITTED,
+          LatencyTracking.HEADER_QUEUE_LATENCY,
+          LatencyTracking.HEADER_PROCESSING_LATENCY,
+          LatencyTracking.HEADER_SOURCE_LATENCY,
+          HEADER_REASON,
+          HEADER_MESSAGE,
+          HEADER_BINDING);
+
+  private static final Logger log = LoggerFactory.getLogger(DeadLetterHandler.class);
+
+  private final ProcessorProperties.DeadLetter config;
+  private final MeterRegistry meterRegistry;
+
+  @Autowired
+  public DeadLetterHandler(ProcessorProperties processorProperties, MeterRegistry meterRegistry) {
+    this.config = processorProperties.getDeadLetter();
+    this.meterRegistry = meterRegistry;
+
+    if (config.isEnabled() && config.getMaxPerMinute() < 0)
+      throw new IllegalArgumentException(
+          "'processor.dead-letter.max-per-minute' must not be negative.");
+  }
+
+  /**
+   * @param input records to map
+   * @param mapping mapping of a single record
+   * @param inputSerde used to write failed records to the dead-letter topic
+   * @param binding function name, used for processor names and metric tags
+   * @return successfully mapped bundles
+   */
+  public <V> KStream<String, Bundle> apply(
+      KStream<String, V> input,
+      Function<V, Bundle> mapping,
+      Serde<V> inputSerde,
+      String binding) {
+    final String topic = config.topicOf(binding);
+    return apply(
+        input,
+        mapping,
+        binding,
+        failed ->
+            failed.to(
+                topic,
+                Produced.with(Serdes.String(), inputSerde).withName(binding + "-dlq-sink")));
+  }
+
+  /**
+   * Dead-letters the parts of a combined input record (e.g. specimen and report of an order)
+   * instead of the record itself, each to the topic of the binding which reads this part alone.
+   * Only parts whose own mapping fails are dead-lettered; all parts if each maps on its own. Parts
+   * keep the record key they were read with, so they can be replayed to their input topics.
+   *
+   * @param parts parts of failed records, null parts are skipped
+   */
+  public <V> KStream<String, Bundle> apply(
+      KStream<String, V> input,
+      Function<V, Bundle> mapping,
+      String binding,
+      List<Part<V, ?>> parts) {
+    return apply(
+        input,
+        mapping,
+        binding,
+        failed -> {
+          final KStream<String, Blamed<V>> blamed =
+              failed.mapValues(
+                  value -> new Blamed<>(value, failingParts(value, parts)),
+                  Named.as(binding + "-dlq-blame"));
+          parts.forEach(part -> part.sink(blamed, binding, config));
+        });
+  }
+
+  /** bindings of the parts which fail to map alone, of all present parts if none does */
+  private static <V> Set<String> failingParts(V value, List<Part<V, ?>> parts) {
+    final Set<String> present = new HashSet<>();
+    final Set<String> failing = new HashSet<>();
+    for (Part<V, ?> part : parts) {
+      if (part.extract().apply(value) == null) continue;
+      present.add(part.partBinding());
+      if (!part.mapsAlone(value)) failing.add(part.partBinding());
+    }
+    return failing.isEmpty() ? present : failing;
+  }
+
+  private <V> KStream<String, Bundle> apply(
+      KStream<String, V> input,
+      Function<V, Bundle> mapping,
+      String binding,
+      Consumer<KStream<String, V>> deadLetterSink) {
+    if (!config.isEnabled()) return input.mapValues(mapping::apply, Named.as(binding + "-map"));
+
+    final RateLimit rateLimit = new RateLimit(config.getMaxPerMinute());
+    final var branches =
+        input
+            .processValues(
+                () -> new MappingProcessor<>(mapping, binding, rateLimit),
+                Named.as(binding + "-map"))
+            .split(Named.as(binding + "-"))
+            .branch(
+                (k, v) -> v.failed(),
+                Branched.withConsumer(
+                    failed ->
+                        deadLetterSink.accept(
+                            failed.mapValues(Outcome::input, Named.as(binding + "-dlq-input"))),
+                    "dlq"))
+            .defaultBranch(
+                Branched.withFunction(
+                    mapped -> mapped.mapValues(Outcome::bundle, Named.as(binding + "-bundle")),
+                    "mapped"));
+    return branches.get(binding + "-mapped");
+  }
+
+  /**
+   * @param partBinding binding which reads this part alone, its dead-letter topic is used
+   * @param extract part of the combined record
+   * @param key record key the part was read with, the combined record key if null
+   * @param mapping mapping of the part alone, tells which part failed
+   * @param serde serde of the part
+   */
+  public record Part<V, P>(
+      String partBinding,
+      Function<V, P> extract,
+      Function<V, String> key,
+      Function<P, ?> mapping,
+      Serde<P> serde) {
+
+    private boolean mapsAlone(V value) {
+      try {
+        mapping.apply(extract.apply(value));
+        return true;
+      } catch (RuntimeException e) {
+        return false;
+      }
+    }
+
+    private void sink(
+        KStream<String, Blamed<V>> failed, String binding, ProcessorProperties.DeadLetter config) {
+      final String name = binding + "-dlq-" + partBinding;
+      failed
+          .filter((k, v) -> v.partBindings().contains(partBinding), Named.as(name + "-filter"))
+          .map(
+              (k, v) -> {
+                final String partKey = key.apply(v.input());
+                return KeyValue.pair(partKey != null ? partKey : k, extract.apply(v.input()));
+              },
+              Named.as(name))
+          .to(
+              config.topicOf(partBinding),
+              Produced.with(Serdes.String(), serde).withName(name + "-sink"));
+    }
+  }
+
+  Counter deadLetteredCounter(String binding, String reason) {
+    return Counter.builder(METRIC_DEAD_LETTERED)
+        .description("records which could not be mapped and were sent to the dead-letter topic")
+        .tag("binding", binding)
+        .tag("reason", reason)
+        .register(meterRegistry);
+  }
+
+  private record Outcome<V>(V input, Bundle bundle, boolean failed) {}
+
+  /** failed combined record and the bindings of its parts to dead-letter */
+  private record Blamed<V>(V input, Set<String> partBindings) {}
+
+  /** failures per fixed one minute window, shared by all stream tasks of a binding */
+  private static class RateLimit {
+    private static final long WINDOW = Duration.ofMinutes(1).toMillis();
+    private final int maxPerWindow;
+    private long windowStart;
+    private int count;
+
+    private RateLimit(int maxPerWindow) {
+      this.maxPerWindow = maxPerWindow;
+    }
+
+    synchronized boolean tryAcquire(long now) {
+      if (now - windowStart >= WINDOW) {
+        windowStart = now;
+        count = 0;
+      }
+      return ++count <= maxPerWindow;
+    }
+  }
+
+  private class MappingProcessor<V> implements FixedKeyProcessor<String, V, Outcome<V>> {
+    private final Function<V, Bundle> mapping;
+    private final String binding;
+    private final RateLimit rateLimit;
+    private FixedKeyProcessorContext<String, Outcome<V>> context;
+
+    private MappingProcessor(Function<V, Bundle> mapping, String binding, RateLimit rateLimit) {
+      this.mapping = mapping;
+      this.binding = binding;
+      this.rateLimit = rateLimit;
+    }
+
+    @Override
+    public void init(FixedKeyProcessorContext<String, Outcome<V>> context) {
+      this.context = context;
+    }
+
+    @Override
+    public void process(FixedKeyRecord<String, V> record) {
+      final Bundle bundle;
+      try {
+        bundle = mapping.apply(record.value());
+      } catch (RuntimeException e) {
+        if (!rateLimit.tryAcquire(context.currentSystemTimeMs()))
+          throw new DeadLetterRateExceededException(
+              String.format(
+                  "more than %d records of '%s' failed within a minute.",
+                  rateLimit.maxPerWindow, binding),
+              e);
+
+        final String reason = e.getClass().getSimpleName();
+        log.warn(
+            "mapping of record '{}' at '{}' failed, sending it to the dead-letter topic.",
+            record.key(),
+            binding,
+            e);
+        deadLetteredCounter(binding, reason).increment();
+
+        final Headers headers = new RecordHeaders(record.headers().toArray());
+        PIPELINE_HEADERS.forEach(headers::remove);
+        headers.add(HEADER_REASON, reason.getBytes(StandardCharsets.UTF_8));
+        headers.add(
+            HEADER_MESSAGE,
+            Objects.toString(e.getMessage(), "").getBytes(StandardCharsets.UTF_8));
+        headers.add(HEADER_BINDING, binding.getBytes(StandardCharsets.UTF_8));
+        context.forward(
+            record.withValue(new Outcome<>(record.value(), null, true)).withHeaders(headers));
+        return;
+      }
+      context.forward(record.withValue(new Outcome<>(record.value(), bundle, false)));
+    }
+  }
+}
@@ -0,0 +1,9 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+/** too many records failed within a minute, the failures are most likely not record specific */
+public class DeadLetterRateExceededException extends RuntimeException {
+  public DeadLetterRateExceededException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
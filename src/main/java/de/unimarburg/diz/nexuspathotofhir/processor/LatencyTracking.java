@@ -0,0 +1,186 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+import de.unimarburg.diz.nexuspathotofhir.configuration.ProcessorProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Named;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessor;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorContext;
+import org.apache.kafka.streams.processor.api.FixedKeyRecord;
+import org.hl7.fhir.r4.model.Bundle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tracks how stale records are at three points: record timestamp to processing start, processing
+ * start to emission and source modification ({@code letzteBearbeitungsdatum}) to emission. Values
+ * are published as histograms per binding and as headers (epoch or duration millis) of the
+ * emitted bundles, so downstream loaders can compute the full pipeline lag.
+ *
+ * <p>Processing starts after report coalescing, so its grace period counts as queue latency.
+ * Timestamps are read from the system clock per record, the processing duration from {@link
+ * System#nanoTime()}; the stream time cached per batch would make both ends equal.
+ */
+@Component
+public class LatencyTracking {
+
+  public static final String METRIC_QUEUE = "patho.latency.queue";
+  public static final String METRIC_PROCESSING = "patho.latency.processing";
+  public static final String METRIC_SOURCE = "patho.latency.source";
+
+  public static final String HEADER_PROCESSING_START = "x-processing-start";
+  public static final String HEADER_SOURCE_MODIFIED = "x-source-modified";
+  public static final String HEADER_EMITTED = "x-emitted-at";
+  public static final String HEADER_QUEUE_LATENCY = "x-latency-queue-ms";
+  public static final String HEADER_PROCESSING_LATENCY = "x-latency-processing-ms";
+  public static final String HEADER_SOURCE_LATENCY = "x-latency-source-ms";
+
+  /** {@link System#nanoTime()} at processing start, removed on emission */
+  static final String HEADER_PROCESSING_START_NANOS = "x-processing-start-nanos";
+
+  private final boolean enabled;
+  private final MeterRegistry meterRegistry;
+
+  @Autowired
+  public LatencyTracking(ProcessorProperties processorProperties, MeterRegistry meterRegistry) {
+    this.enabled = processorProperties.getLatency().isEnabled();
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * @param input records right before mapping
+   * @param sourceModified source modification time in epoch millis, may return null
+   * @param binding function name, used for processor name and metric tags
+   * @return records with processing start headers
+   */
+  public <V> KStream<String, V> start(
+      KStream<String, V> input, Function<V, Long> sourceModified, String binding) {
+    if (!enabled) return input;
+
+    final Timer queue = timer(METRIC_QUEUE, "record timestamp to processing start", binding);
+    return input.processValues(
+        () -> new StartProcessor<>(sourceModified, queue), Named.as(binding + "-latency-start"));
+  }
+
+  /**
+   * @param bundles bundles to emit
+   * @param binding function name, used for processor name and metric tags
+   * @return bundles with emission and latency headers
+   */
+  public KStream<String, Bundle> emit(KStream<String, Bundle> bundles, String binding) {
+    if (!enabled) return bundles;
+
+    final Timer processing = timer(METRIC_PROCESSING, "processing start to emission", binding);
+    final Timer source = timer(METRIC_SOURCE, "source modification to emission", binding);
+    return bundles.processValues(
+        () -> new EmitProcessor(processing, source), Named.as(binding + "-latency-emit"));
+  }
+
+  private Timer timer(String name, String description, String binding) {
+    return Timer.builder(name)
+        .description(description)
+        .tag("binding", binding)
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+  }
+
+  /** numeric header value, null if missing or malformed */
+  public static Long longValue(Headers headers, String key) {
+    final Header header = headers.lastHeader(key);
+    if (header == null || header.value() == null) return null;
+    try {
+      return Long.parseLong(new String(header.value(), StandardCharsets.UTF_8));
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static void put(Headers headers, String key, long value) {
+    headers.remove(key);
+    headers.add(key, Long.toString(value).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static final class StartProcessor<V> implements FixedKeyProcessor<String, V, V> {
+    private final Function<V, Long> sourceModified;
+    private final Timer queue;
+    private FixedKeyProcessorContext<String, V> context;
+
+    private StartProcessor(Function<V, Long> sourceModified, Timer queue) {
+      this.sourceModified = sourceModified;
+      this.queue = queue;
+    }
+
+    @Override
+    public void init(FixedKeyProcessorContext<String, V> context) {
+      this.context = context;
+    }
+
+    @Override
+    public void process(FixedKeyRecord<String, V> record) {
+      final long startNanos = System.nanoTime();
+      final long now = System.currentTimeMillis();
+      final long queueLatency = Math.max(0L, now - record.timestamp());
+      queue.record(queueLatency, TimeUnit.MILLISECONDS);
+
+      final Headers headers = new RecordHeaders(record.headers().toArray());
+      put(headers, HEADER_PROCESSING_START, now);
+      put(headers, HEADER_PROCESSING_START_NANOS, startNanos);
+      put(headers, HEADER_QUEUE_LATENCY, queueLatency);
+      headers.remove(HEADER_SOURCE_MODIFIED);
+      final Long modified = record.value() != null ? sourceModified.apply(record.value()) : null;
+      if (modified != null) put(headers, HEADER_SOURCE_MODIFIED, modified);
+      context.forward(record.withHeaders(headers));
+    }
+  }
+
+  private static final class EmitProcessor implements FixedKeyProcessor<String, Bundle, Bundle> {
+    private final Timer processing;
+    private final Timer source;
+    private FixedKeyProcessorContext<String, Bundle> context;
+
+    private EmitProcessor(Timer processing, Timer source) {
+      this.processing = processing;
+      this.source = source;
+    }
+
+    @Override
+    public void init(FixedKeyProcessorContext<String, Bundle> context) {
+      this.context = context;
+    }
+
+    @Override
+    public void process(FixedKeyRecord<String, Bundle> record) {
+      final long nanos = System.nanoTime();
+      final long now = System.currentTimeMillis();
+      final Headers headers = new RecordHeaders(record.headers().toArray());
+      put(headers, HEADER_EMITTED, now);
+
+      // parts of a split bundle are counted once
+      final Long part = longValue(headers, BundleSplitter.HEADER_PART);
+      final boolean firstPart = part == null || part == 0L;
+
+      final Long startNanos = longValue(headers, HEADER_PROCESSING_START_NANOS);
+      headers.remove(HEADER_PROCESSING_START_NANOS);
+      if (startNanos != null) {
+        final long latency = Math.max(0L, nanos - startNanos);
+        put(headers, HEADER_PROCESSING_LATENCY, TimeUnit.NANOSECONDS.toMillis(latency));
+        if (firstPart) processing.record(latency, TimeUnit.NANOSECONDS);
+      }
+      final Long modified = longValue(headers, HEADER_SOURCE_MODIFIED);
+      if (modified != null) {
+        final long latency = Math.max(0L, now - modified);
+        put(headers, HEADER_SOURCE_LATENCY, latency);
+        if (firstPart) source.record(latency, TimeUnit.MILLISECONDS);
+      }
+      context.forward(record.withHeaders(headers));
+    }
+  }
+}
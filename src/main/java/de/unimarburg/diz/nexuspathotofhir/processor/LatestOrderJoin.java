@@ -0,0 +1,302 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+import de.unimarburg.diz.nexuspathotofhir.configuration.ProcessorProperties;
+import de.unimarburg.diz.nexuspathotofhir.model.PathoOrder;
+import de.unimarburg.diz.nexuspathotofhir.model.PathoReport;
+import de.unimarburg.diz.nexuspathotofhir.model.PathoSpecimen;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Named;
+import org.apache.kafka.streams.kstream.Repartitioned;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.ProcessorSupplier;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.StoreBuilder;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.TimestampedKeyValueStore;
+import org.apache.kafka.streams.state.ValueAndTimestamp;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.support.serializer.JsonSerde;
+import org.springframework.stereotype.Component;
+
+/**
+ * Joins the latest specimen of each order with the latest version of each of its reports (by
+ * {@code befundID}, e.g. main report and addendum). A new report version emits one order with the
+ * latest specimen, a new specimen version one order per known report. Report versions older than
+ * the joined version of the same report are discarded, other reports of the order are not. Orders
+ * carry the input record keys of their specimen and report.
+ *
+ * <p>A side without partner waits {@code processor.order-join.window} and is emitted alone
+ * afterwards. The latest versions are kept for late partners until they were not updated for
+ * {@code processor.order-join.retention}.
+ */
+@Component
+public class LatestOrderJoin {
+
+  public static final String METRIC_STALE = "patho.orders.stale";
+
+  private final Duration window;
+  private final Duration retention;
+  private final MeterRegistry meterRegistry;
+
+  @Autowired
+  public LatestOrderJoin(ProcessorProperties processorProperties, MeterRegistry meterRegistry) {
+    var config = processorProperties.getOrderJoin();
+    this.window = config.getWindow();
+    this.retention = config.getRetention();
+    this.meterRegistry = meterRegistry;
+
+    StoreRetention.validate(window, "processor.order-join.window");
+    StoreRetention.validate(retention, "processor.order-join.retention");
+  }
+
+  /**
+   * @param specimens specimens with order number, keyed as read from their input topic
+   * @param reports reports with order number, keyed as read from their input topic
+   * @param binding function name, used for topic, store and processor names as well as metric tag
+   * @return orders keyed by order number
+   */
+  public KStream<String, PathoOrder> apply(
+      KStream<String, PathoSpecimen> specimens,
+      KStream<String, PathoReport> reports,
+      String binding) {
+    final Serde<PathoOrder> orderSerde =
+        new JsonSerde<>(PathoOrder.class).noTypeInfo().ignoreTypeHeaders();
+    final Serde<OrderState> stateSerde =
+        new JsonSerde<>(OrderState.class).noTypeInfo().ignoreTypeHeaders();
+    final Serde<Pending> pendingSerde =
+        new JsonSerde<>(Pending.class).noTypeInfo().ignoreTypeHeaders();
+    final Counter stale =
+        Counter.builder(METRIC_STALE)
+            .description("report versions not joined since a newer version has been joined")
+            .tag("binding", binding)
+            .register(meterRegistry);
+
+    return specimens
+        .map(
+            (key, specimen) ->
+                KeyValue.pair(
+                    specimen.getAuftragsnummer(), new PathoOrder(specimen, key, null, null)),
+            Named.as(binding + "-specimen-side"))
+        .merge(
+            reports.map(
+                (key, report) ->
+                    KeyValue.pair(
+                        report.getAuftragsnummer(), new PathoOrder(null, null, report, key)),
+                Named.as(binding + "-report-side")),
+            Named.as(binding + "-sides"))
+        .repartition(Repartitioned.with(Serdes.String(), orderSerde).withName(binding + "-join"))
+        .process(
+            new JoinSupplier(binding, stateSerde, pendingSerde, window, retention, stale),
+            Named.as(binding + "-join-latest"));
+  }
+
+  public static String latestStoreName(String binding) {
+    return binding + "-join-latest";
+  }
+
+  public static String pendingStoreName(String binding) {
+    return binding + "-join-pending";
+  }
+
+  /** report version, null if unknown */
+  private static Long version(PathoReport report) {
+    return report != null ? report.getLetzteBearbeitungsdatum() : null;
+  }
+
+  /** reports of an order are told apart by their id */
+  private static String reportId(PathoReport report) {
+    return Objects.toString(report.getBefundID(), "");
+  }
+
+  /**
+   * latest specimen and latest version of each report of an order, with their input record keys
+   *
+   * @param reports by {@code befundID}
+   * @param reportKeys by {@code befundID}
+   */
+  record OrderState(
+      PathoSpecimen specimen,
+      String specimenKey,
+      Map<String, PathoReport> reports,
+      Map<String, String> reportKeys) {
+    OrderState {
+      reports = reports != null ? new HashMap<>(reports) : new HashMap<>();
+      reportKeys = reportKeys != null ? new HashMap<>(reportKeys) : new HashMap<>();
+    }
+
+    /** order of the specimen and a report, both may be null */
+    PathoOrder order(String reportId) {
+      final PathoReport report = reportId != null ? reports.get(reportId) : null;
+      return new PathoOrder(
+          specimen, specimenKey, report, report != null ? reportKeys.get(reportId) : null);
+    }
+  }
+
+  /**
+   * sides of an order waiting for their partner
+   *
+   * @param recordTimestamp timestamp of the first waiting record
+   * @param reportIds waiting reports
+   */
+  record Pending(long recordTimestamp, boolean specimen, Set<String> reportIds) {
+    Pending {
+      reportIds = reportIds != null ? new HashSet<>(reportIds) : new HashSet<>();
+    }
+  }
+
+  private record JoinSupplier(
+      String binding,
+      Serde<OrderState> stateSerde,
+      Serde<Pending> pendingSerde,
+      Duration window,
+      Duration retention,
+      Counter stale)
+      implements ProcessorSupplier<String, PathoOrder, String, PathoOrder> {
+
+    @Override
+    public Processor<String, PathoOrder, String, PathoOrder> get() {
+      return new JoinProcessor(this);
+    }
+
+    @Override
+    public Set<StoreBuilder<?>> stores() {
+      return Set.of(
+          Stores.timestampedKeyValueStoreBuilder(
+              Stores.persistentTimestampedKeyValueStore(latestStoreName(binding)),
+              Serdes.String(),
+              stateSerde),
+          // timestamp is the wall clock time the wait started
+          Stores.timestampedKeyValueStoreBuilder(
+              Stores.persistentTimestampedKeyValueStore(pendingStoreName(binding)),
+              Serdes.String(),
+              pendingSerde));
+    }
+  }
+
+  private static class JoinProcessor implements Processor<String, PathoOrder, String, PathoOrder> {
+    private final JoinSupplier config;
+    private ProcessorContext<String, PathoOrder> context;
+    private TimestampedKeyValueStore<String, OrderState> latest;
+    private TimestampedKeyValueStore<String, Pending> pending;
+
+    private JoinProcessor(JoinSupplier config) {
+      this.config = config;
+    }
+
+    @Override
+    public void init(ProcessorContext<String, PathoOrder> context) {
+      this.context = context;
+      this.latest = context.getStateStore(latestStoreName(config.binding()));
+      this.pending = context.getStateStore(pendingStoreName(config.binding()));
+
+      var interval =
+          config.window().compareTo(Duration.ofSeconds(1)) < 0
+              ? config.window()
+              : Duration.ofSeconds(1);
+      context.schedule(interval, PunctuationType.WALL_CLOCK_TIME, this::emitUnmatched);
+      StoreRetention.schedule(context, latest, config.retention());
+    }
+
+    @Override
+    public void process(Record<String, PathoOrder> record) {
+      final PathoOrder side = record.value();
+      if (record.key() == null || side == null) return;
+
+      final ValueAndTimestamp<OrderState> previous = latest.get(record.key());
+      final OrderState state =
+          previous != null ? previous.value() : new OrderState(null, null, null, null);
+      final long now = context.currentSystemTimeMs();
+
+      if (side.getSpecimen() != null) {
+        // specimens carry no modification time, the latest record wins
+        final OrderState next =
+            new OrderState(
+                side.getSpecimen(), side.getSpecimenKey(), state.reports(), state.reportKeys());
+        latest.put(record.key(), ValueAndTimestamp.make(next, now));
+        if (next.reports().isEmpty()) {
+          await(record, now, true, null);
+          return;
+        }
+        pending.delete(record.key());
+        for (String reportId : next.reports().keySet())
+          context.forward(record.withValue(next.order(reportId)));
+        return;
+      }
+
+      final PathoReport report = side.getReport();
+      if (report == null) return;
+      final String reportId = reportId(report);
+      final Long joined = version(state.reports().get(reportId));
+      final Long incoming = version(report);
+      if (joined != null && incoming != null && incoming < joined) {
+        config.stale().increment();
+        return;
+      }
+      state.reports().put(reportId, report);
+      state.reportKeys().put(reportId, side.getReportKey());
+      latest.put(record.key(), ValueAndTimestamp.make(state, now));
+      if (state.specimen() != null) {
+        context.forward(record.withValue(state.order(reportId)));
+      } else {
+        await(record, now, false, reportId);
+      }
+    }
+
+    /** adds a side to the pending entry of the order, the window starts with the first side */
+    private void await(Record<String, PathoOrder> record, long now, boolean specimen, String id) {
+      final ValueAndTimestamp<Pending> waiting = pending.get(record.key());
+      final Pending next =
+          waiting != null
+              ? new Pending(
+                  waiting.value().recordTimestamp(),
+                  waiting.value().specimen() || specimen,
+                  waiting.value().reportIds())
+              : new Pending(record.timestamp(), specimen, Set.of());
+      if (id != null) next.reportIds().add(id);
+      pending.put(
+          record.key(), ValueAndTimestamp.make(next, waiting != null ? waiting.timestamp() : now));
+    }
+
+    private void emitUnmatched(long now) {
+      final long windowMillis = config.window().toMillis();
+      final List<KeyValue<String, ValueAndTimestamp<Pending>>> expired = new ArrayList<>();
+      try (var iterator = pending.all()) {
+        while (iterator.hasNext()) {
+          var entry = iterator.next();
+          if (entry.value.timestamp() + windowMillis <= now) expired.add(entry);
+        }
+      }
+
+      for (var entry : expired) {
+        pending.delete(entry.key);
+        final ValueAndTimestamp<OrderState> state = latest.get(entry.key);
+        if (state == null) continue;
+        final Pending waiting = entry.value.value();
+        final OrderState order = state.value();
+        final long timestamp = waiting.recordTimestamp();
+        if (waiting.specimen() && order.reports().isEmpty())
+          context.forward(new Record<>(entry.key, order.order(null), timestamp));
+        for (String reportId : waiting.reportIds()) {
+          if (order.reports().containsKey(reportId))
+            context.forward(new Record<>(entry.key, order.order(reportId), timestamp));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+import ca.uhn.fhir.util.FhirTerser;
+import com.google.common.hash.Hashing;
+import de.unimarburg.diz.nexuspathotofhir.configuration.PathoFhirContext;
+import de.unimarburg.diz.nexuspathotofhir.configuration.ProcessorProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Named;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.Resource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Addresses resources by logical id instead of conditional url: entry requests {@code
+ * <type>?identifier=<system>|<value>} become {@code <type>/<id>} and references to the same
+ * resource types are rewritten alike, so the server does not search on every write. The id is the
+ * farmHash fingerprint of {@code <system>|<value>} and therefore stable across records and
+ * instances.
+ */
+@Component
+public class LogicalIdAddressing {
+
+  public static final String METRIC_REWRITTEN = "patho.logical.ids";
+
+  private static final String CONDITIONAL = "?identifier=";
+
+  private final boolean enabled;
+  private final Set<String> resourceTypes;
+  private final MeterRegistry meterRegistry;
+  private final FhirTerser terser = PathoFhirContext.getInstance().newTerser();
+
+  @Autowired
+  public LogicalIdAddressing(ProcessorProperties processorProperties, MeterRegistry meterRegistry) {
+    var config = processorProperties.getLogicalIds();
+    this.enabled = config.isEnabled();
+    this.resourceTypes = Set.copyOf(config.getResourceTypes());
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * @param bundles bundles with conditional requests and references
+   * @param binding function name, used for processor name and metric tag
+   * @return the same bundles, addressed by logical id
+   */
+  public KStream<String, Bundle> apply(KStream<String, Bundle> bundles, String binding) {
+    if (!enabled) return bundles;
+
+    final Counter entries = counter(binding, "entry");
+    final Counter references = counter(binding, "reference");
+    return bundles.mapValues(
+        bundle -> rewrite(bundle, entries, references), Named.as(binding + "-logical-ids"));
+  }
+
+  private Counter counter(String binding, String element) {
+    return Counter.builder(METRIC_REWRITTEN)
+        .description("conditional urls replaced by logical ids")
+        .tag("binding", binding)
+        .tag("element", element)
+        .register(meterRegistry);
+  }
+
+  /**
+   * @return logical id of the resource with the given identifier, 16 hex digits
+   */
+  public static String logicalId(String system, String value) {
+    return idOf(system + "|" + value);
+  }
+
+  private static String idOf(String identifierToken) {
+    return Hashing.farmHashFingerprint64()
+        .hashString(identifierToken, StandardCharsets.UTF_8)
+        .toString();
+  }
+
+  /** rewrites requests and references of the bundle in place */
+  public Bundle rewrite(Bundle bundle) {
+    return rewrite(bundle, null, null);
+  }
+
+  private Bundle rewrite(Bundle bundle, Counter entries, Counter references) {
+    if (bundle == null) return null;
+    for (Bundle.BundleEntryComponent entry : bundle.getEntry()) {
+      if (entry.hasRequest()) {
+        final String literal = literalOf(entry.getRequest().getUrl());
+        if (literal != null) {
+          entry.getRequest().setUrl(literal);
+          if (entry.hasResource()) entry.getResource().setId(literal);
+          if (entries != null) entries.increment();
+        }
+      }
+      if (entry.hasResource()) rewriteReferences(entry.getResource(), references);
+    }
+    return bundle;
+  }
+
+  private void rewriteReferences(Resource resource, Counter references) {
+    for (Reference reference :
+        terser.getAllPopulatedChildElementsOfType(resource, Reference.class)) {
+      final String literal = literalOf(reference.getReference());
+      if (literal != null) {
+        reference.setReference(literal);
+        if (references != null) references.increment();
+      }
+    }
+  }
+
+  /**
+   * @return {@code <type>/<id>}, null if the url is not a conditional url of a configured type
+   */
+  String literalOf(String url) {
+    if (url == null) return null;
+    final int conditional = url.indexOf(CONDITIONAL);
+    if (conditional <= 0) return null;
+    final String type = url.substring(0, conditional);
+    if (!resourceTypes.contains(type)) return null;
+
+    final String token = url.substring(conditional + CONDITIONAL.length());
+    if (token.indexOf('|') < 0) return null;
+    return type + "/" + idOf(token);
+  }
+}
@@ -0,0 +1,10 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+/** mapper did not deliver a result, e.g. since it timed out or waiting has been interrupted */
+public class MapperExecutionException extends RuntimeException {
+
+  public MapperExecutionException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
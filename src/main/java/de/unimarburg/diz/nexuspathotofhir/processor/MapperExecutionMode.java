@@ -0,0 +1,16 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+public enum MapperExecutionMode {
+  /** bounded platform thread pool, sized by 'processor.mapper-executor.pool-size' */
+  POOL,
+  /** one virtual thread per mapper call */
+  VIRTUAL,
+  /**
+   * one virtual thread per mapper call, the mappers of a report succeed or fail together: the first
+   * failure cancels the remaining mappers and all failures are reported by one exception
+   */
+  STRUCTURED,
+  /** previous behaviour on the shared ForkJoin common pool, without timeout */
+  PARALLEL_STREAM
+}
@@ -0,0 +1,361 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+import de.unimarburg.diz.nexuspathotofhir.configuration.ProcessorProperties;
+import de.unimarburg.diz.nexuspathotofhir.mapper.ReportMappingContext;
+import de.unimarburg.diz.nexuspathotofhir.mapper.ToFhirMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hl7.fhir.r4.model.Bundle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs all {@link ToFhirMapper} of one report on a dedicated executor instead of the shared
+ * ForkJoin common pool. Results are returned in mapper order, independent of completion order.
+ *
+ * <p>{@link MapperExecutionMode#PARALLEL_STREAM} is kept to compare latency and cpu cost per
+ * record ({@value #METRIC_RECORD_DURATION}) against the other modes.
+ */
+@Component
+public class MapperFanOutExecutor {
+
+  public static final String METRIC_MAPPER_DURATION = "patho.mapper.duration";
+  public static final String METRIC_QUEUE_DEPTH = "patho.mapper.queue.depth";
+  public static final String METRIC_ACTIVE = "patho.mapper.active";
+  public static final String METRIC_RECORD_DURATION = "patho.mapper.record.duration";
+
+  private static final Logger log = LoggerFactory.getLogger(MapperFanOutExecutor.class);
+
+  private final MapperExecutionMode mode;
+  private final Duration timeout;
+  private final ExecutorService executor;
+  private final MeterRegistry meterRegistry;
+  private final Timer recordTimer;
+
+  /** tasks submitted but not yet started */
+  private final AtomicInteger queued = new AtomicInteger();
+
+  private final AtomicInteger active = new AtomicInteger();
+  private final Map<PipelineMetrics.MapperKey, Timer> mapperTimers = new ConcurrentHashMap<>();
+
+  @Autowired
+  public MapperFanOutExecutor(
+      ProcessorProperties processorProperties, MeterRegistry meterRegistry) {
+    var config = processorProperties.getMapperExecutor();
+    if (config.getTimeout() == null
+        || config.getTimeout().isNegative()
+        || config.getTimeout().isZero())
+      throw new IllegalArgumentException("'processor.mapper-executor.timeout' must be positive.");
+
+    this.mode = config.getMode();
+    this.timeout = config.getTimeout();
+    this.meterRegistry = meterRegistry;
+    this.executor = createExecutor(config);
+
+    this.recordTimer =
+        Timer.builder(METRIC_RECORD_DURATION)
+            .description("duration of all mappers of one report")
+            .tag("mode", mode.name())
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    Gauge.builder(METRIC_QUEUE_DEPTH, queued, AtomicInteger::get)
+        .description("mapper tasks waiting for a thread")
+        .tag("mode", mode.name())
+        .register(meterRegistry);
+    Gauge.builder(METRIC_ACTIVE, active, AtomicInteger::get)
+        .description("mapper tasks currently running")
+        .tag("mode", mode.name())
+        .register(meterRegistry);
+
+    log.info(
+        "mapper executor mode '{}' (pool size {}, queue capacity {}, timeout {})",
+        mode,
+        config.getPoolSize(),
+        config.getQueueCapacity(),
+        timeout);
+  }
+
+  private static ExecutorService createExecutor(ProcessorProperties.MapperExecutor config) {
+    return switch (config.getMode()) {
+      case POOL -> {
+        if (config.getPoolSize() < 1)
+          throw new IllegalArgumentException(
+              "'processor.mapper-executor.pool-size' must be at least 1.");
+        if (config.getQueueCapacity() < 1)
+          throw new IllegalArgumentException(
+              "'processor.mapper-executor.queue-capacity' must be at least 1.");
+        yield new ThreadPoolExecutor(
+            config.getPoolSize(),
+            config.getPoolSize(),
+            60L,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(config.getQueueCapacity()),
+            Thread.ofPlatform().name("patho-mapper-", 0).daemon(true).factory(),
+            blockingSubmit(config.getTimeout()));
+      }
+      case VIRTUAL, STRUCTURED ->
+          Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("patho-mapper-", 0).factory());
+      // legacy ForkJoin common pool, kept as baseline for comparison
+      case PARALLEL_STREAM -> null;
+    };
+  }
+
+  /**
+   * Back pressure of a full queue: the stream thread waits for a free slot instead of running the
+   * mapper itself, which would bypass timeout and queue depth. If no slot frees up within the
+   * mapper timeout the submit is rejected and the report fails.
+   */
+  private static RejectedExecutionHandler blockingSubmit(Duration timeout) {
+    return (task, pool) -> {
+      if (pool.isShutdown()) throw new RejectedExecutionException("mapper executor is shut down");
+      try {
+        if (!pool.getQueue().offer(task, timeout.toNanos(), TimeUnit.NANOSECONDS))
+          throw new RejectedExecutionException("mapper queue stayed full for " + timeout);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RejectedExecutionException("interrupted while waiting for the mapper queue", e);
+      }
+    };
+  }
+
+  /**
+   * Apply all mappers to the report.
+   *
+   * @param mappers mappers in the order their entries should appear
+   * @param context input report with its values derived once for all mappers
+   * @param binding function name, used as metric tag
+   * @return non-null entries in mapper order
+   * @throws MapperExecutionException if a mapper exceeds the timeout, mapper failures keep their
+   *     type in all modes
+   */
+  public List<Bundle.BundleEntryComponent> map(
+      List<ToFhirMapper> mappers, ReportMappingContext context, String binding) {
+    final long start = System.nanoTime();
+    try {
+      return switch (mode) {
+        case POOL, VIRTUAL -> mapInOrder(mappers, context, binding);
+        case STRUCTURED -> mapStructured(mappers, context, binding);
+        case PARALLEL_STREAM ->
+            mappers.parallelStream()
+                .map(mapper -> timedApply(mapper, context, binding))
+                .filter(Objects::nonNull)
+                .toList();
+      };
+    } finally {
+      recordTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private List<Bundle.BundleEntryComponent> mapInOrder(
+      List<ToFhirMapper> mappers, ReportMappingContext context, String binding) {
+    // time blocked on a full queue counts towards the timeout
+    final long deadline = System.nanoTime() + timeout.toNanos();
+    final List<MapperTask> tasks = new ArrayList<>(mappers.size());
+    final List<Future<Bundle.BundleEntryComponent>> futures = new ArrayList<>(mappers.size());
+    for (var mapper : mappers) {
+      var task = new MapperTask(mapper, context, binding);
+      queued.incrementAndGet();
+      try {
+        futures.add(executor.submit(task));
+      } catch (RejectedExecutionException e) {
+        task.dequeue();
+        cancel(tasks, futures);
+        throw new MapperExecutionException(
+            String.format(
+                "mapper '%s' could not be queued at report '%s'",
+                mapper.getClass().getSimpleName(), context.report().getUUID()),
+            e);
+      }
+      tasks.add(task);
+    }
+
+    final List<Bundle.BundleEntryComponent> entries = new ArrayList<>(mappers.size());
+    for (int i = 0; i < futures.size(); i++) {
+      final String mapperName = mappers.get(i).getClass().getSimpleName();
+      try {
+        var entry =
+            futures.get(i).get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        if (entry != null) entries.add(entry);
+      } catch (TimeoutException e) {
+        cancel(tasks, futures);
+        throw new MapperExecutionException(
+            String.format(
+                "mapper '%s' exceeded timeout of %s at report '%s'",
+                mapperName, timeout, context.report().getUUID()),
+            e);
+      } catch (ExecutionException e) {
+        cancel(tasks, futures);
+        // keep original exception type of mapper failures
+        if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+        throw new MapperExecutionException(
+            String.format(
+                "mapper '%s' failed at report '%s'", mapperName, context.report().getUUID()),
+            e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        cancel(tasks, futures);
+        throw new MapperExecutionException(
+            String.format("interrupted while waiting for mapper '%s'", mapperName), e);
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Mappers of one report form a scope: results are awaited in completion order, the first
+   * failure cancels all siblings and is rethrown with the other failures of the scope suppressed.
+   *
+   * @implNote {@code StructuredTaskScope} is a preview API in Java 21, therefore the shutdown on
+   *     failure policy is implemented with a completion service on virtual threads.
+   */
+  private List<Bundle.BundleEntryComponent> mapStructured(
+      List<ToFhirMapper> mappers, ReportMappingContext context, String binding) {
+    final CompletionService<Bundle.BundleEntryComponent> scope =
+        new ExecutorCompletionService<>(executor);
+    final List<MapperTask> tasks = new ArrayList<>(mappers.size());
+    final List<Future<Bundle.BundleEntryComponent>> futures = new ArrayList<>(mappers.size());
+    for (var mapper : mappers) {
+      var task = new MapperTask(mapper, context, binding);
+      queued.incrementAndGet();
+      tasks.add(task);
+      futures.add(scope.submit(task));
+    }
+
+    final long deadline = System.nanoTime() + timeout.toNanos();
+    try {
+      for (int pending = futures.size(); pending > 0; pending--) {
+        var done = scope.poll(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        if (done == null) {
+          cancel(tasks, futures);
+          throw new MapperExecutionException(
+              String.format(
+                  "mappers %s exceeded timeout of %s at report '%s'",
+                  unfinished(mappers, futures), timeout, context.report().getUUID()),
+              null);
+        }
+        if (failureOf(done) != null) {
+          cancel(tasks, futures);
+          throw firstFailure(done, mappers, futures, context);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      cancel(tasks, futures);
+      throw new MapperExecutionException(
+          String.format("interrupted while mapping report '%s'", context.report().getUUID()), e);
+    }
+
+    return futures.stream().map(Future::resultNow).filter(Objects::nonNull).toList();
+  }
+
+  private static Throwable failureOf(Future<Bundle.BundleEntryComponent> future) {
+    return future.state() == Future.State.FAILED ? future.exceptionNow() : null;
+  }
+
+  /**
+   * @return failure of the first failed mapper, keeping its type like the other modes, failures of
+   *     siblings completed meanwhile are attached as suppressed
+   */
+  private static RuntimeException firstFailure(
+      Future<Bundle.BundleEntryComponent> first,
+      List<ToFhirMapper> mappers,
+      List<Future<Bundle.BundleEntryComponent>> futures,
+      ReportMappingContext context) {
+    final Throwable failure = failureOf(first);
+    final RuntimeException result =
+        failure instanceof RuntimeException runtimeException
+            ? runtimeException
+            : new MapperExecutionException(
+                String.format(
+                    "mapper '%s' failed at report '%s'",
+                    mappers.get(futures.indexOf(first)).getClass().getSimpleName(),
+                    context.report().getUUID()),
+                failure);
+    for (var future : futures) {
+      var sibling = failureOf(future);
+      if (future != first && sibling != null && sibling != failure) result.addSuppressed(sibling);
+    }
+    return result;
+  }
+
+  private static List<String> unfinished(
+      List<ToFhirMapper> mappers, List<Future<Bundle.BundleEntryComponent>> futures) {
+    final List<String> result = new ArrayList<>();
+    for (int i = 0; i < futures.size(); i++) {
+      if (!futures.get(i).isDone()) result.add(mappers.get(i).getClass().getSimpleName());
+    }
+    return result;
+  }
+
+  private Bundle.BundleEntryComponent timedApply(
+      ToFhirMapper mapper, ReportMappingContext context, String binding) {
+    active.incrementAndGet();
+    final long start = System.nanoTime();
+    try {
+      return mapper.apply(context);
+    } finally {
+      mapperTimer(mapper, binding).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      active.decrementAndGet();
+    }
+  }
+
+  private final class MapperTask implements Callable<Bundle.BundleEntryComponent> {
+    private final ToFhirMapper mapper;
+    private final ReportMappingContext context;
+    private final String binding;
+    private final AtomicBoolean dequeued = new AtomicBoolean();
+
+    private MapperTask(ToFhirMapper mapper, ReportMappingContext context, String binding) {
+      this.mapper = mapper;
+      this.context = context;
+      this.binding = binding;
+    }
+
+    @Override
+    public Bundle.BundleEntryComponent call() {
+      dequeue();
+      return timedApply(mapper, context, binding);
+    }
+
+    /** tasks cancelled before they started never run, so they leave the queue here */
+    private void dequeue() {
+      if (dequeued.compareAndSet(false, true)) queued.decrementAndGet();
+    }
+  }
+
+  private Timer mapperTimer(ToFhirMapper mapper, String binding) {
+    return mapperTimers.computeIfAbsent(
+        new PipelineMetrics.MapperKey(binding, mapper.getClass()),
+        key -> PipelineMetrics.mapperTimer(meterRegistry, key.binding(), key.mapper()));
+  }
+
+  private static void cancel(
+      List<MapperTask> tasks, List<Future<Bundle.BundleEntryComponent>> futures) {
+    for (int i = 0; i < futures.size(); i++) {
+      futures.get(i).cancel(true);
+      tasks.get(i).dequeue();
+    }
+  }
+
+  public MapperExecutionMode getMode() {
+    return mode;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (executor != null) executor.shutdown();
+  }
+}
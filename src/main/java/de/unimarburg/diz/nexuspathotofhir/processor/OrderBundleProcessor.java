@@ -0,0 +1,138 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+import com.google.common.hash.Hashing;
+import de.unimarburg.diz.nexuspathotofhir.model.PathoInputBase;
+import de.unimarburg.diz.nexuspathotofhir.model.PathoOrder;
+import de.unimarburg.diz.nexuspathotofhir.model.PathoReport;
+import de.unimarburg.diz.nexuspathotofhir.model.PathoSpecimen;
+import de.unimarburg.diz.nexuspathotofhir.serde.PathoReportSerde;
+import de.unimarburg.diz.nexuspathotofhir.serde.PathoSpecimenSerde;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.BiFunction;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Named;
+import org.hl7.fhir.r4.model.Bundle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.support.serializer.JsonSerde;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+/**
+ * Alternative topology which joins the latest specimen and report of the same order ({@link
+ * PathoInputBase#getAuftragsnummer()}) and emits one bundle with {@code Specimen}, {@code
+ * ServiceRequest}, {@code DiagnosticReport} and all observations, so the FHIR server resolves
+ * references within one request.
+ *
+ * <p>Activate it by replacing 'processPathoSpecimen;processPathoReport' with 'processPathoOrder' at
+ * 'spring.cloud.function.definition'. Specimens or reports without partner are emitted alone once
+ * the join window has been closed, see {@link LatestOrderJoin}.
+ */
+@Service
+public class OrderBundleProcessor extends BaseProcessor {
+
+  static final String BINDING = "processPathoOrder";
+
+  private final PathologyReportProcessor reportProcessor;
+  private final SpecimenProcessor specimenProcessor;
+  private final BundleDeduplication deduplication;
+  private final DeadLetterHandler deadLetters;
+  private final BundleSplitter splitter;
+  private final PipelineMetrics metrics;
+  private final LatencyTracking latency;
+  private final LogicalIdAddressing logicalIds;
+  private final LatestOrderJoin orderJoin;
+
+  @Autowired
+  public OrderBundleProcessor(
+      PathologyReportProcessor reportProcessor,
+      SpecimenProcessor specimenProcessor,
+      BundleDeduplication deduplication,
+      DeadLetterHandler deadLetters,
+      BundleSplitter splitter,
+      PipelineMetrics metrics,
+      LatencyTracking latency,
+      LogicalIdAddressing logicalIds,
+      LatestOrderJoin orderJoin) {
+    this.reportProcessor = reportProcessor;
+    this.specimenProcessor = specimenProcessor;
+    this.deduplication = deduplication;
+    this.deadLetters = deadLetters;
+    this.splitter = splitter;
+    this.metrics = metrics;
+    this.latency = latency;
+    this.logicalIds = logicalIds;
+    this.orderJoin = orderJoin;
+  }
+
+  public Bundle processOrder(PathoOrder order) {
+    return processOrder(order.getSpecimen(), order.getReport());
+  }
+
+  /**
+   * @param specimen specimen of the order, may be null
+   * @param report report of the order, may be null
+   * @return combined bundle, specimen entry first
+   */
+  public Bundle processOrder(PathoSpecimen specimen, PathoReport report) {
+    if (report == null) return specimenProcessor.processSpecimen(specimen, BINDING);
+
+    final Bundle bundle = reportProcessor.processReport(report, BINDING);
+    if (specimen != null) {
+      var specimenEntry = specimenProcessor.mapSpecimen(specimen, BINDING);
+      if (specimenEntry != null) bundle.getEntry().addFirst(specimenEntry);
+      bundle.setId(
+          Hashing.farmHashFingerprint64()
+              .hashString(specimen.getUUID() + "|" + report.getUUID(), StandardCharsets.UTF_8)
+              .toString());
+    }
+    return bundle;
+  }
+
+  private static Long sourceModified(PathoOrder order) {
+    return order.getReport() != null ? order.getReport().getLetzteBearbeitungsdatum() : null;
+  }
+
+  private static boolean hasOrderNumber(PathoInputBase input) {
+    return input != null && StringUtils.hasText(input.getAuftragsnummer());
+  }
+
+  @Bean
+  public BiFunction<KStream<String, PathoSpecimen>, KStream<String, PathoReport>, KStream<String, Bundle>>
+      processPathoOrder() {
+    final String binding = BINDING;
+    return (specimens, reports) -> {
+      var orders =
+          orderJoin.apply(
+              specimens.filter((k, v) -> hasOrderNumber(v), Named.as(binding + "-specimen-filter")),
+              reports.filter((k, v) -> hasOrderNumber(v), Named.as(binding + "-report-filter")),
+              binding);
+
+      var bundles =
+          deadLetters.apply(
+              deduplication.apply(
+                  latency.start(orders, OrderBundleProcessor::sourceModified, binding),
+                  new JsonSerde<>(PathoOrder.class),
+                  binding),
+              metrics.assembly(binding, (PathoOrder order) -> processOrder(order)),
+              binding,
+              List.<DeadLetterHandler.Part<PathoOrder, ?>>of(
+                  new DeadLetterHandler.Part<>(
+                      SpecimenProcessor.BINDING,
+                      PathoOrder::getSpecimen,
+                      PathoOrder::getSpecimenKey,
+                      specimen -> specimenProcessor.mapSpecimen(specimen, binding),
+                      new PathoSpecimenSerde()),
+                  new DeadLetterHandler.Part<>(
+                      PathologyReportProcessor.BINDING,
+                      PathoOrder::getReport,
+                      PathoOrder::getReportKey,
+                      report -> reportProcessor.processReport(report, binding),
+                      new PathoReportSerde())));
+      var addressed = logicalIds.apply(deduplication.remember(bundles, binding), binding);
+      return latency.emit(splitter.apply(addressed, binding), binding);
+    };
+  }
+}
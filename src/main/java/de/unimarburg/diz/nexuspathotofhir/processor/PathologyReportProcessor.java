@@ -1,11 +1,16 @@
 /* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2023 */
 package de.unimarburg.diz.nexuspathotofhir.processor;
 
+import de.unimarburg.diz.nexuspathotofhir.configuration.CsvMappings;
+import de.unimarburg.diz.nexuspathotofhir.configuration.FhirProperties;
+import de.unimarburg.diz.nexuspathotofhir.mapper.ReportMappingContext;
 import de.unimarburg.diz.nexuspathotofhir.mapper.ToFhirMapper;
 import de.unimarburg.diz.nexuspathotofhir.model.PathoReport;
+import de.unimarburg.diz.nexuspathotofhir.serde.PathoReportSerde;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 import java.util.function.Function;
-import org.apache.kafka.streams.KeyValue;
 import org.apache.kafka.streams.kstream.KStream;
 import org.hl7.fhir.r4.model.Bundle;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,20 +20,82 @@ import org.springframework.stereotype.Service;
 @Service
 public class PathologyReportProcessor extends BaseProcessor {
 
-  private final Collection<ToFhirMapper> toFhirMappers;
+  static final String BINDING = "processPathoReport";
+
+  /** sorted by class name, so bundle entries have a stable order */
+  private final List<ToFhirMapper> toFhirMappers;
+
+  private final FhirProperties fhirProperties;
+  private final CsvMappings csvMappings;
+  private final MapperFanOutExecutor mapperExecutor;
+  private final BundleDeduplication deduplication;
+  private final ReportCoalescing coalescing;
+  private final DeadLetterHandler deadLetters;
+  private final BundleSplitter splitter;
+  private final PipelineMetrics metrics;
+  private final LatencyTracking latency;
+  private final LogicalIdAddressing logicalIds;
 
   @Autowired
-  public PathologyReportProcessor(Collection<ToFhirMapper> toFhirMappers) {
-    this.toFhirMappers = toFhirMappers;
+  public PathologyReportProcessor(
+      Collection<ToFhirMapper> toFhirMappers,
+      FhirProperties fhirProperties,
+      CsvMappings csvMappings,
+      MapperFanOutExecutor mapperExecutor,
+      BundleDeduplication deduplication,
+      ReportCoalescing coalescing,
+      DeadLetterHandler deadLetters,
+      BundleSplitter splitter,
+      PipelineMetrics metrics,
+      LatencyTracking latency,
+      LogicalIdAddressing logicalIds) {
+    this.toFhirMappers =
+        toFhirMappers.stream()
+            .sorted(Comparator.comparing(mapper -> mapper.getClass().getName()))
+            .toList();
+    this.fhirProperties = fhirProperties;
+    this.csvMappings = csvMappings;
+    this.mapperExecutor = mapperExecutor;
+    this.deduplication = deduplication;
+    this.coalescing = coalescing;
+    this.deadLetters = deadLetters;
+    this.splitter = splitter;
+    this.metrics = metrics;
+    this.latency = latency;
+    this.logicalIds = logicalIds;
   }
 
   public Bundle processReport(PathoReport report) {
-    return getBasicBundle(report)
-        .setEntry(toFhirMappers.parallelStream().map(a -> a.apply(report)).toList());
+    return processReport(report, BINDING);
+  }
+
+  /**
+   * Values shared by the mappers are derived once per report, see {@link ReportMappingContext}.
+   * All mappers of a report read the same mapping snapshot.
+   *
+   * @param binding function name, used as metric tag of the mappers
+   */
+  public Bundle processReport(PathoReport report, String binding) {
+    final ReportMappingContext context =
+        ReportMappingContext.of(report, fhirProperties, csvMappings.active());
+    return getBasicBundle(report).setEntry(mapperExecutor.map(toFhirMappers, context, binding));
   }
 
   @Bean
   public Function<KStream<String, PathoReport>, KStream<String, Bundle>> processPathoReport() {
-    return input -> input.map((k, v) -> new KeyValue<>(k, processReport(v)));
+    final String binding = BINDING;
+    return input -> {
+      var reports =
+          latency.start(
+              coalescing.apply(input, binding), PathoReport::getLetzteBearbeitungsdatum, binding);
+      var bundles =
+          deadLetters.apply(
+              deduplication.apply(reports, new PathoReportSerde(), binding),
+              metrics.assembly(binding, (PathoReport report) -> processReport(report, binding)),
+              new PathoReportSerde(),
+              binding);
+      var addressed = logicalIds.apply(deduplication.remember(bundles, binding), binding);
+      return latency.emit(splitter.apply(addressed, binding), binding);
+    };
   }
 }
@@ -0,0 +1,287 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.Serializer;
+import org.hl7.fhir.r4.model.Bundle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Timers and distribution summaries per pipeline stage, all tagged by binding (function name):
+ * (de)serialization, single mapper calls ({@value MapperFanOutExecutor#METRIC_MAPPER_DURATION}) and
+ * bundle assembly including its mappers.
+ *
+ * <p>Serdes only see the topic, which is resolved to the active function reading or writing it, or
+ * owning it as internal topic by application id prefix. Topics read by several active functions
+ * share one serde instance, their tag joins the function names with '+'.
+ */
+@Component
+public class PipelineMetrics {
+
+  public static final String METRIC_SERDE_DURATION = "patho.serde.duration";
+  public static final String METRIC_SERDE_BYTES = "patho.serde.bytes";
+  public static final String METRIC_ASSEMBLY_DURATION = "patho.bundle.assembly.duration";
+  public static final String METRIC_BUNDLE_ENTRIES = "patho.bundle.entries";
+
+  static final String UNKNOWN_BINDING = "unknown";
+
+  private static final String BINDINGS_PREFIX = "spring.cloud.stream.bindings.";
+
+  private final MeterRegistry meterRegistry;
+  private final Map<String, String> bindingsByTopic;
+  private final Map<String, String> bindingsByApplicationId;
+  private final Map<String, String> resolved = new ConcurrentHashMap<>();
+  private final Map<MapperKey, Timer> mapperTimers = new ConcurrentHashMap<>();
+
+  @Autowired
+  public PipelineMetrics(Environment environment, MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+    this.bindingsByTopic = new LinkedHashMap<>();
+    this.bindingsByApplicationId = new LinkedHashMap<>();
+
+    final String definition = environment.getProperty("spring.cloud.function.definition", "");
+    for (String function : definition.split(";")) {
+      function = function.trim();
+      if (!StringUtils.hasText(function)) continue;
+
+      for (String direction : new String[] {"in", "out"}) {
+        String topic;
+        for (int i = 0;
+            (topic = environment.getProperty(destination(function, direction, i))) != null;
+            i++) {
+          bindingsByTopic.merge(topic, function, PipelineMetrics::join);
+        }
+      }
+      final String applicationId =
+          environment.getProperty(
+              "spring.cloud.stream.kafka.streams.binder.functions." + function + ".applicationId");
+      if (StringUtils.hasText(applicationId)) bindingsByApplicationId.put(applicationId, function);
+    }
+  }
+
+  private static String destination(String function, String direction, int index) {
+    return BINDINGS_PREFIX + function + "-" + direction + "-" + index + ".destination";
+  }
+
+  private static String join(String first, String second) {
+    final Set<String> names = new LinkedHashSet<>();
+    names.add(first);
+    names.add(second);
+    return String.join("+", names);
+  }
+
+  /** function name reading or writing the topic */
+  public String bindingOf(String topic) {
+    if (!StringUtils.hasText(topic)) return UNKNOWN_BINDING;
+    return resolved.computeIfAbsent(topic, this::resolve);
+  }
+
+  private String resolve(String topic) {
+    final String binding = bindingsByTopic.get(topic);
+    if (binding != null) return binding;
+
+    // internal changelog and repartition topics
+    for (var entry : bindingsByApplicationId.entrySet()) {
+      if (topic.startsWith(entry.getKey() + "-")) return entry.getValue();
+    }
+    return UNKNOWN_BINDING;
+  }
+
+  /** serde measuring duration and encoded size per topic */
+  public <T> Serde<T> instrument(Serde<T> serde, Class<T> type) {
+    return Serdes.serdeFrom(
+        new TimedSerializer<>(serde.serializer(), type.getSimpleName()),
+        new TimedDeserializer<>(serde.deserializer(), type.getSimpleName()));
+  }
+
+  /** measures duration and entry count of the bundles built by {@code assembly} */
+  public <V> Function<V, Bundle> assembly(String binding, Function<V, Bundle> assembly) {
+    final Timer timer =
+        Timer.builder(METRIC_ASSEMBLY_DURATION)
+            .description("duration from input record to bundle, including mappers")
+            .tag("binding", binding)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    final DistributionSummary entries =
+        DistributionSummary.builder(METRIC_BUNDLE_ENTRIES)
+            .description("entries per assembled bundle")
+            .tag("binding", binding)
+            .register(meterRegistry);
+    return value -> {
+      final long start = System.nanoTime();
+      final Bundle bundle;
+      try {
+        bundle = assembly.apply(value);
+      } finally {
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      }
+      if (bundle != null) entries.record(bundle.getEntry().size());
+      return bundle;
+    };
+  }
+
+  public Timer mapperTimer(String binding, Class<?> mapper) {
+    return mapperTimers.computeIfAbsent(
+        new MapperKey(binding, mapper), key -> mapperTimer(meterRegistry, binding, mapper));
+  }
+
+  static Timer mapperTimer(MeterRegistry meterRegistry, String binding, Class<?> mapper) {
+    return Timer.builder(MapperFanOutExecutor.METRIC_MAPPER_DURATION)
+        .description("duration of a single mapper call")
+        .tag("binding", binding)
+        .tag("mapper", mapper.getSimpleName())
+        .register(meterRegistry);
+  }
+
+  record MapperKey(String binding, Class<?> mapper) {}
+
+  private static String nonNull(String topic) {
+    return topic != null ? topic : "";
+  }
+
+  private record SerdeMeters(Timer success, Timer failure, DistributionSummary bytes) {}
+
+  private SerdeMeters serdeMeters(String topic, String type, String operation) {
+    final String binding = bindingOf(topic);
+    return new SerdeMeters(
+        serdeTimer(binding, type, operation, "success"),
+        serdeTimer(binding, type, operation, "failure"),
+        DistributionSummary.builder(METRIC_SERDE_BYTES)
+            .description("encoded record size")
+            .baseUnit("bytes")
+            .tag("binding", binding)
+            .tag("type", type)
+            .tag("operation", operation)
+            .register(meterRegistry));
+  }
+
+  private Timer serdeTimer(String binding, String type, String operation, String outcome) {
+    return Timer.builder(METRIC_SERDE_DURATION)
+        .description("duration of record (de)serialization")
+        .tag("binding", binding)
+        .tag("type", type)
+        .tag("operation", operation)
+        .tag("outcome", outcome)
+        .register(meterRegistry);
+  }
+
+  private final class TimedSerializer<T> implements Serializer<T> {
+    private final Serializer<T> delegate;
+    private final String type;
+    private final Map<String, SerdeMeters> meters = new ConcurrentHashMap<>();
+
+    private TimedSerializer(Serializer<T> delegate, String type) {
+      this.delegate = delegate;
+      this.type = type;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+      delegate.configure(configs, isKey);
+    }
+
+    @Override
+    public byte[] serialize(String topic, T data) {
+      return timed(topic, data, () -> delegate.serialize(topic, data));
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, T data) {
+      return timed(topic, data, () -> delegate.serialize(topic, headers, data));
+    }
+
+    private byte[] timed(String topic, T data, Supplier<byte[]> serialize) {
+      if (data == null) return serialize.get();
+
+      final SerdeMeters topicMeters =
+          meters.computeIfAbsent(nonNull(topic), t -> serdeMeters(t, type, "serialize"));
+      final long start = System.nanoTime();
+      try {
+        final byte[] result = serialize.get();
+        topicMeters.success().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (result != null) topicMeters.bytes().record(result.length);
+        return result;
+      } catch (RuntimeException e) {
+        topicMeters.failure().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        throw e;
+      }
+    }
+
+    @Override
+    public void close() {
+      delegate.close();
+    }
+  }
+
+  private final class TimedDeserializer<T> implements Deserializer<T> {
+    private final Deserializer<T> delegate;
+    private final String type;
+    private final Map<String, SerdeMeters> meters = new ConcurrentHashMap<>();
+
+    private TimedDeserializer(Deserializer<T> delegate, String type) {
+      this.delegate = delegate;
+      this.type = type;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+      delegate.configure(configs, isKey);
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+      if (data == null) return delegate.deserialize(topic, (byte[]) null);
+      return timed(topic, data.length, () -> delegate.deserialize(topic, data));
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, byte[] data) {
+      if (data == null) return delegate.deserialize(topic, headers, (byte[]) null);
+      return timed(topic, data.length, () -> delegate.deserialize(topic, headers, data));
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, ByteBuffer data) {
+      if (data == null) return delegate.deserialize(topic, headers, (ByteBuffer) null);
+      return timed(topic, data.remaining(), () -> delegate.deserialize(topic, headers, data));
+    }
+
+    private T timed(String topic, int size, Supplier<T> deserialize) {
+      final SerdeMeters topicMeters =
+          meters.computeIfAbsent(nonNull(topic), t -> serdeMeters(t, type, "deserialize"));
+      topicMeters.bytes().record(size);
+      final long start = System.nanoTime();
+      try {
+        final T result = deserialize.get();
+        topicMeters.success().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return result;
+      } catch (RuntimeException e) {
+        topicMeters.failure().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        throw e;
+      }
+    }
+
+    @Override
+    public void close() {
+      delegate.close();
+    }
+  }
+}
@@ -0,0 +1,243 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+import de.unimarburg.diz.nexuspathotofhir.configuration.ProcessorProperties;
+import de.unimarburg.diz.nexuspathotofhir.model.BufferedReport;
+import de.unimarburg.diz.nexuspathotofhir.model.PathoReport;
+import de.unimarburg.diz.nexuspathotofhir.model.ReportCoalesceKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Named;
+import org.apache.kafka.streams.kstream.Repartitioned;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.ProcessorSupplier;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.StoreBuilder;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.TimestampedKeyValueStore;
+import org.apache.kafka.streams.state.ValueAndTimestamp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.support.serializer.JsonSerde;
+import org.springframework.stereotype.Component;
+
+/**
+ * Optional stage in front of the report mapping: versions of the same report (see {@link
+ * ReportCoalesceKey}) are buffered for a grace period and only the newest version by {@link
+ * PathoReport#getLetzteBearbeitungsdatum()} is passed on. Versions older than an already buffered
+ * or emitted version are discarded.
+ *
+ * <p>The grace period starts with the first buffered version, so a steady stream of updates
+ * cannot delay a report forever.
+ */
+@Component
+public class ReportCoalescing {
+
+  public static final String METRIC_DISCARDED = "patho.reports.coalesced";
+
+  private static final Logger log = LoggerFactory.getLogger(ReportCoalescing.class);
+
+  private final boolean enabled;
+  private final Duration gracePeriod;
+  private final Duration retention;
+  private final ReportCoalesceKey coalesceKey;
+  private final MeterRegistry meterRegistry;
+
+  @Autowired
+  public ReportCoalescing(ProcessorProperties processorProperties, MeterRegistry meterRegistry) {
+    var config = processorProperties.getCoalescing();
+    this.enabled = config.isEnabled();
+    this.gracePeriod = config.getGracePeriod();
+    this.retention = config.getRetention();
+    this.coalesceKey = config.getKey();
+    this.meterRegistry = meterRegistry;
+
+    if (enabled && (gracePeriod == null || gracePeriod.isNegative() || gracePeriod.isZero()))
+      throw new IllegalArgumentException("'processor.coalescing.grace-period' must be positive.");
+    if (enabled) StoreRetention.validate(retention, "processor.coalescing.retention");
+  }
+
+  /**
+   * @param reports input reports
+   * @param binding function name, used for topic and store names as well as metric tags
+   * @return newest report versions with their original record key
+   */
+  public KStream<String, PathoReport> apply(KStream<String, PathoReport> reports, String binding) {
+    if (!enabled) return reports;
+
+    final Serde<BufferedReport> bufferedSerde =
+        new JsonSerde<>(BufferedReport.class).noTypeInfo().ignoreTypeHeaders();
+
+    return reports
+        .filter((k, v) -> v != null, Named.as(binding + "-coalesce-filter"))
+        .map(
+            (k, v) -> KeyValue.pair(keyOf(k, v), new BufferedReport(k, 0L, 0L, v)),
+            Named.as(binding + "-coalesce-key"))
+        .repartition(
+            Repartitioned.with(Serdes.String(), bufferedSerde).withName(binding + "-coalesce"))
+        .process(
+            new CoalescingSupplier(
+                binding,
+                bufferedSerde,
+                gracePeriod,
+                retention,
+                discardedCounter(binding, "superseded"),
+                discardedCounter(binding, "stale")),
+            Named.as(binding + "-coalesce-latest"));
+  }
+
+  /** reports without coalesce key stay on their record key */
+  private String keyOf(String recordKey, PathoReport report) {
+    final String key = coalesceKey.of(report);
+    return key != null ? key : recordKey;
+  }
+
+  private Counter discardedCounter(String binding, String reason) {
+    return Counter.builder(METRIC_DISCARDED)
+        .description("report versions not mapped since a newer version exists")
+        .tag("binding", binding)
+        .tag("reason", reason)
+        .register(meterRegistry);
+  }
+
+  public static String bufferStoreName(String binding) {
+    return binding + "-coalesce-buffer";
+  }
+
+  public static String emittedStoreName(String binding) {
+    return binding + "-coalesce-emitted";
+  }
+
+  /** report version, falls back to the record timestamp */
+  static long version(PathoReport report, long recordTimestamp) {
+    return report.getLetzteBearbeitungsdatum() != null
+        ? report.getLetzteBearbeitungsdatum()
+        : recordTimestamp;
+  }
+
+  private record CoalescingSupplier(
+      String binding,
+      Serde<BufferedReport> bufferedSerde,
+      Duration gracePeriod,
+      Duration retention,
+      Counter superseded,
+      Counter stale)
+      implements ProcessorSupplier<String, BufferedReport, String, PathoReport> {
+
+    @Override
+    public Processor<String, BufferedReport, String, PathoReport> get() {
+      return new CoalescingProcessor(this);
+    }
+
+    @Override
+    public Set<StoreBuilder<?>> stores() {
+      return Set.of(
+          Stores.keyValueStoreBuilder(
+              Stores.persistentKeyValueStore(bufferStoreName(binding)),
+              Serdes.String(),
+              bufferedSerde),
+          Stores.timestampedKeyValueStoreBuilder(
+              Stores.persistentTimestampedKeyValueStore(emittedStoreName(binding)),
+              Serdes.String(),
+              Serdes.Long()));
+    }
+  }
+
+  private static class CoalescingProcessor
+      implements Processor<String, BufferedReport, String, PathoReport> {
+    private final CoalescingSupplier config;
+    private ProcessorContext<String, PathoReport> context;
+    private KeyValueStore<String, BufferedReport> buffer;
+    private TimestampedKeyValueStore<String, Long> emitted;
+
+    private CoalescingProcessor(CoalescingSupplier config) {
+      this.config = config;
+    }
+
+    @Override
+    public void init(ProcessorContext<String, PathoReport> context) {
+      this.context = context;
+      this.buffer = context.getStateStore(bufferStoreName(config.binding()));
+      this.emitted = context.getStateStore(emittedStoreName(config.binding()));
+
+      var interval =
+          config.gracePeriod().compareTo(Duration.ofSeconds(1)) < 0
+              ? config.gracePeriod()
+              : Duration.ofSeconds(1);
+      context.schedule(interval, PunctuationType.WALL_CLOCK_TIME, this::emitExpired);
+      StoreRetention.schedule(context, emitted, config.retention());
+    }
+
+    @Override
+    public void process(Record<String, BufferedReport> record) {
+      final BufferedReport incoming = record.value();
+      if (record.key() == null) {
+        // nothing to coalesce by
+        context.forward(
+            new Record<>(incoming.getRecordKey(), incoming.getReport(), record.timestamp()));
+        return;
+      }
+
+      final long version = version(incoming.getReport(), record.timestamp());
+      final ValueAndTimestamp<Long> emittedEntry = emitted.get(record.key());
+      final Long emittedVersion = emittedEntry != null ? emittedEntry.value() : null;
+      if (emittedVersion != null && version <= emittedVersion) {
+        log.debug(
+            "discarding report '{}' version {} since version {} has already been emitted",
+            incoming.getReport().getUUID(),
+            version,
+            emittedVersion);
+        config.stale().increment();
+        return;
+      }
+
+      final BufferedReport buffered = buffer.get(record.key());
+      final long now = context.currentSystemTimeMs();
+      if (buffered != null) {
+        if (version(buffered.getReport(), buffered.getRecordTimestamp()) > version) {
+          config.stale().increment();
+          return;
+        }
+        config.superseded().increment();
+        incoming.setBufferedAt(buffered.getBufferedAt());
+      } else {
+        incoming.setBufferedAt(now);
+      }
+      incoming.setRecordTimestamp(record.timestamp());
+      buffer.put(record.key(), incoming);
+    }
+
+    private void emitExpired(long now) {
+      final long graceMillis = config.gracePeriod().toMillis();
+      final List<KeyValue<String, BufferedReport>> expired = new ArrayList<>();
+      try (var iterator = buffer.all()) {
+        while (iterator.hasNext()) {
+          var entry = iterator.next();
+          if (entry.value.getBufferedAt() + graceMillis <= now) expired.add(entry);
+        }
+      }
+
+      for (var entry : expired) {
+        final BufferedReport value = entry.value;
+        context.forward(
+            new Record<>(value.getRecordKey(), value.getReport(), value.getRecordTimestamp()));
+        emitted.put(
+            entry.key,
+            ValueAndTimestamp.make(version(value.getReport(), value.getRecordTimestamp()), now));
+        buffer.delete(entry.key);
+      }
+    }
+  }
+}
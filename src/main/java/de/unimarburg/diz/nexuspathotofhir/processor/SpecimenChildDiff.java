@@ -0,0 +1,227 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+import com.google.common.hash.Funnels;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import de.unimarburg.diz.nexuspathotofhir.configuration.PathoFhirContext;
+import de.unimarburg.diz.nexuspathotofhir.configuration.ProcessorProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Named;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessor;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorContext;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorSupplier;
+import org.apache.kafka.streams.processor.api.FixedKeyRecord;
+import org.apache.kafka.streams.state.StoreBuilder;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.TimestampedKeyValueStore;
+import org.apache.kafka.streams.state.ValueAndTimestamp;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Resource;
+import org.hl7.fhir.r4.model.Specimen;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reduces specimen hierarchy bundles to their delta: child specimens (entries with a parent) which
+ * did not change since they were last emitted for the record key are dropped, children which
+ * disappeared from the input are deleted. The root specimen is always kept. Fingerprints of the
+ * emitted children are kept in a persistent state store per binding, keyed {@code <record key
+ * length>:<record key>|<identifier system>|<identifier value>} so the prefix of one record key
+ * never matches another. Entries not seen for {@code processor.specimen-hierarchy.retention} are
+ * purged.
+ *
+ * <p>The store is updated before the bundle is produced. Only with {@code processing.guarantee:
+ * exactly_once_v2} both are committed atomically; under {@code at_least_once} a crash in between
+ * replays the record against the updated store, so its changed children and deletes are lost.
+ */
+@Component
+public class SpecimenChildDiff {
+
+  public static final String METRIC_CHILDREN = "patho.specimen.children";
+
+  private static final char SEPARATOR = '|';
+
+  private final boolean enabled;
+  private final Duration retention;
+  private final MeterRegistry meterRegistry;
+
+  @Autowired
+  public SpecimenChildDiff(ProcessorProperties processorProperties, MeterRegistry meterRegistry) {
+    var config = processorProperties.getSpecimenHierarchy();
+    this.enabled = config.isEnabled();
+    this.retention = config.getRetention();
+    this.meterRegistry = meterRegistry;
+
+    if (enabled) StoreRetention.validate(retention, "processor.specimen-hierarchy.retention");
+  }
+
+  /**
+   * @param bundles specimen hierarchy bundles
+   * @param binding function name, used for store name and metric tag
+   * @return bundles with new, changed and deleted children only
+   */
+  public KStream<String, Bundle> apply(KStream<String, Bundle> bundles, String binding) {
+    if (!enabled) return bundles;
+
+    final Counters counters =
+        new Counters(
+            counter(binding, "emitted"),
+            counter(binding, "unchanged"),
+            counter(binding, "deleted"));
+    return bundles.processValues(
+        new DiffSupplier(storeName(binding), retention, counters),
+        Named.as(binding + "-child-diff"));
+  }
+
+  public static String storeName(String binding) {
+    return binding + "-specimen-children";
+  }
+
+  /** length prefixed, a key containing the separator cannot extend another key */
+  static String keyPrefix(String recordKey) {
+    return Integer.toString(recordKey.length()) + ':' + recordKey + SEPARATOR;
+  }
+
+  /** farmHash fingerprint of the resource JSON representation */
+  static long fingerprint(Resource resource) {
+    final Hasher hasher = Hashing.farmHashFingerprint64().newHasher();
+    try (Writer writer =
+        new OutputStreamWriter(Funnels.asOutputStream(hasher), StandardCharsets.UTF_8)) {
+      PathoFhirContext.getJsonParser().encodeResourceToWriter(resource, writer);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return hasher.hash().asLong();
+  }
+
+  private Counter counter(String binding, String outcome) {
+    return Counter.builder(METRIC_CHILDREN)
+        .description("child specimens of hierarchy bundles by diff outcome")
+        .tag("binding", binding)
+        .tag("outcome", outcome)
+        .register(meterRegistry);
+  }
+
+  private record Counters(Counter emitted, Counter unchanged, Counter deleted) {}
+
+  private record DiffSupplier(String storeName, Duration retention, Counters counters)
+      implements FixedKeyProcessorSupplier<String, Bundle, Bundle> {
+
+    @Override
+    public FixedKeyProcessor<String, Bundle, Bundle> get() {
+      return new DiffProcessor(this);
+    }
+
+    @Override
+    public Set<StoreBuilder<?>> stores() {
+      return Set.of(
+          Stores.timestampedKeyValueStoreBuilder(
+              Stores.persistentTimestampedKeyValueStore(storeName),
+              Serdes.String(),
+              Serdes.Long()));
+    }
+  }
+
+  private static class DiffProcessor implements FixedKeyProcessor<String, Bundle, Bundle> {
+    private final DiffSupplier config;
+    private final Counters counters;
+    private final StringSerializer prefixSerializer = new StringSerializer();
+    private FixedKeyProcessorContext<String, Bundle> context;
+    private TimestampedKeyValueStore<String, Long> store;
+
+    private DiffProcessor(DiffSupplier config) {
+      this.config = config;
+      this.counters = config.counters();
+    }
+
+    @Override
+    public void init(FixedKeyProcessorContext<String, Bundle> context) {
+      this.context = context;
+      this.store = context.getStateStore(config.storeName());
+      StoreRetention.schedule(context, store, config.retention());
+    }
+
+    @Override
+    public void process(FixedKeyRecord<String, Bundle> record) {
+      // without root the input could not be mapped, its children must not be deleted
+      if (record.key() == null || record.value() == null || !hasRoot(record.value())) {
+        context.forward(record);
+        return;
+      }
+
+      final String prefix = keyPrefix(record.key());
+      final Map<String, Long> previous = new HashMap<>();
+      try (var emitted = store.prefixScan(prefix, prefixSerializer)) {
+        emitted.forEachRemaining(
+            child -> {
+              if (child.value != null) previous.put(child.key, child.value.value());
+            });
+      }
+      final long now = context.currentSystemTimeMs();
+
+      final Bundle bundle = record.value();
+      final List<Bundle.BundleEntryComponent> entries = new ArrayList<>(bundle.getEntry().size());
+      for (Bundle.BundleEntryComponent entry : bundle.getEntry()) {
+        if (!(entry.getResource() instanceof Specimen child) || !child.hasParent()) {
+          entries.add(entry);
+          continue;
+        }
+        final Identifier identifier = child.getIdentifierFirstRep();
+        final String key = prefix + identifier.getSystem() + SEPARATOR + identifier.getValue();
+        final long fingerprint = fingerprint(child);
+        final Long last = previous.remove(key);
+        // unchanged children are written too, which keeps them from being purged
+        store.put(key, ValueAndTimestamp.make(fingerprint, now));
+        if (last != null && last == fingerprint) {
+          counters.unchanged().increment();
+          continue;
+        }
+        entries.add(entry);
+        counters.emitted().increment();
+      }
+      for (String key : previous.keySet()) {
+        store.delete(key);
+        entries.add(deleteEntry(key.substring(prefix.length())));
+        counters.deleted().increment();
+      }
+
+      bundle.setEntry(entries);
+      context.forward(record);
+    }
+
+    private static boolean hasRoot(Bundle bundle) {
+      for (Bundle.BundleEntryComponent entry : bundle.getEntry()) {
+        if (entry.getResource() instanceof Specimen specimen && !specimen.hasParent()) return true;
+      }
+      return false;
+    }
+
+    /**
+     * @param identifier {@code <system>|<value>}
+     */
+    private static Bundle.BundleEntryComponent deleteEntry(String identifier) {
+      return new Bundle.BundleEntryComponent()
+          .setRequest(
+              new Bundle.BundleEntryRequestComponent()
+                  .setMethod(Bundle.HTTPVerb.DELETE)
+                  .setUrl("Specimen?identifier=" + identifier));
+    }
+  }
+}
@@ -1,11 +1,14 @@
 /* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2023 */
 package de.unimarburg.diz.nexuspathotofhir.processor;
 
+import de.unimarburg.diz.nexuspathotofhir.configuration.ProcessorProperties;
 import de.unimarburg.diz.nexuspathotofhir.mapper.SpecimenMapper;
 import de.unimarburg.diz.nexuspathotofhir.model.PathoInputBase;
 import de.unimarburg.diz.nexuspathotofhir.model.PathoSpecimen;
+import de.unimarburg.diz.nexuspathotofhir.serde.PathoSpecimenSerde;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
-import org.apache.kafka.streams.KeyValue;
 import org.apache.kafka.streams.kstream.*;
 import org.hl7.fhir.r4.model.Bundle;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,20 +17,99 @@ import org.springframework.stereotype.Service;
 
 @Service
 public class SpecimenProcessor extends BaseProcessor {
+
+  static final String BINDING = "processPathoSpecimen";
+
   private final SpecimenMapper specimenMapper;
+  private final BundleDeduplication deduplication;
+  private final DeadLetterHandler deadLetters;
+  private final BundleSplitter splitter;
+  private final PipelineMetrics metrics;
+  private final LatencyTracking latency;
+  private final SpecimenChildDiff childDiff;
+  private final LogicalIdAddressing logicalIds;
+  private final boolean hierarchy;
 
   @Autowired
-  public SpecimenProcessor(SpecimenMapper specimenMapper) {
+  public SpecimenProcessor(
+      SpecimenMapper specimenMapper,
+      BundleDeduplication deduplication,
+      DeadLetterHandler deadLetters,
+      BundleSplitter splitter,
+      PipelineMetrics metrics,
+      LatencyTracking latency,
+      SpecimenChildDiff childDiff,
+      LogicalIdAddressing logicalIds,
+      ProcessorProperties processorProperties) {
     this.specimenMapper = specimenMapper;
+    this.deduplication = deduplication;
+    this.deadLetters = deadLetters;
+    this.splitter = splitter;
+    this.metrics = metrics;
+    this.latency = latency;
+    this.childDiff = childDiff;
+    this.logicalIds = logicalIds;
+    this.hierarchy = processorProperties.getSpecimenHierarchy().isEnabled();
   }
 
   public Bundle processSpecimen(PathoInputBase inputBase) {
-    final Bundle bundle = getBasicBundle(inputBase).addEntry(specimenMapper.apply(inputBase));
+    return processSpecimen(inputBase, BINDING);
+  }
+
+  /**
+   * @param binding function name, used as metric tag of the mapper
+   */
+  public Bundle processSpecimen(PathoInputBase inputBase, String binding) {
+    if (hierarchy) {
+      final Bundle bundle = getBasicBundle(inputBase);
+      mapSpecimenHierarchy(inputBase, binding).forEach(bundle::addEntry);
+      return bundle;
+    }
+    final Bundle bundle = getBasicBundle(inputBase).addEntry(mapSpecimen(inputBase, binding));
     return bundle;
   }
 
+  private List<Bundle.BundleEntryComponent> mapSpecimenHierarchy(
+      PathoInputBase inputBase, String binding) {
+    final long start = System.nanoTime();
+    try {
+      return specimenMapper.applyHierarchy(inputBase);
+    } finally {
+      metrics
+          .mapperTimer(binding, specimenMapper.getClass())
+          .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  Bundle.BundleEntryComponent mapSpecimen(PathoInputBase inputBase, String binding) {
+    final long start = System.nanoTime();
+    try {
+      return specimenMapper.apply(inputBase);
+    } finally {
+      metrics
+          .mapperTimer(binding, specimenMapper.getClass())
+          .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
   @Bean
   public Function<KStream<String, PathoSpecimen>, KStream<String, Bundle>> processPathoSpecimen() {
-    return input -> input.map((k, v) -> new KeyValue<>(k, processSpecimen(v)));
+    final String binding = BINDING;
+    return input -> {
+      var bundles =
+          deadLetters.apply(
+              deduplication.apply(
+                  // specimens carry no modification time
+                  latency.start(input, specimen -> null, binding),
+                  new PathoSpecimenSerde(),
+                  binding),
+              metrics.assembly(
+                  binding, (PathoSpecimen specimen) -> processSpecimen(specimen, binding)),
+              new PathoSpecimenSerde(),
+              binding);
+      var changed = childDiff.apply(deduplication.remember(bundles, binding), binding);
+      var addressed = logicalIds.apply(changed, binding);
+      return latency.emit(splitter.apply(addressed, binding), binding);
+    };
   }
 }
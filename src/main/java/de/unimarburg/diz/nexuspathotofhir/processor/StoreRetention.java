@@ -0,0 +1,59 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.processor.api.ProcessingContext;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.ValueAndTimestamp;
+
+/**
+ * Purges entries of timestamped key value stores which were not written for longer than a
+ * retention period. Entries carry the wall clock time of their last write, the store is scanned
+ * by a wall clock punctuator.
+ */
+final class StoreRetention {
+
+  /** upper bound of the scan interval */
+  static final Duration MAX_INTERVAL = Duration.ofHours(1);
+
+  private StoreRetention() {}
+
+  /**
+   * @throws IllegalArgumentException if the retention is not positive
+   */
+  static void validate(Duration retention, String property) {
+    if (retention == null || retention.isNegative() || retention.isZero())
+      throw new IllegalArgumentException(String.format("'%s' must be positive.", property));
+  }
+
+  /** scans the store every {@code min(retention, 1h)} */
+  static <K, V> void schedule(
+      ProcessingContext context, KeyValueStore<K, ValueAndTimestamp<V>> store, Duration retention) {
+    final Duration interval = retention.compareTo(MAX_INTERVAL) < 0 ? retention : MAX_INTERVAL;
+    context.schedule(
+        interval,
+        PunctuationType.WALL_CLOCK_TIME,
+        now -> purge(store, now - retention.toMillis()));
+  }
+
+  /**
+   * @param before entries written before this epoch millis are deleted
+   * @return number of deleted entries
+   */
+  static <K, V> int purge(KeyValueStore<K, ValueAndTimestamp<V>> store, long before) {
+    final List<K> expired = new ArrayList<>();
+    try (KeyValueIterator<K, ValueAndTimestamp<V>> entries = store.all()) {
+      while (entries.hasNext()) {
+        final KeyValue<K, ValueAndTimestamp<V>> entry = entries.next();
+        if (entry.value == null || entry.value.timestamp() < before) expired.add(entry.key);
+      }
+    }
+    expired.forEach(store::delete);
+    return expired.size();
+  }
+}
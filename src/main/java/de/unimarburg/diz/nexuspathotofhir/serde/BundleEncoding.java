@@ -0,0 +1,72 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.serde;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import java.nio.charset.StandardCharsets;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+/**
+ * Wire format of serialized resources. Binary formats carry the same token stream as FHIR JSON, so
+ * they are transcoded losslessly. Binary encodings are named in the {@link #HEADER_ENCODING}
+ * header, JSON records carry none; records without header are detected by their magic bytes.
+ */
+public enum BundleEncoding {
+  JSON(new JsonFactory()),
+  /**
+   * back references for repeated property names and for values of up to 64 bytes, e.g. code
+   * systems and reference types. Longer values such as MII profile urls are written in full each
+   * time, record compression covers those.
+   */
+  SMILE(SmileFactory.builder().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build()),
+  CBOR(CBORFactory.builder().enable(CBORGenerator.Feature.WRITE_TYPE_HEADER).build());
+
+  public static final String HEADER_ENCODING = "x-fhir-encoding";
+
+  /** ':)\n' */
+  private static final byte[] SMILE_MAGIC = {0x3A, 0x29, 0x0A};
+
+  /** self describe tag 55799 */
+  private static final byte[] CBOR_MAGIC = {(byte) 0xD9, (byte) 0xD9, (byte) 0xF7};
+
+  private final JsonFactory factory;
+
+  BundleEncoding(JsonFactory factory) {
+    this.factory = factory;
+  }
+
+  /** value of {@link #HEADER_ENCODING} */
+  public String headerValue() {
+    return name().toLowerCase();
+  }
+
+  JsonFactory getFactory() {
+    return factory;
+  }
+
+  /** encoding by header, by magic bytes otherwise */
+  public static BundleEncoding detect(Headers headers, byte[] data, int offset, int length) {
+    final Header header = headers != null ? headers.lastHeader(HEADER_ENCODING) : null;
+    if (header != null && header.value() != null) {
+      final String value = new String(header.value(), StandardCharsets.UTF_8);
+      for (BundleEncoding encoding : values()) {
+        if (encoding.headerValue().equalsIgnoreCase(value)) return encoding;
+      }
+    }
+    if (startsWith(data, offset, length, SMILE_MAGIC)) return SMILE;
+    if (startsWith(data, offset, length, CBOR_MAGIC)) return CBOR;
+    return JSON;
+  }
+
+  private static boolean startsWith(byte[] data, int offset, int length, byte[] magic) {
+    if (length < magic.length) return false;
+    for (int i = 0; i < magic.length; i++) {
+      if (data[offset + i] != magic[i]) return false;
+    }
+    return true;
+  }
+}
@@ -1,15 +1,29 @@
 /* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2023 */
 package de.unimarburg.diz.nexuspathotofhir.serde;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import de.unimarburg.diz.nexuspathotofhir.configuration.PathoFhirContext;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
 import org.apache.kafka.common.serialization.Deserializer;
 import org.hl7.fhir.r4.model.Resource;
 
+/**
+ * Parses resources with the per thread json parser straight from the record bytes. Binary {@link
+ * BundleEncoding}s are transcoded to JSON in a reused buffer first. The Jackson path accepts
+ * embedded resources as object or as JSON string and copies the tokens into a reused buffer instead
+ * of materializing a String.
+ */
 public class FhirDeserializer<T extends Resource> extends JsonDeserializer<T>
     implements Deserializer<T> {
 
@@ -25,18 +39,74 @@ public class FhirDeserializer<T extends Resource> extends JsonDeserializer<T>
       return null;
     }
 
-    return PathoFhirContext.getInstance()
-        .newJsonParser()
-        .parseResource(classType, new ByteArrayInputStream(data));
+    return parse(null, data, 0, data.length);
+  }
+
+  @Override
+  public T deserialize(String topic, Headers headers, byte[] data) {
+    if (data == null) {
+      return null;
+    }
+
+    return parse(headers, data, 0, data.length);
+  }
+
+  @Override
+  public T deserialize(String topic, Headers headers, ByteBuffer data) {
+    if (data == null || !data.hasArray()) {
+      return Deserializer.super.deserialize(topic, headers, data);
+    }
+
+    return parse(headers, data.array(), data.arrayOffset() + data.position(), data.remaining());
+  }
+
+  private T parse(Headers headers, byte[] data, int offset, int length) {
+    final BundleEncoding encoding = BundleEncoding.detect(headers, data, offset, length);
+    if (encoding == BundleEncoding.JSON) {
+      return PathoFhirContext.getJsonParser()
+          .parseResource(classType, new ByteArrayInputStream(data, offset, length));
+    }
+
+    final ReusableByteArrayOutputStream json = ReusableByteArrayOutputStream.acquire();
+    try {
+      try (JsonParser parser = encoding.getFactory().createParser(data, offset, length);
+          JsonGenerator generator = BundleEncoding.JSON.getFactory().createGenerator(json)) {
+        parser.nextToken();
+        generator.copyCurrentStructure(parser);
+      } catch (IOException e) {
+        throw new SerializationException("Failed to decode " + encoding + " resource", e);
+      }
+      return PathoFhirContext.getJsonParser().parseResource(classType, json.toInputStream());
+    } finally {
+      json.release();
+    }
   }
 
   @Override
   public T deserialize(JsonParser p, DeserializationContext ctx) throws IOException {
-    return deserialize(p.getValueAsString());
+    if (p.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+
+    final ReusableByteArrayOutputStream buffer = ReusableByteArrayOutputStream.acquire();
+    try {
+      if (p.currentToken() == JsonToken.VALUE_STRING) {
+        try (Writer writer = new OutputStreamWriter(buffer, StandardCharsets.UTF_8)) {
+          p.getText(writer);
+        }
+      } else {
+        try (JsonGenerator generator = BundleEncoding.JSON.getFactory().createGenerator(buffer)) {
+          generator.copyCurrentStructure(p);
+        }
+      }
+      return PathoFhirContext.getJsonParser().parseResource(classType, buffer.toInputStream());
+    } finally {
+      buffer.release();
+    }
   }
 
   public T deserialize(String value) throws IOException {
-    return PathoFhirContext.getInstance().newJsonParser().parseResource(classType, value);
+    return PathoFhirContext.getJsonParser().parseResource(classType, value);
   }
 
   @Override
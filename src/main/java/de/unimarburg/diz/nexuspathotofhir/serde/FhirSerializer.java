@@ -1,22 +1,100 @@
 /* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2023 */
 package de.unimarburg.diz.nexuspathotofhir.serde;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import de.unimarburg.diz.nexuspathotofhir.configuration.PathoFhirContext;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
 import org.apache.kafka.common.serialization.Serializer;
 import org.hl7.fhir.r4.model.Resource;
 
+/**
+ * Encodes resources as JSON straight into a reused per thread buffer, so the only copy of a bundle
+ * besides the buffer is the returned array.
+ *
+ * <p>HAPI only writes JSON text, so binary {@link BundleEncoding}s are transcoded from that buffer
+ * by a streaming token copy. This is a second pass over every token: compare {@code
+ * BundleSerdeBenchmark.serialize} for JSON and SMILE before trading cpu for record size.
+ */
 public class FhirSerializer<T extends Resource> implements Serializer<T> {
 
+  /** {@link BundleEncoding} name, overrides the constructor argument */
+  public static final String ENCODING_CONFIG = "fhir.serializer.encoding";
+
+  private BundleEncoding encoding;
+
+  public FhirSerializer() {
+    this(BundleEncoding.JSON);
+  }
+
+  public FhirSerializer(BundleEncoding encoding) {
+    this.encoding = encoding;
+  }
+
+  @Override
+  public void configure(Map<String, ?> configs, boolean isKey) {
+    final Object value = configs.get(ENCODING_CONFIG);
+    if (value != null) encoding = BundleEncoding.valueOf(value.toString().toUpperCase());
+  }
+
+  public BundleEncoding getEncoding() {
+    return encoding;
+  }
+
+  @Override
+  public byte[] serialize(String topic, Headers headers, T data) {
+    if (data != null && headers != null) {
+      // headers of the input record are passed on, drop a stale value
+      headers.remove(BundleEncoding.HEADER_ENCODING);
+      if (encoding != BundleEncoding.JSON)
+        headers.add(
+            BundleEncoding.HEADER_ENCODING,
+            encoding.headerValue().getBytes(StandardCharsets.UTF_8));
+    }
+    return serialize(topic, data);
+  }
+
   @Override
   public byte[] serialize(String topic, T data) {
     if (data == null) {
       return null;
     }
 
-    return PathoFhirContext.getInstance()
-        .newJsonParser()
-        .encodeResourceToString(data)
-        .getBytes(StandardCharsets.UTF_8);
+    final ReusableByteArrayOutputStream json = ReusableByteArrayOutputStream.acquire();
+    try {
+      try (Writer writer = new OutputStreamWriter(json, StandardCharsets.UTF_8)) {
+        PathoFhirContext.getJsonParser().encodeResourceToWriter(data, writer);
+      } catch (IOException e) {
+        throw new SerializationException("Failed to encode resource " + data.getId(), e);
+      }
+      if (encoding == BundleEncoding.JSON) return json.toByteArray();
+
+      return transcode(json, data);
+    } finally {
+      json.release();
+    }
+  }
+
+  private byte[] transcode(ReusableByteArrayOutputStream json, T data) {
+    final ReusableByteArrayOutputStream binary = ReusableByteArrayOutputStream.acquire();
+    try {
+      try (JsonParser parser = BundleEncoding.JSON.getFactory().createParser(json.toInputStream());
+          JsonGenerator generator = encoding.getFactory().createGenerator(binary)) {
+        parser.nextToken();
+        generator.copyCurrentStructure(parser);
+      } catch (IOException e) {
+        throw new SerializationException(
+            String.format("Failed to encode resource %s as %s", data.getId(), encoding), e);
+      }
+      return binary.toByteArray();
+    } finally {
+      binary.release();
+    }
   }
 }
@@ -0,0 +1,7 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.serde;
+
+import de.unimarburg.diz.nexuspathotofhir.model.PathoReport;
+import org.springframework.kafka.support.serializer.JsonSerde;
+
+public class PathoReportSerde extends JsonSerde<PathoReport> {}
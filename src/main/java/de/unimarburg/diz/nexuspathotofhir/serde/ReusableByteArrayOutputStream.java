@@ -0,0 +1,45 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.serde;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayDeque;
+
+/**
+ * Per thread output buffers which grow to the largest encoded record and are reused afterwards.
+ * Buffers above {@link #MAX_RETAINED_SIZE} are dropped after use, so a single huge bundle does not
+ * pin its memory forever.
+ */
+final class ReusableByteArrayOutputStream extends ByteArrayOutputStream {
+
+  static final int INITIAL_SIZE = 64 * 1024;
+  static final int MAX_RETAINED_SIZE = 16 * 1024 * 1024;
+
+  private static final ThreadLocal<ArrayDeque<ReusableByteArrayOutputStream>> buffers =
+      ThreadLocal.withInitial(ArrayDeque::new);
+
+  private ReusableByteArrayOutputStream(int size) {
+    super(size);
+  }
+
+  /** empty buffer of the calling thread, call {@link #release()} when done */
+  static ReusableByteArrayOutputStream acquire() {
+    final ReusableByteArrayOutputStream buffer = buffers.get().pollFirst();
+    if (buffer == null) return new ReusableByteArrayOutputStream(INITIAL_SIZE);
+    buffer.reset();
+    return buffer;
+  }
+
+  void release() {
+    if (buf.length <= MAX_RETAINED_SIZE) buffers.get().offerFirst(this);
+  }
+
+  /** reads the current content without copying, valid until the next write or reset */
+  ByteArrayInputStream toInputStream() {
+    return new ByteArrayInputStream(buf, 0, count);
+  }
+
+  int capacity() {
+    return buf.length;
+  }
+}
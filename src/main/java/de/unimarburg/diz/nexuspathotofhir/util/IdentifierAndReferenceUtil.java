@@ -96,12 +96,18 @@ public class IdentifierAndReferenceUtil {
   }
 
   public static Reference getReferenceTo(String resourceR4Name, Identifier identifier) {
-    return new Reference(
-        String.format(
-            "%s?identifier=%s|%s", resourceR4Name, identifier.getSystem(), identifier.getValue()));
+    return ReferenceTemplate.of(resourceR4Name, identifier.getSystem())
+        .reference(identifier.getValue());
   }
 
   public static Reference getReferenceTo(String resourceR4Name, String value, String system) {
-    return new Reference(String.format("%s?identifier=%s|%s", resourceR4Name, system, value));
+    return ReferenceTemplate.of(resourceR4Name, system).reference(value);
+  }
+
+  /**
+   * @return conditional url {@code <type>?identifier=<system>|<value>}
+   */
+  public static String getConditionalUrl(String resourceR4Name, String system, String value) {
+    return ReferenceTemplate.of(resourceR4Name, system).url(value);
   }
 }
@@ -0,0 +1,41 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.hl7.fhir.r4.model.Reference;
+
+/**
+ * Conditional reference {@code <type>?identifier=<system>|<value>} with the part up to the value
+ * joined once per resource type and identifier system, so building a reference only appends the
+ * value. Templates are cached, the systems of {@code FhirProperties} are fixed at runtime.
+ */
+public final class ReferenceTemplate {
+
+  private static final Map<String, Map<String, ReferenceTemplate>> templates =
+      new ConcurrentHashMap<>();
+
+  private final String prefix;
+
+  private ReferenceTemplate(String resourceType, String system) {
+    this.prefix = resourceType + "?identifier=" + system + "|";
+  }
+
+  /**
+   * @param system identifier system, {@code null} is rendered as "null" like before
+   */
+  public static ReferenceTemplate of(String resourceType, String system) {
+    final String key = String.valueOf(system);
+    return templates
+        .computeIfAbsent(resourceType, type -> new ConcurrentHashMap<>())
+        .computeIfAbsent(key, s -> new ReferenceTemplate(resourceType, s));
+  }
+
+  public String url(String value) {
+    return prefix + value;
+  }
+
+  public Reference reference(String value) {
+    return new Reference(url(value));
+  }
+}
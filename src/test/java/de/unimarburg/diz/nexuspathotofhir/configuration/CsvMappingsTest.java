@@ -2,9 +2,11 @@
 package de.unimarburg.diz.nexuspathotofhir.configuration;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 
 import de.unimarburg.diz.nexuspathotofhir.model.MappingEntry;
 import java.util.Map;
+import org.hl7.fhir.r4.model.Coding;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -31,4 +33,27 @@ class CsvMappingsTest {
     final Map<String, MappingEntry> stringMappingEntryMap = fixture.specimenContainerType();
     assertThat(stringMappingEntryMap.size()).isGreaterThan(10);
   }
+
+  @Test
+  void tablesAreImmutable() {
+    assertThat(fixture.specimenTypes().get(null)).isNull();
+    assertThatThrownBy(() -> fixture.specimenTypes().put("x", fixture.specimenTypes().get("Magen")))
+        .isInstanceOf(UnsupportedOperationException.class);
+  }
+
+  @Test
+  void codingIsCopiedFromTemplate() {
+    final MappingEntry entry = fixture.specimenTypes().get("Magen");
+
+    final Coding first = entry.asFhirCoding();
+    first.setCode("changed");
+    final Coding second = entry.asFhirCoding();
+
+    assertThat(second).isNotSameAs(first);
+    assertThat(second.getCode()).isEqualTo("119379005");
+    assertThat(second.getSystem()).isEqualTo(MappingEntry.SNOMED_SYSTEM);
+    assertThat(second.getVersion()).isEqualTo(MappingEntry.SNOMED_VERSION);
+    assertThat(entry.isMapped()).isTrue();
+    assertThat(fixture.specimenTypes().get("Tube").isMapped()).isFalse();
+  }
 }
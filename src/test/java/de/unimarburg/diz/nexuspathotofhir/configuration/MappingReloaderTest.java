@@ -0,0 +1,78 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappingReloaderTest {
+
+  private static final String HEADER = "localCode,localShortName,snomedCode,snomedDisplayName\n";
+
+  @TempDir Path directory;
+
+  private Path write(String name, String lines) throws IOException {
+    return Files.writeString(directory.resolve(name), HEADER + lines);
+  }
+
+  private CsvMappings csvMappings() throws IOException {
+    return new CsvMappings(
+        write("specimenType.csv", "Magen,,119379005,Specimen from stomach (specimen)\n").toString(),
+        write("specimenExtractionMethod.csv", "Biopsien,,86273004,Biopsy (procedure)\n").toString(),
+        write("specimenContainerType.csv", "1,,434464009,Tissue cassette (physical object)\n")
+            .toString(),
+        write("specimenBodysite.csv", "Magen,,69695003,Stomach structure (body structure)\n")
+            .toString());
+  }
+
+  @Test
+  void reloadsChangedFiles() throws IOException {
+    var meterRegistry = new SimpleMeterRegistry();
+    var csvMappings = csvMappings();
+    var fixture =
+        new MappingReloader(
+            csvMappings, meterRegistry, new MappingDistributionProperties(), false, Duration.ZERO);
+    var before = csvMappings.snapshot();
+
+    assertThat(fixture.reloadIfChanged()).isFalse();
+
+    write(
+        "specimenType.csv",
+        "Magen,,119379005,Specimen from stomach (specimen)\n"
+            + "Magen PE,,122632000,Specimen from stomach obtained by incisional biopsy\n");
+    assertThat(fixture.reloadIfChanged()).isTrue();
+
+    assertThat(csvMappings.snapshot().version()).isEqualTo(2);
+    assertThat(csvMappings.specimenTypes()).containsKey("Magen PE");
+    assertThat(before.specimenTypes()).doesNotContainKey("Magen PE");
+    assertThat(meterRegistry.get(MappingReloader.METRIC_VERSION).gauge().value()).isEqualTo(2.0);
+  }
+
+  @Test
+  void invalidFileKeepsSnapshot() throws IOException {
+    var meterRegistry = new SimpleMeterRegistry();
+    var csvMappings = csvMappings();
+    var fixture =
+        new MappingReloader(
+            csvMappings, meterRegistry, new MappingDistributionProperties(), false, Duration.ZERO);
+
+    write("specimenType.csv", "Magen,,119379005,Stomach\nMagen,,122632000,Stomach biopsy\n");
+
+    assertThat(fixture.reloadIfChanged()).isFalse();
+    assertThat(csvMappings.snapshot().version()).isEqualTo(1);
+    assertThat(csvMappings.specimenTypes().get("Magen").getSnomedCode()).isEqualTo("119379005");
+    assertThat(
+            meterRegistry
+                .get(MappingReloader.METRIC_RELOAD_DURATION)
+                .tag("outcome", "failure")
+                .timer()
+                .count())
+        .isEqualTo(1);
+  }
+}
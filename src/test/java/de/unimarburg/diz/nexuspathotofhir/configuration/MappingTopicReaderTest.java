@@ -0,0 +1,76 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+
+import de.unimarburg.diz.nexuspathotofhir.model.MappingEntry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.kafka.core.ConsumerFactory;
+
+class MappingTopicReaderTest {
+
+  private static final String TOPIC = "patho-mappings";
+
+  private static final MappingEntry STOMACH_BIOPSY =
+      new MappingEntry("Magen PE", "", "122632000", "Stomach biopsy");
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void pollFailureIsRetried() throws InterruptedException {
+    var consumer = new MockConsumer<String, String>(OffsetResetStrategy.EARLIEST);
+    var partition = new TopicPartition(TOPIC, 0);
+    consumer.updatePartitions(TOPIC, List.of(new PartitionInfo(TOPIC, 0, null, null, null)));
+    consumer.updateBeginningOffsets(Map.of(partition, 0L));
+    consumer.updateEndOffsets(Map.of(partition, 1L));
+    consumer.schedulePollTask(
+        () ->
+            consumer.addRecord(
+                new ConsumerRecord<>(
+                    TOPIC, 0, 0L, "specimenType|Magen PE", MappingTopic.encode(STOMACH_BIOPSY))));
+    consumer.setPollException(new KafkaException("broker not available"));
+    ConsumerFactory<String, String> consumerFactory = Mockito.mock(ConsumerFactory.class);
+    Mockito.when(consumerFactory.createConsumer(any(), any(), any(), any())).thenReturn(consumer);
+
+    var csvMappings =
+        new CsvMappings(
+            "src/main/resources/mappings/specimenType.csv",
+            "src/main/resources/mappings/specimenExtractionMethod.csv",
+            "src/main/resources/mappings/specimenContainerType.csv",
+            "");
+    var distribution = new MappingDistributionProperties();
+    distribution.setMode(MappingDistributionProperties.Mode.TOPIC);
+    var meterRegistry = new SimpleMeterRegistry();
+    var fixture = new MappingTopicReader(csvMappings, distribution, consumerFactory, meterRegistry);
+
+    fixture.start();
+    try {
+      await()
+          .atMost(Duration.ofSeconds(5))
+          .until(() -> fixture.health().getStatus().equals(Status.DOWN));
+      await()
+          .atMost(MappingTopicReader.INITIAL_BACKOFF.plusSeconds(5))
+          .until(() -> csvMappings.snapshot().version() == 2);
+
+      assertThat(csvMappings.specimenTypes()).containsOnlyKeys("Magen PE");
+      assertThat(fixture.health().getStatus()).isEqualTo(Status.UP);
+      assertThat(meterRegistry.get(MappingTopicReader.METRIC_FAILURES).counter().count())
+          .isEqualTo(1.0);
+    } finally {
+      fixture.stop();
+    }
+  }
+}
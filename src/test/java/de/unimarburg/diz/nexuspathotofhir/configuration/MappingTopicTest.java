@@ -0,0 +1,112 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import de.unimarburg.diz.nexuspathotofhir.model.MappingEntry;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+class MappingTopicTest {
+
+  private static final String TOPIC = "patho-mappings";
+
+  private static final MappingEntry STOMACH =
+      new MappingEntry("Magen", "", "119379005", "Specimen from stomach (specimen)");
+  private static final MappingEntry CASSETTE =
+      new MappingEntry("1", "Kassette", "434464009", "Tissue cassette (physical object)");
+
+  private static MappingSnapshot snapshot(Map<String, MappingEntry> specimenTypes) {
+    return new MappingSnapshot(1L, specimenTypes, Map.of(), Map.of("1", CASSETTE), Map.of());
+  }
+
+  @Test
+  void recordsRoundTrip() {
+    var snapshot = snapshot(Map.of("Magen", STOMACH));
+
+    var records = MappingTopic.records(snapshot);
+    var read = MappingTopic.snapshot(7L, records);
+
+    assertThat(records).containsKeys("specimenType|Magen", "specimenContainerType|1");
+    assertThat(read.version()).isEqualTo(7L);
+    assertThat(read.specimenTypes()).isEqualTo(snapshot.specimenTypes());
+    assertThat(read.specimenContainerTypes()).isEqualTo(snapshot.specimenContainerTypes());
+    assertThat(read.specimenBodysites()).isEmpty();
+  }
+
+  @Test
+  void invalidRecordsAreSkipped() {
+    var records =
+        Map.of(
+            "specimenType|Magen", MappingTopic.encode(STOMACH),
+            "unknown|Magen", MappingTopic.encode(STOMACH),
+            "specimenType|Darm", "{");
+
+    assertThat(MappingTopic.snapshot(1L, records).specimenTypes()).containsOnlyKeys("Magen");
+  }
+
+  @Test
+  void changesContainTombstones() {
+    var current = MappingTopic.records(snapshot(Map.of("Magen", STOMACH)));
+    var changed = new MappingEntry("Magen", "", "122632000", "Stomach biopsy");
+    var next = MappingTopic.records(snapshot(Map.of("Magen PE", changed)));
+
+    var changes = MappingTopic.changes(current, next);
+
+    assertThat(changes)
+        .containsOnly(
+            entry("specimenType|Magen", null),
+            entry("specimenType|Magen PE", MappingTopic.encode(changed)));
+    assertThat(MappingTopic.changes(next, next)).isEmpty();
+  }
+
+  @Test
+  void readAllAppliesTombstones() {
+    var consumer = new MockConsumer<String, String>(OffsetResetStrategy.EARLIEST);
+    var partition = new TopicPartition(TOPIC, 0);
+    consumer.updatePartitions(TOPIC, List.of(new PartitionInfo(TOPIC, 0, null, null, null)));
+    consumer.updateBeginningOffsets(Map.of(partition, 0L));
+    consumer.updateEndOffsets(Map.of(partition, 3L));
+    consumer.schedulePollTask(
+        () -> {
+          consumer.addRecord(
+              new ConsumerRecord<>(TOPIC, 0, 0L, "specimenType|Magen", "{\"localCode\":\"x\"}"));
+          consumer.addRecord(
+              new ConsumerRecord<>(
+                  TOPIC, 0, 1L, "specimenType|Magen", MappingTopic.encode(STOMACH)));
+          consumer.addRecord(
+              new ConsumerRecord<>(TOPIC, 0, 2L, "specimenContainerType|1", (String) null));
+        });
+
+    var records = MappingTopic.readAll(consumer, TOPIC, Duration.ofSeconds(5));
+
+    assertThat(records).containsOnly(entry("specimenType|Magen", MappingTopic.encode(STOMACH)));
+  }
+
+  @Test
+  void replaceIncrementsVersion() {
+    var csvMappings =
+        new CsvMappings(
+            "src/main/resources/mappings/specimenType.csv",
+            "src/main/resources/mappings/specimenExtractionMethod.csv",
+            "src/main/resources/mappings/specimenContainerType.csv",
+            "");
+    var records = new HashMap<>(MappingTopic.records(snapshot(Map.of("Magen", STOMACH))));
+
+    var replaced = csvMappings.replace(MappingTopic.snapshot(0L, records));
+
+    assertThat(replaced.version()).isEqualTo(2L);
+    assertThat(csvMappings.specimenTypes()).containsOnlyKeys("Magen");
+    assertThat(csvMappings.specimenContainerType().get("1").getLocalShortName())
+        .isEqualTo("Kassette");
+  }
+}
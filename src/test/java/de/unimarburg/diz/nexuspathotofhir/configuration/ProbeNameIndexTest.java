@@ -0,0 +1,101 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.unimarburg.diz.nexuspathotofhir.model.MappingEntry;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class ProbeNameIndexTest {
+
+  private static final Map<String, MappingEntry> TYPES =
+      Map.of(
+          "Mamma", new MappingEntry("Mamma", "", "127456000", "Specimen from breast"),
+          "Mamma li", new MappingEntry("Mamma li", "", "735198008", "Specimen from left breast"),
+          "Mamma re", new MappingEntry("Mamma re", "", "735197003", "Specimen from right breast"),
+          "Magen", new MappingEntry("Magen", "", "119379005", "Specimen from stomach"),
+          "Prostata", new MappingEntry("Prostata", "", "119386002", "Specimen from prostate"));
+
+  private static String codeOf(ProbeNameIndex index, String probeName) {
+    final MappingEntry entry = index.get(probeName);
+    return entry != null ? entry.getSnomedCode() : null;
+  }
+
+  @Test
+  void normalizesCaseWhitespaceAndPunctuation() {
+    var fixture = new ProbeNameIndex("specimen type", TYPES, false);
+
+    assertThat(codeOf(fixture, "Mamma li")).isEqualTo("735198008");
+    assertThat(codeOf(fixture, " mamma  LI. ")).isEqualTo("735198008");
+    assertThat(codeOf(fixture, "Mamma-re")).isEqualTo("735197003");
+    assertThat(codeOf(fixture, "Mamma links")).isNull();
+    assertThat(codeOf(fixture, null)).isNull();
+  }
+
+  @Test
+  void matchesAbbreviations() {
+    var fixture = new ProbeNameIndex("specimen type", TYPES, true);
+
+    assertThat(codeOf(fixture, "Mam li")).isEqualTo("735198008");
+    assertThat(codeOf(fixture, "Mam re")).isEqualTo("735197003");
+    assertThat(codeOf(fixture, "Mam")).isEqualTo("127456000");
+    // single letter tokens are too short to tell abbreviations apart
+    assertThat(codeOf(fixture, "M")).isNull();
+  }
+
+  @Test
+  void keysDoNotAbbreviateTheInput() {
+    var fixture = new ProbeNameIndex("specimen type", TYPES, true);
+
+    assertThat(codeOf(fixture, "Mamma Lipom")).isNull();
+    assertThat(codeOf(fixture, "Mamma links")).isNull();
+    assertThat(codeOf(fixture, "Mamma rechts")).isNull();
+  }
+
+  @Test
+  void fuzzyMatchesAreCountedOncePerName() {
+    var matches = new AtomicInteger();
+    var fixture = new ProbeNameIndex("specimen type", TYPES, true, matches::incrementAndGet);
+
+    codeOf(fixture, "Mam li");
+    codeOf(fixture, "Mam li");
+    codeOf(fixture, "Prostatta");
+    codeOf(fixture, "Mamma li");
+    codeOf(fixture, "Mamma Lipom");
+
+    assertThat(matches).hasValue(2);
+  }
+
+  @Test
+  void matchesSmallEditDistance() {
+    var fixture = new ProbeNameIndex("specimen type", TYPES, true);
+
+    assertThat(codeOf(fixture, "Prostatta")).isEqualTo("119386002");
+    assertThat(codeOf(fixture, "Prostatxx")).isNull();
+    // too short for edit distance matching
+    assertThat(codeOf(fixture, "Magn")).isNull();
+  }
+
+  @Test
+  void ambiguousMatchesAreRejected() {
+    var fixture =
+        new ProbeNameIndex(
+            "specimen type",
+            Map.of(
+                "Darm li", new MappingEntry("Darm li", "", "1", "left"),
+                "Darm lu", new MappingEntry("Darm lu", "", "2", "lumen")),
+            true);
+
+    assertThat(codeOf(fixture, "Darm l")).isNull();
+    assertThat(codeOf(fixture, "Darm la")).isNull();
+  }
+
+  @Test
+  void distanceStopsAtLimit() {
+    assertThat(ProbeNameIndex.distance("prostata", "prostatta", 3)).isEqualTo(1);
+    assertThat(ProbeNameIndex.distance("magen", "mamma", 2)).isEqualTo(2);
+    assertThat(ProbeNameIndex.distance("magen", "magen", 1)).isZero();
+  }
+}
@@ -0,0 +1,113 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.mapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import de.unimarburg.diz.nexuspathotofhir.configuration.CsvMappings;
+import de.unimarburg.diz.nexuspathotofhir.configuration.FhirProperties;
+import de.unimarburg.diz.nexuspathotofhir.configuration.MappingSnapshot;
+import de.unimarburg.diz.nexuspathotofhir.model.PathoReport;
+import de.unimarburg.diz.nexuspathotofhir.model.ReportDocType;
+import de.unimarburg.diz.nexuspathotofhir.util.DummyDataUtilTest;
+import de.unimarburg.diz.nexuspathotofhir.util.IdentifierAndReferenceUtil;
+import de.unimarburg.diz.nexuspathotofhir.util.PathologyIdentifierResourceType;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ReportMappingContextTest {
+
+  private FhirProperties fhirProperties;
+
+  @BeforeEach
+  void setUp() {
+    fhirProperties = new FhirProperties();
+    fhirProperties.getSystems().setPatientId("patientSystem");
+    fhirProperties.getSystems().setEncounterId("encounterSystem");
+    fhirProperties.getSystems().setServiceRequestId("serviceRequestSystem");
+    fhirProperties.getSystems().setDiagnosticFindingId("findingSystem");
+  }
+
+  @Test
+  void derivedValuesMatchDirectMapping() {
+    final PathoReport report = DummyDataUtilTest.getDummyReport();
+
+    var fixture = ReportMappingContext.of(report, fhirProperties);
+
+    assertThat(fixture.patientReference().getReference())
+        .isEqualTo("Patient?identifier=patientSystem|" + report.getPatientennummer());
+    assertThat(fixture.encounterReference().getReference())
+        .isEqualTo("Encounter?identifier=encounterSystem|" + report.getFallnummer());
+    assertThat(fixture.serviceRequestReference().getReference())
+        .isEqualTo("ServiceRequest?identifier=serviceRequestSystem|" + report.getAuftragsnummer());
+    assertThat(fixture.probeEntnahmedatum().getTime()).isEqualTo(report.getProbeEntnahmedatum());
+    assertThat(fixture.docType()).isEqualTo(ReportDocType.MAIN_REPORT);
+
+    var grouper = fixture.grouperIdentifier(PathologyIdentifierResourceType.MACROSCOPIC_GROUPER);
+    assertThat(grouper.getSystem()).isEqualTo("findingSystem");
+    assertThat(grouper.getValue())
+        .isEqualTo(
+            IdentifierAndReferenceUtil.getIdentifier(
+                    report,
+                    PathologyIdentifierResourceType.MACROSCOPIC_GROUPER,
+                    "findingSystem",
+                    "",
+                    report.getBefundtyp(),
+                    report.getBefundID())
+                .getValue());
+    assertThat(fixture.findingIdentifier(ReportMappingContext.FINDING_MICRO).getValue())
+        .isEqualTo(
+            IdentifierAndReferenceUtil.getIdentifier(
+                    report,
+                    PathologyIdentifierResourceType.PATHO_FINDING,
+                    "findingSystem",
+                    "",
+                    report.getBefundtyp(),
+                    report.getBefundID(),
+                    "MICRO")
+                .getValue());
+  }
+
+  @Test
+  void referencesAreNotShared() {
+    var fixture = ReportMappingContext.of(DummyDataUtilTest.getDummyReport(), fhirProperties);
+
+    assertThat(fixture.patientReference()).isNotSameAs(fixture.patientReference());
+    assertThat(fixture.findingIdentifier(ReportMappingContext.FINDING_MACRO))
+        .isNotSameAs(fixture.findingIdentifier(ReportMappingContext.FINDING_MACRO));
+  }
+
+  @Test
+  void invalidValuesFailOnAccess() {
+    final PathoReport report = DummyDataUtilTest.getDummyReport();
+    report.setBefundtyp("Vorbefund");
+    report.setAuftragsnummer(null);
+
+    var fixture = ReportMappingContext.of(report, fhirProperties);
+
+    assertThat(catchThrowable(fixture::docType)).isInstanceOf(IllegalStateException.class);
+    assertThat(catchThrowable(() -> fixture.findingIdentifier(ReportMappingContext.FINDING_MACRO)))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThat(fixture.patientReference().getReference()).endsWith(report.getPatientennummer());
+  }
+
+  @Test
+  void mappersReadTheMappingsOfTheContext() {
+    var csvMappings =
+        new CsvMappings(
+            "src/main/resources/mappings/specimenType.csv",
+            "src/main/resources/mappings/specimenExtractionMethod.csv",
+            "src/main/resources/mappings/specimenContainerType.csv",
+            "src/main/resources/mappings/specimenBodysite.csv");
+    var fixture =
+        ReportMappingContext.of(
+            DummyDataUtilTest.getDummyReport(), fhirProperties, csvMappings.active());
+    // reload while the record is mapped
+    csvMappings.replace(new MappingSnapshot(0, Map.of(), Map.of(), Map.of(), Map.of()));
+
+    var finding = new PathoFindingMacroMapper(fhirProperties, csvMappings).map(fixture);
+
+    assertThat(finding.getCode().getCodingFirstRep().getCode()).isEqualTo("122632000");
+  }
+}
@@ -31,6 +31,7 @@ class SpecimenMapperTest extends FhirValidationBase {
   private static final Logger log = LoggerFactory.getLogger(SpecimenMapperTest.class);
 
   @Autowired SpecimenMapper fixture;
+  @Autowired CsvMappings csvMappings;
 
   @Test
   void emptyInput() {
@@ -129,6 +130,30 @@ class SpecimenMapperTest extends FhirValidationBase {
     assertThat(result.getSubject()).isNotNull();
   }
 
+  @Test
+  void hierarchyHasChildPerSubContainer() {
+    var input = DummyDataUtilTest.getDummySpecimen();
+
+    var entries = fixture.applyHierarchy(input);
+
+    assertThat(entries).hasSize(5);
+    var root = (Specimen) entries.get(0).getResource();
+    assertThat(root.hasParent()).isFalse();
+    assertThat(root.getContainer()).isEmpty();
+
+    var slide = (Specimen) entries.get(1).getResource();
+    var block = (Specimen) entries.get(2).getResource();
+    assertThat(slide.getIdentifierFirstRep().getValue())
+        .isEqualTo(input.getProbeID() + "-specimen-dummy-id-1-1-1");
+    assertThat(slide.getParentFirstRep().getReference())
+        .endsWith("|" + input.getProbeID() + "-specimen-dummy-id-1-1");
+    assertThat(block.getParentFirstRep().getReference()).endsWith("|" + input.getProbeID());
+    assertThat(block.getContainer()).hasSize(1);
+    assertThat(block.getType().getCodingFirstRep().getCode())
+        .isEqualTo(root.getType().getCodingFirstRep().getCode());
+    assertThat(entries.get(1).getRequest().getUrl()).contains("specimen-dummy-id-1-1-1");
+  }
+
   @Test
   public void referencesTest() {
     var input = DummyDataUtilTest.getDummySpecimen();
@@ -164,7 +189,7 @@ class SpecimenMapperTest extends FhirValidationBase {
     Specimen result = new Specimen();
     PathoSpecimen input = DummyDataUtilTest.getDummySpecimen();
     input.setProbeName("fooo");
-    fixture.mapSpecimenType(result, input);
+    fixture.mapSpecimenType(result, input, csvMappings.active());
     assertThat(result.hasType()).isFalse();
   }
 
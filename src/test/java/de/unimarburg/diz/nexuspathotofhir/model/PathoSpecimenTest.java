@@ -20,4 +20,29 @@ public class PathoSpecimenTest {
     assertThat(fix.getSubContainerIdsArray()).isEmpty();
     assertThat(fix.getContainerGUIDsArray()).isEmpty();
   }
+
+  @Test
+  public void containerTreeIsParsedOnce() {
+    var fix = new PathoSpecimen();
+    fix.setContainerLabels("H1, H1-1.1, H1-1.1-1,H1-1.1-2");
+    fix.setContainerGUIDs("g0,g1,g2,g3");
+    fix.setContainerTyps("3,1,2,2");
+    fix.setContainerParents("NA,g0,g1,g1");
+
+    var containers = fix.getContainers();
+
+    assertThat(fix.getContainers()).isSameAs(containers);
+    assertThat(containers.isConsistent()).isTrue();
+    assertThat(containers.rootIndex()).isZero();
+    assertThat(fix.getRootIndex()).isZero();
+    var slide = containers.containers().get(3);
+    assertThat(slide.label()).isEqualTo("H1-1.1-2");
+    assertThat(slide.type()).isEqualTo(SpecimenContainerTyp.MICROSCOPE_SLIDE);
+    assertThat(containers.parent(slide).label()).isEqualTo("H1-1.1");
+    assertThat(containers.parent(containers.containers().get(0))).isNull();
+
+    fix.setContainerTyps("3,1,2");
+    assertThat(fix.getContainers()).isNotSameAs(containers);
+    assertThat(fix.getContainers().isConsistent()).isFalse();
+  }
 }
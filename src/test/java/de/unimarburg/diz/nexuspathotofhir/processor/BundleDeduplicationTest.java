@@ -0,0 +1,118 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.unimarburg.diz.nexuspathotofhir.configuration.CsvMappings;
+import de.unimarburg.diz.nexuspathotofhir.configuration.MappingSnapshot;
+import de.unimarburg.diz.nexuspathotofhir.configuration.ProcessorProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Produced;
+import org.apache.kafka.streams.test.TestRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BundleDeduplicationTest {
+
+  private static final String BINDING = "test";
+  private static final Duration RETENTION = Duration.ofMinutes(10);
+
+  private CsvMappings csvMappings;
+  private TopologyTestDriver driver;
+  private TestInputTopic<String, String> input;
+  private TestOutputTopic<String, String> output;
+
+  @BeforeEach
+  void setUp() {
+    csvMappings =
+        new CsvMappings(
+            "src/main/resources/mappings/specimenType.csv",
+            "src/main/resources/mappings/specimenExtractionMethod.csv",
+            "src/main/resources/mappings/specimenContainerType.csv",
+            "src/main/resources/mappings/specimenBodysite.csv");
+    var properties = new ProcessorProperties();
+    properties.getDeduplication().setEnabled(true);
+    properties.getDeduplication().setRetention(RETENTION);
+    var fixture = new BundleDeduplication(properties, new SimpleMeterRegistry(), csvMappings);
+
+    var builder = new StreamsBuilder();
+    KStream<String, String> records =
+        fixture.apply(
+            builder.stream("input", Consumed.with(Serdes.String(), Serdes.String())),
+            Serdes.String(),
+            BINDING);
+    // "fail" stands for a record which could not be mapped
+    fixture
+        .remember(records.filter((k, v) -> !v.equals("fail")).mapValues(v -> v + "!"), BINDING)
+        .to("output", Produced.with(Serdes.String(), Serdes.String()));
+
+    var config = new Properties();
+    config.put(StreamsConfig.APPLICATION_ID_CONFIG, "test-bundle-deduplication");
+    config.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+    driver = new TopologyTestDriver(builder.build(), config);
+    input = driver.createInputTopic("input", new StringSerializer(), new StringSerializer());
+    output = driver.createOutputTopic("output", new StringDeserializer(), new StringDeserializer());
+  }
+
+  @AfterEach
+  void tearDown() {
+    driver.close();
+  }
+
+  @Test
+  void unchangedRecordIsSkipped() {
+    input.pipeInput("k1", "a");
+    input.pipeInput("k1", "a");
+    input.pipeInput("k2", "a");
+    input.pipeInput("k1", "b");
+
+    final List<TestRecord<String, String>> records = output.readRecordsToList();
+    assertThat(records).extracting(TestRecord::value).containsExactly("a!", "a!", "b!");
+    assertThat(records)
+        .extracting(r -> r.headers().lastHeader(BundleDeduplication.HEADER_FINGERPRINT))
+        .containsOnlyNulls();
+  }
+
+  @Test
+  void failedRecordIsNotRemembered() {
+    input.pipeInput("k1", "fail");
+    input.pipeInput("k1", "fail");
+
+    assertThat(output.isEmpty()).isTrue();
+    assertThat(driver.getTimestampedKeyValueStore(BundleDeduplication.storeName(BINDING)).get("k1"))
+        .isNull();
+  }
+
+  @Test
+  void fingerprintsExpire() {
+    input.pipeInput("k1", "a");
+    driver.advanceWallClockTime(RETENTION.plusMinutes(1));
+    input.pipeInput("k1", "a");
+
+    assertThat(output.readValuesToList()).containsExactly("a!", "a!");
+  }
+
+  @Test
+  void changedMappingMapsAgain() {
+    input.pipeInput("k1", "a");
+    csvMappings.replace(new MappingSnapshot(0, Map.of(), Map.of(), Map.of(), Map.of()));
+    input.pipeInput("k1", "a");
+
+    assertThat(output.readValuesToList()).containsExactly("a!", "a!");
+  }
+}
@@ -0,0 +1,165 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.unimarburg.diz.nexuspathotofhir.configuration.ProcessorProperties;
+import de.unimarburg.diz.nexuspathotofhir.serde.FhirDeserializer;
+import de.unimarburg.diz.nexuspathotofhir.serde.FhirSerializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Produced;
+import org.hl7.fhir.r4.model.Annotation;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Specimen;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.jupiter.api.Test;
+
+public class BundleSplitterTest {
+
+  private static Bundle bundle(int entries, int textLength) {
+    var bundle = new Bundle().setType(Bundle.BundleType.BATCH);
+    bundle.setId("bundle-id");
+    for (int i = 0; i < entries; i++) {
+      bundle
+          .addEntry()
+          .setResource(new Observation().setValueString("x".repeat(textLength)))
+          .getRequest()
+          .setMethod(Bundle.HTTPVerb.PUT)
+          .setUrl("Observation?identifier=system|" + i);
+    }
+    return bundle;
+  }
+
+  private static BundleSplitter splitter(int maxBytes, SimpleMeterRegistry meterRegistry) {
+    var properties = new ProcessorProperties();
+    properties.getSplitting().setMaxBytes(maxBytes);
+    return new BundleSplitter(properties, meterRegistry);
+  }
+
+  @Test
+  void smallBundleIsNotSplit() {
+    var bundle = bundle(3, 10);
+
+    assertThat(splitter(10_000, new SimpleMeterRegistry()).split(bundle))
+        .singleElement()
+        .isSameAs(bundle);
+  }
+
+  @Test
+  void entriesArePackedInOrderBelowMaxSize() {
+    var bundle = bundle(10, 1000);
+    final int maxBytes = 4000;
+
+    var parts = splitter(maxBytes, new SimpleMeterRegistry()).split(bundle);
+
+    assertThat(parts).hasSize(4);
+    assertThat(parts)
+        .flatExtracting(Bundle::getEntry)
+        .containsExactlyElementsOf(bundle.getEntry());
+    for (var part : parts) {
+      var encoded = new FhirSerializer<Bundle>().serialize("topic", part);
+      assertThat(encoded.length).isLessThanOrEqualTo(maxBytes);
+      assertThat(part.getType()).isEqualTo(Bundle.BundleType.BATCH);
+    }
+    assertThat(parts.get(1).getIdPart()).isEqualTo("bundle-id-1");
+  }
+
+  @Test
+  void estimateIsNotBelowEncodedSize() {
+    var bundle = bundle(1, 0);
+    var entry = bundle.getEntryFirstRep();
+    var text = "Befund:\n\"größer\" 5 cm\t".repeat(50);
+    ((Observation) entry.getResource()).setValue(new StringType(text));
+
+    final long encoded = new FhirSerializer<Bundle>().serialize("topic", bundle).length;
+
+    assertThat(BundleSplitter.BUNDLE_OVERHEAD + BundleSplitter.estimateSize(entry))
+        .isGreaterThanOrEqualTo(encoded);
+  }
+
+  @Test
+  void singleOversizedEntryIsCounted() {
+    var bundle = new Bundle().setType(Bundle.BundleType.BATCH);
+    bundle.setId("bundle-id");
+    bundle
+        .addEntry()
+        .setResource(new Specimen().addNote(new Annotation().setText("x".repeat(5000))))
+        .getRequest()
+        .setMethod(Bundle.HTTPVerb.PUT)
+        .setUrl("Specimen?identifier=system|0");
+    var meterRegistry = new SimpleMeterRegistry();
+    var builder = new StreamsBuilder();
+    var bundleSerde =
+        Serdes.serdeFrom(new FhirSerializer<Bundle>(), new FhirDeserializer<>(Bundle.class));
+    splitter(4000, meterRegistry)
+        .apply(builder.stream("input", Consumed.with(Serdes.String(), bundleSerde)), "processTest")
+        .to("output", Produced.with(Serdes.String(), bundleSerde));
+
+    var config = new Properties();
+    config.put(StreamsConfig.APPLICATION_ID_CONFIG, "test-split-oversized");
+    config.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+    try (var testDriver = new TopologyTestDriver(builder.build(), config)) {
+      testDriver
+          .createInputTopic("input", new StringSerializer(), bundleSerde.serializer())
+          .pipeInput("key", bundle);
+
+      var records =
+          testDriver
+              .createOutputTopic("output", new StringDeserializer(), bundleSerde.deserializer())
+              .readRecordsToList();
+
+      assertThat(records).singleElement().extracting(r -> r.value().getEntry().size()).isEqualTo(1);
+      assertThat(meterRegistry.get(BundleSplitter.METRIC_OVERSIZED_ENTRIES).counter().count())
+          .isEqualTo(1.0);
+      assertThat(meterRegistry.get(BundleSplitter.METRIC_SPLIT).counter().count()).isZero();
+    }
+  }
+
+  @Test
+  void partsCarryHeaders() {
+    var meterRegistry = new SimpleMeterRegistry();
+    var builder = new StreamsBuilder();
+    var bundleSerde =
+        Serdes.serdeFrom(new FhirSerializer<Bundle>(), new FhirDeserializer<>(Bundle.class));
+    splitter(4000, meterRegistry)
+        .apply(builder.stream("input", Consumed.with(Serdes.String(), bundleSerde)), "processTest")
+        .to("output", Produced.with(Serdes.String(), bundleSerde));
+
+    var config = new Properties();
+    config.put(StreamsConfig.APPLICATION_ID_CONFIG, "test-split");
+    config.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+    try (var testDriver = new TopologyTestDriver(builder.build(), config)) {
+      testDriver
+          .createInputTopic("input", new StringSerializer(), bundleSerde.serializer())
+          .pipeInput("key", bundle(10, 1000));
+
+      var records =
+          testDriver
+              .createOutputTopic("output", new StringDeserializer(), bundleSerde.deserializer())
+              .readRecordsToList();
+
+      assertThat(records).hasSize(4);
+      for (int i = 0; i < records.size(); i++) {
+        var headers = records.get(i).headers();
+        assertThat(records.get(i).key()).isEqualTo("key");
+        assertThat(headers.lastHeader(BundleSplitter.HEADER_BUNDLE_ID).value())
+            .isEqualTo("bundle-id".getBytes(StandardCharsets.UTF_8));
+        assertThat(headers.lastHeader(BundleSplitter.HEADER_PART).value())
+            .isEqualTo(Integer.toString(i).getBytes(StandardCharsets.UTF_8));
+        assertThat(headers.lastHeader(BundleSplitter.HEADER_PARTS).value())
+            .isEqualTo("4".getBytes(StandardCharsets.UTF_8));
+      }
+      assertThat(meterRegistry.get(BundleSplitter.METRIC_SPLIT).counter().count()).isEqualTo(1.0);
+    }
+  }
+}
@@ -0,0 +1,148 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import com.google.common.base.Throwables;
+import de.unimarburg.diz.nexuspathotofhir.configuration.ProcessorProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Produced;
+import org.apache.kafka.streams.test.TestRecord;
+import org.hl7.fhir.r4.model.Bundle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class DeadLetterHandlerTest {
+
+  private static final String BINDING = "processTest";
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private TopologyTestDriver testDriver;
+  private TestInputTopic<String, String> inputTopic;
+  private TestOutputTopic<String, String> outputTopic;
+  private TestOutputTopic<String, String> deadLetterTopic;
+
+  private void setup(int maxPerMinute) {
+    var properties = new ProcessorProperties();
+    properties.getDeadLetter().setMaxPerMinute(maxPerMinute);
+    var handler = new DeadLetterHandler(properties, meterRegistry);
+
+    var builder = new StreamsBuilder();
+    handler
+        .apply(
+            builder.stream("input", Consumed.with(Serdes.String(), Serdes.String())),
+            DeadLetterHandlerTest::map,
+            Serdes.String(),
+            BINDING)
+        .mapValues(Bundle::getId)
+        .to("output", Produced.with(Serdes.String(), Serdes.String()));
+
+    var config = new Properties();
+    config.put(StreamsConfig.APPLICATION_ID_CONFIG, "test-dead-letter");
+    config.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+    testDriver = new TopologyTestDriver(builder.build(), config);
+    inputTopic =
+        testDriver.createInputTopic("input", new StringSerializer(), new StringSerializer());
+    outputTopic =
+        testDriver.createOutputTopic("output", new StringDeserializer(), new StringDeserializer());
+    deadLetterTopic =
+        testDriver.createOutputTopic(
+            properties.getDeadLetter().topicOf(BINDING),
+            new StringDeserializer(),
+            new StringDeserializer());
+  }
+
+  private static Bundle map(String value) {
+    if (value.startsWith("invalid")) throw new IllegalArgumentException("cannot map " + value);
+    return (Bundle) new Bundle().setId(value);
+  }
+
+  private static String headerValue(Headers headers, String key) {
+    return new String(headers.lastHeader(key).value(), StandardCharsets.UTF_8);
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (testDriver != null) testDriver.close();
+  }
+
+  @Test
+  void failedRecordIsDeadLetteredAndProcessingContinues() {
+    setup(10);
+
+    inputTopic.pipeInput("key1", "invalid-1");
+    inputTopic.pipeInput("key2", "valid-2");
+
+    assertThat(outputTopic.readValuesToList()).containsExactly("valid-2");
+
+    var deadLettered = deadLetterTopic.readRecordsToList();
+    assertThat(deadLettered).hasSize(1);
+    assertThat(deadLettered.getFirst().key()).isEqualTo("key1");
+    assertThat(deadLettered.getFirst().value()).isEqualTo("invalid-1");
+    var headers = deadLettered.getFirst().headers();
+    assertThat(headerValue(headers, DeadLetterHandler.HEADER_REASON))
+        .isEqualTo("IllegalArgumentException");
+    assertThat(headerValue(headers, DeadLetterHandler.HEADER_MESSAGE))
+        .isEqualTo("cannot map invalid-1");
+    assertThat(headerValue(headers, DeadLetterHandler.HEADER_BINDING)).isEqualTo(BINDING);
+
+    assertThat(
+            meterRegistry
+                .get(DeadLetterHandler.METRIC_DEAD_LETTERED)
+                .tag("binding", BINDING)
+                .tag("reason", "IllegalArgumentException")
+                .counter()
+                .count())
+        .isEqualTo(1.0);
+  }
+
+  @Test
+  void pipelineHeadersAreNotDeadLettered() {
+    setup(10);
+    var headers = new RecordHeaders();
+    headers.add("x-source", "nexus".getBytes(StandardCharsets.UTF_8));
+    headers.add(BundleDeduplication.HEADER_FINGERPRINT, new byte[Long.BYTES]);
+    headers.add(LatencyTracking.HEADER_PROCESSING_START, "1".getBytes(StandardCharsets.UTF_8));
+    headers.add(DeadLetterHandler.HEADER_BINDING, "earlier".getBytes(StandardCharsets.UTF_8));
+
+    inputTopic.pipeInput(new TestRecord<>("key1", "invalid-1", headers));
+
+    var deadLettered = deadLetterTopic.readRecord().headers();
+    assertThat(deadLettered.toArray())
+        .extracting(Header::key)
+        .containsExactlyInAnyOrder(
+            "x-source",
+            DeadLetterHandler.HEADER_REASON,
+            DeadLetterHandler.HEADER_MESSAGE,
+            DeadLetterHandler.HEADER_BINDING);
+    assertThat(headerValue(deadLettered, DeadLetterHandler.HEADER_BINDING)).isEqualTo(BINDING);
+  }
+
+  @Test
+  void exceededRateIsEscalated() {
+    setup(2);
+
+    inputTopic.pipeInput("key1", "invalid-1");
+    inputTopic.pipeInput("key2", "invalid-2");
+    var thrown = catchThrowable(() -> inputTopic.pipeInput("key3", "invalid-3"));
+
+    assertThat(Throwables.getCausalChain(thrown))
+        .hasAtLeastOneElementOfType(DeadLetterRateExceededException.class);
+    assertThat(deadLetterTopic.readValuesToList()).containsExactly("invalid-1", "invalid-2");
+  }
+}
@@ -0,0 +1,100 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.unimarburg.diz.nexuspathotofhir.configuration.ProcessorProperties;
+import de.unimarburg.diz.nexuspathotofhir.model.PathoReport;
+import de.unimarburg.diz.nexuspathotofhir.serde.FhirDeserializer;
+import de.unimarburg.diz.nexuspathotofhir.serde.FhirSerializer;
+import de.unimarburg.diz.nexuspathotofhir.serde.PathoReportSerde;
+import de.unimarburg.diz.nexuspathotofhir.util.DummyDataUtilTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Produced;
+import org.hl7.fhir.r4.model.Bundle;
+import org.junit.jupiter.api.Test;
+
+public class LatencyTrackingTest {
+
+  /** time taken by the mapping */
+  private static final long MAPPING_MILLIS = 20;
+
+  private static Bundle slowMapping() {
+    try {
+      Thread.sleep(MAPPING_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return new Bundle().setType(Bundle.BundleType.BATCH);
+  }
+
+  @Test
+  void bundlesCarryLatencyHeaders() {
+    var meterRegistry = new SimpleMeterRegistry();
+    var latency = new LatencyTracking(new ProcessorProperties(), meterRegistry);
+    var bundleSerde =
+        Serdes.serdeFrom(new FhirSerializer<Bundle>(), new FhirDeserializer<>(Bundle.class));
+
+    var builder = new StreamsBuilder();
+    var reports =
+        latency.start(
+            builder.stream("input", Consumed.with(Serdes.String(), new PathoReportSerde())),
+            PathoReport::getLetzteBearbeitungsdatum,
+            "processTest");
+    var bundles = reports.mapValues(report -> slowMapping());
+    latency
+        .emit(bundles, "processTest")
+        .to("output", Produced.with(Serdes.String(), bundleSerde));
+
+    var config = new Properties();
+    config.put(StreamsConfig.APPLICATION_ID_CONFIG, "test-latency");
+    config.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+    try (var testDriver = new TopologyTestDriver(builder.build(), config)) {
+      final long before = System.currentTimeMillis();
+      var report = DummyDataUtilTest.getDummyReport();
+      report.setLetzteBearbeitungsdatum(before - 60_000);
+      testDriver
+          .createInputTopic("input", new StringSerializer(), new PathoReportSerde().serializer())
+          .pipeInput("key", report, before - 5_000);
+      final long after = System.currentTimeMillis();
+
+      var headers =
+          testDriver
+              .createOutputTopic("output", new StringDeserializer(), bundleSerde.deserializer())
+              .readRecord()
+              .headers();
+
+      final long start =
+          LatencyTracking.longValue(headers, LatencyTracking.HEADER_PROCESSING_START);
+      final long emitted = LatencyTracking.longValue(headers, LatencyTracking.HEADER_EMITTED);
+      assertThat(start).isBetween(before, after);
+      assertThat(emitted).isBetween(start + MAPPING_MILLIS, after);
+      assertThat(LatencyTracking.longValue(headers, LatencyTracking.HEADER_SOURCE_MODIFIED))
+          .isEqualTo(before - 60_000);
+      assertThat(LatencyTracking.longValue(headers, LatencyTracking.HEADER_QUEUE_LATENCY))
+          .isBetween(5_000L, after - before + 5_000);
+      assertThat(LatencyTracking.longValue(headers, LatencyTracking.HEADER_PROCESSING_LATENCY))
+          .isBetween(MAPPING_MILLIS, after - before);
+      assertThat(LatencyTracking.longValue(headers, LatencyTracking.HEADER_SOURCE_LATENCY))
+          .isEqualTo(emitted - (before - 60_000));
+      assertThat(headers.lastHeader(LatencyTracking.HEADER_PROCESSING_START_NANOS)).isNull();
+      assertThat(
+              meterRegistry
+                  .get(LatencyTracking.METRIC_PROCESSING)
+                  .tag("binding", "processTest")
+                  .timer()
+                  .totalTime(TimeUnit.MILLISECONDS))
+          .isGreaterThanOrEqualTo(MAPPING_MILLIS);
+      assertThat(meterRegistry.get(LatencyTracking.METRIC_QUEUE).timer().count()).isEqualTo(1);
+    }
+  }
+}
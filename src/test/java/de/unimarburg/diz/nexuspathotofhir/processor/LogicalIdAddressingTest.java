@@ -0,0 +1,77 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.unimarburg.diz.nexuspathotofhir.configuration.ProcessorProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Reference;
+import org.junit.jupiter.api.Test;
+
+public class LogicalIdAddressingTest {
+
+  private static final String SYSTEM = "https://test/sid";
+
+  private static LogicalIdAddressing createFixture() {
+    var properties = new ProcessorProperties();
+    properties.getLogicalIds().setEnabled(true);
+    return new LogicalIdAddressing(properties, new SimpleMeterRegistry());
+  }
+
+  @Test
+  void rewritesRequestsAndReferences() {
+    var observation =
+        new Observation()
+            .addIdentifier(new Identifier().setSystem(SYSTEM).setValue("O-1"))
+            .setSubject(new Reference("Patient?identifier=" + SYSTEM + "|P-1"))
+            .addBasedOn(new Reference("ServiceRequest?identifier=" + SYSTEM + "|S-1"));
+    var bundle = new Bundle().setType(Bundle.BundleType.BATCH);
+    bundle
+        .addEntry()
+        .setResource(observation)
+        .getRequest()
+        .setMethod(Bundle.HTTPVerb.PUT)
+        .setUrl("Observation?identifier=" + SYSTEM + "|O-1");
+    bundle
+        .addEntry()
+        .getRequest()
+        .setMethod(Bundle.HTTPVerb.DELETE)
+        .setUrl("Specimen?identifier=" + SYSTEM + "|H1-1");
+
+    createFixture().rewrite(bundle);
+
+    final String observationId = LogicalIdAddressing.logicalId(SYSTEM, "O-1");
+    assertThat(bundle.getEntry().get(0).getRequest().getUrl())
+        .isEqualTo("Observation/" + observationId);
+    assertThat(observation.getIdElement().getIdPart()).isEqualTo(observationId);
+    assertThat(observation.getBasedOnFirstRep().getReference())
+        .isEqualTo("ServiceRequest/" + LogicalIdAddressing.logicalId(SYSTEM, "S-1"));
+    assertThat(observation.getSubject().getReference())
+        .as("patients are not written by this processor")
+        .isEqualTo("Patient?identifier=" + SYSTEM + "|P-1");
+    assertThat(bundle.getEntry().get(1).getRequest().getUrl())
+        .isEqualTo("Specimen/" + LogicalIdAddressing.logicalId(SYSTEM, "H1-1"));
+  }
+
+  @Test
+  void idsAreStableAndDistinct() {
+    assertThat(LogicalIdAddressing.logicalId(SYSTEM, "O-1"))
+        .isEqualTo(LogicalIdAddressing.logicalId(SYSTEM, "O-1"))
+        .isNotEqualTo(LogicalIdAddressing.logicalId(SYSTEM, "O-2"))
+        .isNotEqualTo(LogicalIdAddressing.logicalId(SYSTEM + "2", "O-1"))
+        .matches("[0-9a-f]{16}");
+  }
+
+  @Test
+  void ignoresLiteralAndUnknownUrls() {
+    var fixture = createFixture();
+
+    assertThat(fixture.literalOf("Observation/123")).isNull();
+    assertThat(fixture.literalOf("Observation?identifier=O-1")).isNull();
+    assertThat(fixture.literalOf("Encounter?identifier=" + SYSTEM + "|E-1")).isNull();
+    assertThat(fixture.literalOf(null)).isNull();
+  }
+}
@@ -0,0 +1,176 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+
+import de.unimarburg.diz.nexuspathotofhir.configuration.FhirProperties;
+import de.unimarburg.diz.nexuspathotofhir.configuration.ProcessorProperties;
+import de.unimarburg.diz.nexuspathotofhir.mapper.ReportMappingContext;
+import de.unimarburg.diz.nexuspathotofhir.mapper.ToFhirMapper;
+import de.unimarburg.diz.nexuspathotofhir.util.DummyDataUtilTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Observation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.mockito.Mockito;
+
+public class MapperFanOutExecutorTest {
+
+  private static final String BINDING = "processPathoReport";
+
+  private static MapperFanOutExecutor createFixture(
+      MapperExecutionMode mode, Duration timeout, SimpleMeterRegistry registry) {
+    var properties = new ProcessorProperties();
+    properties.getMapperExecutor().setMode(mode);
+    properties.getMapperExecutor().setPoolSize(2);
+    properties.getMapperExecutor().setTimeout(timeout);
+    return new MapperFanOutExecutor(properties, registry);
+  }
+
+  private static ReportMappingContext context() {
+    return ReportMappingContext.of(DummyDataUtilTest.getDummyReport(), new FhirProperties());
+  }
+
+  private static ToFhirMapper mapperReturning(String id, long delayMillis) {
+    var mapper = Mockito.mock(ToFhirMapper.class);
+    Mockito.when(mapper.apply(any(ReportMappingContext.class)))
+        .thenAnswer(
+            invocation -> {
+              Thread.sleep(delayMillis);
+              return new Bundle.BundleEntryComponent().setResource(new Observation().setId(id));
+            });
+    return mapper;
+  }
+
+  @ParameterizedTest
+  @EnumSource(MapperExecutionMode.class)
+  public void entriesKeepMapperOrder(MapperExecutionMode mode) {
+    var registry = new SimpleMeterRegistry();
+    var fixture = createFixture(mode, Duration.ofSeconds(5), registry);
+    final ReportMappingContext context = context();
+
+    var result =
+        fixture.map(
+            List.of(mapperReturning("1", 200), mapperReturning("2", 0), mapperReturning("3", 50)),
+            context,
+            BINDING);
+
+    assertThat(result)
+        .extracting(e -> e.getResource().getIdElement().getIdPart())
+        .containsExactly("1", "2", "3");
+    assertThat(
+            registry
+                .find(MapperFanOutExecutor.METRIC_MAPPER_DURATION)
+                .tag("binding", BINDING)
+                .timer()
+                .count())
+        .isEqualTo(3);
+    assertThat(registry.find(MapperFanOutExecutor.METRIC_QUEUE_DEPTH).gauge().value())
+        .isEqualTo(0);
+  }
+
+  @ParameterizedTest
+  @EnumSource(
+      value = MapperExecutionMode.class,
+      names = {"POOL", "VIRTUAL", "STRUCTURED"})
+  public void slowMapperTimesOut(MapperExecutionMode mode) {
+    var fixture = createFixture(mode, Duration.ofMillis(100), new SimpleMeterRegistry());
+
+    Throwable thrown =
+        catchThrowable(
+            () ->
+                fixture.map(
+                    List.of(mapperReturning("1", 0), mapperReturning("2", 5000)),
+                    context(),
+                    BINDING));
+
+    assertThat(thrown).isInstanceOf(MapperExecutionException.class);
+  }
+
+  @Test
+  public void fullQueueBlocksInsteadOfMappingOnCaller() {
+    var properties = new ProcessorProperties();
+    properties.getMapperExecutor().setMode(MapperExecutionMode.POOL);
+    properties.getMapperExecutor().setPoolSize(1);
+    properties.getMapperExecutor().setQueueCapacity(1);
+    properties.getMapperExecutor().setTimeout(Duration.ofMillis(200));
+    var registry = new SimpleMeterRegistry();
+    var fixture = new MapperFanOutExecutor(properties, registry);
+    final Thread caller = Thread.currentThread();
+    var onCaller = Mockito.mock(ToFhirMapper.class);
+    Mockito.when(onCaller.apply(any(ReportMappingContext.class)))
+        .thenAnswer(
+            invocation -> {
+              assertThat(Thread.currentThread()).isNotSameAs(caller);
+              return null;
+            });
+
+    final long start = System.nanoTime();
+    Throwable thrown =
+        catchThrowable(
+            () ->
+                fixture.map(
+                    List.of(mapperReturning("1", 5000), mapperReturning("2", 5000), onCaller),
+                    context(),
+                    BINDING));
+
+    assertThat(thrown).isInstanceOf(MapperExecutionException.class);
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+    Mockito.verify(onCaller, Mockito.never()).apply(any(ReportMappingContext.class));
+    assertThat(registry.find(MapperFanOutExecutor.METRIC_QUEUE_DEPTH).gauge().value())
+        .isEqualTo(0);
+    fixture.shutdown();
+  }
+
+  @ParameterizedTest
+  @EnumSource(MapperExecutionMode.class)
+  public void mapperExceptionIsPropagated(MapperExecutionMode mode) {
+    var fixture = createFixture(mode, Duration.ofSeconds(5), new SimpleMeterRegistry());
+    var failing = Mockito.mock(ToFhirMapper.class);
+    Mockito.when(failing.apply(any(ReportMappingContext.class)))
+        .thenThrow(new IllegalStateException("invalid befundtyp"));
+
+    Throwable thrown =
+        catchThrowable(
+            () ->
+                fixture.map(
+                    List.of(mapperReturning("1", 0), failing),
+                    context(),
+                    BINDING));
+
+    assertThat(thrown).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void structuredFailureCancelsSiblingsAndKeepsType() {
+    var fixture =
+        createFixture(
+            MapperExecutionMode.STRUCTURED, Duration.ofSeconds(30), new SimpleMeterRegistry());
+    var failing = Mockito.mock(ToFhirMapper.class);
+    Mockito.when(failing.apply(any(ReportMappingContext.class)))
+        .thenThrow(new IllegalStateException("invalid befundtyp"));
+
+    final long start = System.nanoTime();
+    Throwable thrown =
+        catchThrowable(
+            () ->
+                fixture.map(
+                    List.of(mapperReturning("1", 10_000), failing),
+                    context(),
+                    BINDING));
+
+    assertThat(thrown)
+        .as("dead-letter reason is the mapper failure")
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("invalid befundtyp");
+    assertThat(Duration.ofNanos(System.nanoTime() - start))
+        .as("slow sibling has been cancelled")
+        .isLessThan(Duration.ofSeconds(5));
+  }
+}
@@ -0,0 +1,244 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.unimarburg.diz.nexuspathotofhir.configuration.CsvMappings;
+import de.unimarburg.diz.nexuspathotofhir.configuration.FhirConfiguration;
+import de.unimarburg.diz.nexuspathotofhir.configuration.FhirProperties;
+import de.unimarburg.diz.nexuspathotofhir.configuration.PathoFhirContext;
+import de.unimarburg.diz.nexuspathotofhir.configuration.ProcessorProperties;
+import de.unimarburg.diz.nexuspathotofhir.mapper.*;
+import de.unimarburg.diz.nexuspathotofhir.model.PathoReport;
+import de.unimarburg.diz.nexuspathotofhir.model.PathoSpecimen;
+import de.unimarburg.diz.nexuspathotofhir.serde.FhirDeserializer;
+import de.unimarburg.diz.nexuspathotofhir.serde.FhirSerializer;
+import de.unimarburg.diz.nexuspathotofhir.serde.PathoReportSerde;
+import de.unimarburg.diz.nexuspathotofhir.serde.PathoSpecimenSerde;
+import de.unimarburg.diz.nexuspathotofhir.util.DummyDataUtilTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.*;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Produced;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.ResourceType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+@SpringBootTest(
+    classes = {
+      FhirProperties.class,
+      PathoFhirContext.class,
+      FhirConfiguration.class,
+      CsvMappings.class,
+      DiagnosticConclusionGrouperMapper.class,
+      DiagnosticReportMapper.class,
+      MacroscopicGrouperMapper.class,
+      MicroscopicGrouperMapper.class,
+      ServiceRequestMapper.class,
+      PathoFindingDiagConclusionMapper.class,
+      PathoFindingMacroMapper.class,
+      PathoFindingMicroMapper.class,
+      SpecimenMapper.class,
+      PathologyReportProcessor.class,
+      SpecimenProcessor.class,
+      OrderBundleProcessor.class,
+      ProcessorProperties.class,
+      MapperFanOutExecutor.class,
+      BundleDeduplication.class,
+      DeadLetterHandler.class,
+      BundleSplitter.class,
+      PipelineMetrics.class,
+      LatencyTracking.class,
+      LogicalIdAddressing.class,
+      LatestOrderJoin.class,
+      SpecimenChildDiff.class,
+      ReportCoalescing.class,
+      SimpleMeterRegistry.class,
+    })
+public class OrderBundleProcessorTest {
+
+  @Autowired OrderBundleProcessor processor;
+  @Autowired SimpleMeterRegistry meterRegistry;
+
+  private TopologyTestDriver createDriver(String applicationId) {
+    StreamsBuilder builder = new StreamsBuilder();
+    var specimens =
+        builder.stream("specimen", Consumed.with(Serdes.String(), new PathoSpecimenSerde()));
+    var reports = builder.stream("report", Consumed.with(Serdes.String(), new PathoReportSerde()));
+
+    processor
+        .processPathoOrder()
+        .apply(specimens, reports)
+        .to(
+            "output",
+            Produced.with(
+                Serdes.String(),
+                Serdes.serdeFrom(new FhirSerializer<>(), new FhirDeserializer<>(Bundle.class))));
+
+    Properties config = new Properties();
+    config.put(StreamsConfig.APPLICATION_ID_CONFIG, applicationId);
+    config.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+    return new TopologyTestDriver(builder.build(), config);
+  }
+
+  @Test
+  public void specimenAndReportOfOneOrderAreJoined() {
+    try (var testDriver = createDriver("test-order")) {
+      TestInputTopic<String, PathoSpecimen> specimenTopic =
+          testDriver.createInputTopic(
+              "specimen", new StringSerializer(), new JsonSerializer<PathoSpecimen>());
+      TestInputTopic<String, PathoReport> reportTopic =
+          testDriver.createInputTopic(
+              "report", new StringSerializer(), new JsonSerializer<PathoReport>());
+      TestOutputTopic<String, Bundle> outputTopic =
+          testDriver.createOutputTopic(
+              "output", new StringDeserializer(), new FhirDeserializer<>(Bundle.class));
+
+      var specimen = DummyDataUtilTest.getDummySpecimen();
+      var report = DummyDataUtilTest.getDummyReport();
+      specimenTopic.pipeInput("specimen-key", specimen);
+      reportTopic.pipeInput("report-key", report);
+
+      var result = outputTopic.readRecordsToList();
+      assertThat(result).hasSize(1);
+      assertThat(result.getFirst().getKey()).isEqualTo(report.getAuftragsnummer());
+
+      var entries = result.getFirst().getValue().getEntry();
+      assertThat(entries.getFirst().getResource().getResourceType())
+          .isEqualTo(ResourceType.Specimen);
+      assertThat(entries)
+          .extracting(e -> e.getResource().getResourceType())
+          .contains(
+              ResourceType.ServiceRequest,
+              ResourceType.DiagnosticReport,
+              ResourceType.Observation);
+    }
+  }
+
+  @Test
+  public void onlyLatestVersionsAreJoined() {
+    try (var testDriver = createDriver("test-order-versions")) {
+      TestInputTopic<String, PathoSpecimen> specimenTopic =
+          testDriver.createInputTopic(
+              "specimen", new StringSerializer(), new JsonSerializer<PathoSpecimen>());
+      TestInputTopic<String, PathoReport> reportTopic =
+          testDriver.createInputTopic(
+              "report", new StringSerializer(), new JsonSerializer<PathoReport>());
+      TestOutputTopic<String, Bundle> outputTopic =
+          testDriver.createOutputTopic(
+              "output", new StringDeserializer(), new FhirDeserializer<>(Bundle.class));
+
+      var report1 = DummyDataUtilTest.getDummyReport();
+      report1.setLetzteBearbeitungsdatum(1000L);
+      var report2 = DummyDataUtilTest.getDummyReport();
+      report2.setBefundID(report1.getBefundID());
+      report2.setLetzteBearbeitungsdatum(2000L);
+      report2.setMikroskopischerBefund("corrected");
+
+      specimenTopic.pipeInput("specimen-key", DummyDataUtilTest.getDummySpecimen());
+      reportTopic.pipeInput("report-key", report1);
+      specimenTopic.pipeInput("specimen-key", DummyDataUtilTest.getDummySpecimen(true));
+      reportTopic.pipeInput("report-key", report2);
+      // late arrival of the older report version
+      reportTopic.pipeInput("report-key", report1);
+
+      assertThat(outputTopic.readRecordsToList())
+          .as("one bundle per new version, not per combination of versions")
+          .hasSize(3);
+      assertThat(
+              meterRegistry
+                  .get(LatestOrderJoin.METRIC_STALE)
+                  .tag("binding", OrderBundleProcessor.BINDING)
+                  .counter()
+                  .count())
+          .isEqualTo(1.0);
+    }
+  }
+
+  @Test
+  public void reportsOfAnOrderAreJoinedSeparately() {
+    try (var testDriver = createDriver("test-order-reports")) {
+      TestInputTopic<String, PathoSpecimen> specimenTopic =
+          testDriver.createInputTopic(
+              "specimen", new StringSerializer(), new JsonSerializer<PathoSpecimen>());
+      TestInputTopic<String, PathoReport> reportTopic =
+          testDriver.createInputTopic(
+              "report", new StringSerializer(), new JsonSerializer<PathoReport>());
+      TestOutputTopic<String, Bundle> outputTopic =
+          testDriver.createOutputTopic(
+              "output", new StringDeserializer(), new FhirDeserializer<>(Bundle.class));
+
+      var stale =
+          meterRegistry
+              .get(LatestOrderJoin.METRIC_STALE)
+              .tag("binding", OrderBundleProcessor.BINDING)
+              .counter();
+      final double staleBefore = stale.count();
+      var mainReport = DummyDataUtilTest.getDummyReport();
+      mainReport.setBefundID("main");
+      mainReport.setLetzteBearbeitungsdatum(2000L);
+      var addendum = DummyDataUtilTest.getDummyReport();
+      addendum.setBefundID("addendum");
+      addendum.setLetzteBearbeitungsdatum(1000L);
+
+      specimenTopic.pipeInput("specimen-key", DummyDataUtilTest.getDummySpecimen());
+      reportTopic.pipeInput("report-key", mainReport);
+      // older, but a different report of the same order
+      reportTopic.pipeInput("report-key", addendum);
+      assertThat(outputTopic.readRecordsToList()).hasSize(2);
+
+      specimenTopic.pipeInput("specimen-key", DummyDataUtilTest.getDummySpecimen(true));
+      assertThat(outputTopic.readRecordsToList())
+          .as("a new specimen is joined with each report")
+          .hasSize(2);
+      assertThat(stale.count()).isEqualTo(staleBefore);
+    }
+  }
+
+  @Test
+  public void failingPartOfOrderIsDeadLetteredAsInputRecord() {
+    try (var testDriver = createDriver("test-order-dlq")) {
+      TestInputTopic<String, PathoSpecimen> specimenTopic =
+          testDriver.createInputTopic(
+              "specimen", new StringSerializer(), new JsonSerializer<PathoSpecimen>());
+      TestInputTopic<String, PathoReport> reportTopic =
+          testDriver.createInputTopic(
+              "report", new StringSerializer(), new JsonSerializer<PathoReport>());
+      TestOutputTopic<String, PathoSpecimen> specimenDlq =
+          testDriver.createOutputTopic(
+              "processPathoSpecimen-dlq",
+              new StringDeserializer(),
+              new JsonDeserializer<>(PathoSpecimen.class, false));
+      TestOutputTopic<String, PathoReport> reportDlq =
+          testDriver.createOutputTopic(
+              "processPathoReport-dlq",
+              new StringDeserializer(),
+              new JsonDeserializer<>(PathoReport.class, false));
+
+      var specimen = DummyDataUtilTest.getDummySpecimen();
+      var report = DummyDataUtilTest.getDummyReport();
+      report.setBefundtyp("Vorbefund");
+      specimenTopic.pipeInput("specimen-key", specimen);
+      reportTopic.pipeInput("report-key", report);
+
+      var deadReport = reportDlq.readRecord();
+      assertThat(deadReport.key()).isEqualTo("report-key");
+      assertThat(deadReport.value().getBefundID()).isEqualTo(report.getBefundID());
+      assertThat(deadReport.headers().lastHeader(DeadLetterHandler.HEADER_BINDING).value())
+          .isEqualTo(OrderBundleProcessor.BINDING.getBytes(StandardCharsets.UTF_8));
+      assertThat(deadReport.headers().lastHeader(LatencyTracking.HEADER_PROCESSING_START))
+          .isNull();
+      assertThat(reportDlq.isEmpty()).isTrue();
+      assertThat(specimenDlq.isEmpty()).as("the specimen maps on its own").isTrue();
+    }
+  }
+}
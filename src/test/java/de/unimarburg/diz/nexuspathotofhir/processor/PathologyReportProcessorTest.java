@@ -7,11 +7,13 @@ import de.unimarburg.diz.nexuspathotofhir.configuration.CsvMappings;
 import de.unimarburg.diz.nexuspathotofhir.configuration.FhirConfiguration;
 import de.unimarburg.diz.nexuspathotofhir.configuration.FhirProperties;
 import de.unimarburg.diz.nexuspathotofhir.configuration.PathoFhirContext;
+import de.unimarburg.diz.nexuspathotofhir.configuration.ProcessorProperties;
 import de.unimarburg.diz.nexuspathotofhir.mapper.*;
 import de.unimarburg.diz.nexuspathotofhir.model.PathoReport;
 import de.unimarburg.diz.nexuspathotofhir.serde.FhirDeserializer;
 import de.unimarburg.diz.nexuspathotofhir.serde.FhirSerializer;
 import de.unimarburg.diz.nexuspathotofhir.util.DummyDataUtilTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.Properties;
 import org.apache.kafka.common.serialization.*;
 import org.apache.kafka.streams.*;
@@ -40,10 +42,22 @@ import org.springframework.kafka.support.serializer.JsonSerializer;
       PathoFindingMacroMapper.class,
       PathoFindingMicroMapper.class,
       CsvMappings.class,
-    })
+      ProcessorProperties.class,
+      MapperFanOutExecutor.class,
+      BundleDeduplication.class,
+      DeadLetterHandler.class,
+      BundleSplitter.class,
+      PipelineMetrics.class,
+      LatencyTracking.class,
+      LogicalIdAddressing.class,
+      ReportCoalescing.class,
+      SimpleMeterRegistry.class,
+    },
+    properties = "processor.deduplication.enabled=true")
 public class PathologyReportProcessorTest {
 
   @Autowired PathologyReportProcessor processor;
+  @Autowired SimpleMeterRegistry meterRegistry;
 
   /** fixme: basic structure - need to be refined */
   @Test
@@ -89,4 +103,49 @@ public class PathologyReportProcessorTest {
       assertThat(result.getFirst().getValue().getEntry().size()).isGreaterThanOrEqualTo(7);
     }
   }
+
+  @Test
+  public void unchangedReportIsSuppressed() {
+    StreamsBuilder builder = new StreamsBuilder();
+
+    final KStream<String, PathoReport> inputStream =
+        builder.stream("input", Consumed.with(Serdes.String(), new JsonSerde<>(PathoReport.class)));
+
+    Properties config = new Properties();
+    config.put(StreamsConfig.APPLICATION_ID_CONFIG, "test-deduplication");
+    config.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+
+    processor
+        .processPathoReport()
+        .apply(inputStream)
+        .to(
+            "output",
+            Produced.with(
+                Serdes.String(),
+                Serdes.serdeFrom(new FhirSerializer<>(), new FhirDeserializer<>(Bundle.class))));
+
+    try (var testDriver = new TopologyTestDriver(builder.build(), config)) {
+      TestInputTopic<String, PathoReport> inputTopic =
+          testDriver.createInputTopic(
+              "input", new StringSerializer(), new JsonSerializer<PathoReport>());
+      TestOutputTopic<String, Bundle> outputTopic =
+          testDriver.createOutputTopic(
+              "output", new StringDeserializer(), new FhirDeserializer<>(Bundle.class));
+
+      var report = DummyDataUtilTest.getDummyReport();
+      inputTopic.pipeInput("key1", report);
+      inputTopic.pipeInput("key1", report);
+      report.setMikroskopischerBefund("changed content");
+      inputTopic.pipeInput("key1", report);
+
+      assertThat(outputTopic.readRecordsToList().size()).isEqualTo(2);
+      assertThat(
+              meterRegistry
+                  .get(BundleDeduplication.METRIC_SUPPRESSED)
+                  .tag("binding", "processPathoReport")
+                  .counter()
+                  .count())
+          .isEqualTo(1.0);
+    }
+  }
 }
@@ -0,0 +1,126 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import de.unimarburg.diz.nexuspathotofhir.model.PathoReport;
+import de.unimarburg.diz.nexuspathotofhir.serde.PathoReportSerde;
+import de.unimarburg.diz.nexuspathotofhir.util.DummyDataUtilTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import org.apache.kafka.common.errors.SerializationException;
+import org.hl7.fhir.r4.model.Bundle;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+public class PipelineMetricsTest {
+
+  private static PipelineMetrics createFixture(SimpleMeterRegistry registry) {
+    var environment =
+        new MockEnvironment()
+            .withProperty(
+                "spring.cloud.function.definition", "processPathoSpecimen;processPathoOrder")
+            .withProperty(
+                "spring.cloud.stream.bindings.processPathoSpecimen-in-0.destination",
+                "patho-specimen")
+            .withProperty(
+                "spring.cloud.stream.bindings.processPathoSpecimen-out-0.destination",
+                "idat-patho-specimen")
+            .withProperty(
+                "spring.cloud.stream.bindings.processPathoOrder-in-0.destination",
+                "patho-specimen")
+            .withProperty(
+                "spring.cloud.stream.bindings.processPathoOrder-in-1.destination", "patho-report")
+            .withProperty(
+                "spring.cloud.stream.bindings.processPathoReport-in-0.destination",
+                "patho-report-inactive")
+            .withProperty(
+                "spring.cloud.stream.kafka.streams.binder.functions."
+                    + "processPathoOrder.applicationId",
+                "nexus-patho-order-to-fhir");
+    return new PipelineMetrics(environment, registry);
+  }
+
+  @Test
+  public void bindingOfTopic() {
+    var fixture = createFixture(new SimpleMeterRegistry());
+
+    assertThat(fixture.bindingOf("idat-patho-specimen")).isEqualTo("processPathoSpecimen");
+    assertThat(fixture.bindingOf("patho-report")).isEqualTo("processPathoOrder");
+    assertThat(fixture.bindingOf("patho-specimen"))
+        .isEqualTo("processPathoSpecimen+processPathoOrder");
+    assertThat(fixture.bindingOf("nexus-patho-order-to-fhir-processPathoOrder-join-changelog"))
+        .isEqualTo("processPathoOrder");
+    assertThat(fixture.bindingOf("patho-report-inactive"))
+        .isEqualTo(PipelineMetrics.UNKNOWN_BINDING);
+  }
+
+  @Test
+  public void serdeRecordsDurationAndSize() {
+    var registry = new SimpleMeterRegistry();
+    var serde = createFixture(registry).instrument(new PathoReportSerde(), PathoReport.class);
+
+    final byte[] data =
+        serde.serializer().serialize("patho-report", DummyDataUtilTest.getDummyReport());
+    serde.deserializer().deserialize("patho-report", data);
+    var thrown =
+        catchThrowable(
+            () ->
+                serde
+                    .deserializer()
+                    .deserialize("patho-report", "{".getBytes(StandardCharsets.UTF_8)));
+
+    assertThat(thrown).isInstanceOf(SerializationException.class);
+    assertThat(
+            registry
+                .get(PipelineMetrics.METRIC_SERDE_DURATION)
+                .tags("binding", "processPathoOrder", "type", "PathoReport")
+                .tags("operation", "deserialize", "outcome", "success")
+                .timer()
+                .count())
+        .isEqualTo(1);
+    assertThat(
+            registry
+                .get(PipelineMetrics.METRIC_SERDE_DURATION)
+                .tags("operation", "deserialize", "outcome", "failure")
+                .timer()
+                .count())
+        .isEqualTo(1);
+    assertThat(
+            registry
+                .get(PipelineMetrics.METRIC_SERDE_BYTES)
+                .tags("binding", "processPathoOrder", "operation", "serialize")
+                .summary()
+                .totalAmount())
+        .isEqualTo(data.length);
+  }
+
+  @Test
+  public void assemblyRecordsEntries() {
+    var registry = new SimpleMeterRegistry();
+    var assembly =
+        createFixture(registry)
+            .assembly(
+                "processPathoSpecimen",
+                (String value) -> new Bundle().addEntry(new Bundle.BundleEntryComponent()));
+
+    assembly.apply("a");
+    assembly.apply("b");
+
+    assertThat(
+            registry
+                .get(PipelineMetrics.METRIC_ASSEMBLY_DURATION)
+                .tag("binding", "processPathoSpecimen")
+                .timer()
+                .count())
+        .isEqualTo(2);
+    assertThat(
+            registry
+                .get(PipelineMetrics.METRIC_BUNDLE_ENTRIES)
+                .tag("binding", "processPathoSpecimen")
+                .summary()
+                .totalAmount())
+        .isEqualTo(2.0);
+  }
+}
@@ -0,0 +1,137 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.unimarburg.diz.nexuspathotofhir.configuration.ProcessorProperties;
+import de.unimarburg.diz.nexuspathotofhir.model.PathoReport;
+import de.unimarburg.diz.nexuspathotofhir.util.DummyDataUtilTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Properties;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.*;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Produced;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerde;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+public class ReportCoalescingTest {
+
+  private static PathoReport version(PathoReport base, String befundtyp, long lastModified) {
+    var report = DummyDataUtilTest.getDummyReport();
+    report.setAuftragsnummer(base.getAuftragsnummer());
+    report.setBefundID(base.getBefundID());
+    report.setBefundtyp(befundtyp);
+    report.setLetzteBearbeitungsdatum(lastModified);
+    return report;
+  }
+
+  private static TopologyTestDriver createDriver(ProcessorProperties properties) {
+    properties.getCoalescing().setEnabled(true);
+    properties.getCoalescing().setGracePeriod(Duration.ofSeconds(10));
+    var fixture = new ReportCoalescing(properties, new SimpleMeterRegistry());
+
+    StreamsBuilder builder = new StreamsBuilder();
+    fixture
+        .apply(
+            builder.stream(
+                "input", Consumed.with(Serdes.String(), new JsonSerde<>(PathoReport.class))),
+            "processPathoReport")
+        .to("output", Produced.with(Serdes.String(), new JsonSerde<>(PathoReport.class)));
+
+    Properties config = new Properties();
+    config.put(StreamsConfig.APPLICATION_ID_CONFIG, "test-coalescing");
+    config.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+    return new TopologyTestDriver(builder.build(), config);
+  }
+
+  private static TestInputTopic<String, PathoReport> inputTopic(TopologyTestDriver testDriver) {
+    return testDriver.createInputTopic(
+        "input", new StringSerializer(), new JsonSerializer<PathoReport>());
+  }
+
+  private static TestOutputTopic<String, PathoReport> outputTopic(TopologyTestDriver testDriver) {
+    return testDriver.createOutputTopic(
+        "output", new StringDeserializer(), new JsonDeserializer<>(PathoReport.class, false));
+  }
+
+  @Test
+  public void onlyNewestVersionIsEmitted() {
+    try (var testDriver = createDriver(new ProcessorProperties())) {
+      var inputTopic = inputTopic(testDriver);
+      var outputTopic = outputTopic(testDriver);
+
+      var main = version(DummyDataUtilTest.getDummyReport(), "Hauptbefund", 1000L);
+      var correction1 = version(main, "Korrekturbericht 1", 2000L);
+      var correction2 = version(main, "Korrekturbericht 2", 3000L);
+
+      inputTopic.pipeInput("main", main);
+      inputTopic.pipeInput("correction2", correction2);
+      // out of order
+      inputTopic.pipeInput("correction1", correction1);
+
+      assertThat(outputTopic.isEmpty()).as("versions wait for grace period").isTrue();
+      testDriver.advanceWallClockTime(Duration.ofSeconds(11));
+
+      var result = outputTopic.readKeyValuesToList();
+      assertThat(result).hasSize(1);
+      assertThat(result.getFirst().key).isEqualTo("correction2");
+      assertThat(result.getFirst().value.getBefundtyp()).isEqualTo("Korrekturbericht 2");
+
+      // late arrival of an older version
+      inputTopic.pipeInput("correction1", correction1);
+      testDriver.advanceWallClockTime(Duration.ofSeconds(11));
+      assertThat(outputTopic.isEmpty()).isTrue();
+    }
+  }
+
+  @Test
+  public void additionOfSameOrderIsNotCoalesced() {
+    try (var testDriver = createDriver(new ProcessorProperties())) {
+      var inputTopic = inputTopic(testDriver);
+      var outputTopic = outputTopic(testDriver);
+
+      var main = version(DummyDataUtilTest.getDummyReport(), "Hauptbefund", 1000L);
+      // additions are separate reports of the same order
+      var addition = DummyDataUtilTest.getDummyReport();
+      addition.setBefundtyp("Zusatzbefund 1");
+      addition.setLetzteBearbeitungsdatum(2000L);
+
+      inputTopic.pipeInput("main", main);
+      inputTopic.pipeInput("addition", addition);
+      testDriver.advanceWallClockTime(Duration.ofSeconds(11));
+
+      assertThat(outputTopic.readKeyValuesToList())
+          .extracting(kv -> kv.key)
+          .containsExactlyInAnyOrder("main", "addition");
+    }
+  }
+
+  @Test
+  public void emittedVersionsExpire() {
+    var properties = new ProcessorProperties();
+    properties.getCoalescing().setRetention(Duration.ofMinutes(10));
+    try (var testDriver = createDriver(properties)) {
+      var inputTopic = inputTopic(testDriver);
+      var outputTopic = outputTopic(testDriver);
+
+      var emitted =
+          testDriver.<String, Long>getTimestampedKeyValueStore(
+              ReportCoalescing.emittedStoreName("processPathoReport"));
+
+      var main = version(DummyDataUtilTest.getDummyReport(), "Hauptbefund", 1000L);
+      inputTopic.pipeInput("main", main);
+      testDriver.advanceWallClockTime(Duration.ofSeconds(11));
+      assertThat(emitted.get(main.getBefundID())).isNotNull();
+
+      testDriver.advanceWallClockTime(Duration.ofMinutes(11));
+      assertThat(emitted.get(main.getBefundID())).isNull();
+      assertThat(outputTopic.readValuesToList()).hasSize(1);
+    }
+  }
+}
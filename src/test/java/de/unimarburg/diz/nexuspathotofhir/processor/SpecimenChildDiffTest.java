@@ -0,0 +1,155 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.processor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.unimarburg.diz.nexuspathotofhir.configuration.ProcessorProperties;
+import de.unimarburg.diz.nexuspathotofhir.serde.FhirDeserializer;
+import de.unimarburg.diz.nexuspathotofhir.serde.FhirSerializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Produced;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.Specimen;
+import org.junit.jupiter.api.Test;
+
+public class SpecimenChildDiffTest {
+
+  private static final String SYSTEM = "https://test/specimenId";
+  private static final Duration RETENTION = Duration.ofDays(1);
+
+  private static Specimen specimen(String label, String parent, String note) {
+    var specimen = new Specimen().addIdentifier(new Identifier().setSystem(SYSTEM).setValue(label));
+    if (parent != null)
+      specimen.addParent(new Reference("Specimen?identifier=" + SYSTEM + "|" + parent));
+    if (note != null) specimen.addNote().setText(note);
+    return specimen;
+  }
+
+  private static Bundle bundle(Specimen... specimens) {
+    var bundle = new Bundle().setType(Bundle.BundleType.BATCH);
+    for (Specimen specimen : specimens) bundle.addEntry().setResource(specimen);
+    return bundle;
+  }
+
+  private static List<String> requests(Bundle bundle) {
+    return bundle.getEntry().stream()
+        .map(
+            entry ->
+                entry.hasResource()
+                    ? ((Specimen) entry.getResource()).getIdentifierFirstRep().getValue()
+                    : entry.getRequest().getMethod() + " " + entry.getRequest().getUrl())
+        .toList();
+  }
+
+  private static TopologyTestDriver driver(
+      ProcessorProperties properties, SimpleMeterRegistry meterRegistry) {
+    var bundleSerde =
+        Serdes.serdeFrom(new FhirSerializer<Bundle>(), new FhirDeserializer<>(Bundle.class));
+    var builder = new StreamsBuilder();
+    new SpecimenChildDiff(properties, meterRegistry)
+        .apply(builder.stream("input", Consumed.with(Serdes.String(), bundleSerde)), "processTest")
+        .to("output", Produced.with(Serdes.String(), bundleSerde));
+
+    var config = new Properties();
+    config.put(StreamsConfig.APPLICATION_ID_CONFIG, "test-child-diff");
+    config.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+    return new TopologyTestDriver(builder.build(), config);
+  }
+
+  private static ProcessorProperties properties() {
+    var properties = new ProcessorProperties();
+    properties.getSpecimenHierarchy().setEnabled(true);
+    properties.getSpecimenHierarchy().setRetention(RETENTION);
+    return properties;
+  }
+
+  @Test
+  void emitsChangedChildrenOnly() {
+    var meterRegistry = new SimpleMeterRegistry();
+    try (var testDriver = driver(properties(), meterRegistry)) {
+      var input =
+          testDriver.createInputTopic(
+              "input", new StringSerializer(), new FhirSerializer<Bundle>());
+      var output =
+          testDriver.createOutputTopic(
+              "output", new StringDeserializer(), new FhirDeserializer<>(Bundle.class));
+
+      var root = specimen("H1", null, null);
+      var block = specimen("H1-1", "H1", null);
+      input.pipeInput("H1", bundle(root, block, specimen("H1-1-1", "H1-1", null)));
+      input.pipeInput("H1", bundle(root, block, specimen("H1-1-1", "H1-1", "HE")));
+      input.pipeInput("H1", bundle(root, block));
+      // invalid input without root keeps the children
+      input.pipeInput("H1", bundle());
+      input.pipeInput("H2", bundle(specimen("H2", null, null), specimen("H2-1", "H2", null)));
+
+      var results = output.readValuesToList().stream().map(SpecimenChildDiffTest::requests);
+      assertThat(results)
+          .containsExactly(
+              List.of("H1", "H1-1", "H1-1-1"),
+              List.of("H1", "H1-1-1"),
+              List.of("H1", "DELETE Specimen?identifier=" + SYSTEM + "|H1-1-1"),
+              List.of(),
+              List.of("H2", "H2-1"));
+      assertThat(
+              meterRegistry
+                  .get(SpecimenChildDiff.METRIC_CHILDREN)
+                  .tag("outcome", "unchanged")
+                  .counter()
+                  .count())
+          .isEqualTo(2.0);
+    }
+  }
+
+  @Test
+  void recordKeysWithSeparatorDoNotShareChildren() {
+    try (var testDriver = driver(properties(), new SimpleMeterRegistry())) {
+      var input =
+          testDriver.createInputTopic(
+              "input", new StringSerializer(), new FhirSerializer<Bundle>());
+      var output =
+          testDriver.createOutputTopic(
+              "output", new StringDeserializer(), new FhirDeserializer<>(Bundle.class));
+
+      input.pipeInput("H1|X", bundle(specimen("H1|X", null, null), specimen("C", "H1|X", null)));
+      input.pipeInput("H1", bundle(specimen("H1", null, null)));
+
+      var results = output.readValuesToList().stream().map(SpecimenChildDiffTest::requests);
+      assertThat(results).containsExactly(List.of("H1|X", "C"), List.of("H1"));
+    }
+  }
+
+  @Test
+  void childrenAreEmittedAgainAfterRetention() {
+    try (var testDriver = driver(properties(), new SimpleMeterRegistry())) {
+      var input =
+          testDriver.createInputTopic(
+              "input", new StringSerializer(), new FhirSerializer<Bundle>());
+      var output =
+          testDriver.createOutputTopic(
+              "output", new StringDeserializer(), new FhirDeserializer<>(Bundle.class));
+      var bundle = bundle(specimen("H1", null, null), specimen("H1-1", "H1", null));
+
+      input.pipeInput("H1", bundle);
+      input.pipeInput("H1", bundle);
+      testDriver.advanceWallClockTime(RETENTION.plus(StoreRetention.MAX_INTERVAL));
+      input.pipeInput("H1", bundle);
+
+      var results = output.readValuesToList().stream().map(SpecimenChildDiffTest::requests);
+      assertThat(results)
+          .containsExactly(List.of("H1", "H1-1"), List.of("H1"), List.of("H1", "H1-1"));
+    }
+  }
+}
@@ -7,11 +7,13 @@ import de.unimarburg.diz.nexuspathotofhir.configuration.CsvMappings;
 import de.unimarburg.diz.nexuspathotofhir.configuration.FhirConfiguration;
 import de.unimarburg.diz.nexuspathotofhir.configuration.FhirProperties;
 import de.unimarburg.diz.nexuspathotofhir.configuration.PathoFhirContext;
+import de.unimarburg.diz.nexuspathotofhir.configuration.ProcessorProperties;
 import de.unimarburg.diz.nexuspathotofhir.mapper.*;
 import de.unimarburg.diz.nexuspathotofhir.model.PathoSpecimen;
 import de.unimarburg.diz.nexuspathotofhir.serde.FhirDeserializer;
 import de.unimarburg.diz.nexuspathotofhir.serde.FhirSerializer;
 import de.unimarburg.diz.nexuspathotofhir.util.DummyDataUtilTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.Properties;
 import org.apache.kafka.common.serialization.Serdes;
 import org.apache.kafka.common.serialization.StringDeserializer;
@@ -34,7 +36,16 @@ import org.springframework.kafka.support.serializer.JsonSerializer;
       FhirConfiguration.class,
       CsvMappings.class,
       SpecimenMapper.class,
-      SpecimenProcessor.class
+      SpecimenProcessor.class,
+      ProcessorProperties.class,
+      BundleDeduplication.class,
+      DeadLetterHandler.class,
+      BundleSplitter.class,
+      PipelineMetrics.class,
+      LatencyTracking.class,
+      LogicalIdAddressing.class,
+      SpecimenChildDiff.class,
+      SimpleMeterRegistry.class
     })
 public class SpecimenProcessorTest {
 
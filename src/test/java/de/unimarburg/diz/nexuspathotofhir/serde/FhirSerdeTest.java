@@ -0,0 +1,165 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.serde;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import de.unimarburg.diz.nexuspathotofhir.configuration.PathoFhirContext;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Observation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+public class FhirSerdeTest {
+
+  static Bundle bundle(int entries, int textLength) {
+    var bundle = new Bundle().setType(Bundle.BundleType.BATCH);
+    bundle.setId("test-bundle");
+    for (int i = 0; i < entries; i++) {
+      var observation =
+          new Observation()
+              .addIdentifier(
+                  new Identifier()
+                      .setSystem("https://your-local-system/pathology/observationId")
+                      .setValue("observation-" + i))
+              .setValueString("ä".repeat(textLength));
+      bundle
+          .addEntry()
+          .setResource(observation)
+          .getRequest()
+          .setMethod(Bundle.HTTPVerb.PUT)
+          .setUrl("Observation?identifier=observation-" + i);
+    }
+    return bundle;
+  }
+
+  @Test
+  void serializedBytesMatchJsonEncoding() {
+    var bundle = bundle(3, 10);
+
+    var bytes = new FhirSerializer<Bundle>().serialize("topic", bundle);
+
+    assertThat(new String(bytes, StandardCharsets.UTF_8))
+        .isEqualTo(PathoFhirContext.getInstance().newJsonParser().encodeResourceToString(bundle));
+  }
+
+  @Test
+  void roundTrip() {
+    var bundle = bundle(5, 100);
+
+    var result =
+        new FhirDeserializer<>(Bundle.class)
+            .deserialize("topic", new FhirSerializer<Bundle>().serialize("topic", bundle));
+
+    assertThat(result.getEntry()).hasSize(5);
+    var observation = (Observation) result.getEntryFirstRep().getResource();
+    assertThat(observation.getValueStringType().getValue()).isEqualTo("ä".repeat(100));
+  }
+
+  @Test
+  void bufferIsReusedButNotRetainedWhenOversized() {
+    var serializer = new FhirSerializer<Bundle>();
+
+    serializer.serialize("topic", bundle(1, 10));
+    var buffer = ReusableByteArrayOutputStream.acquire();
+    buffer.release();
+    serializer.serialize("topic", bundle(1, 10));
+    var reused = ReusableByteArrayOutputStream.acquire();
+    reused.release();
+    assertThat(reused).isSameAs(buffer);
+
+    // two bytes per character
+    serializer.serialize(
+        "topic", bundle(1, ReusableByteArrayOutputStream.MAX_RETAINED_SIZE / 2 + 1));
+    var afterOversized = ReusableByteArrayOutputStream.acquire();
+    afterOversized.release();
+    assertThat(afterOversized).isNotSameAs(buffer);
+  }
+
+  @ParameterizedTest
+  @EnumSource(BundleEncoding.class)
+  void roundTripWithEncoding(BundleEncoding encoding) {
+    var bundle = bundle(5, 100);
+    var headers = new RecordHeaders();
+
+    var bytes = new FhirSerializer<Bundle>(encoding).serialize("topic", headers, bundle);
+    var deserializer = new FhirDeserializer<>(Bundle.class);
+
+    if (encoding == BundleEncoding.JSON)
+      assertThat(headers.lastHeader(BundleEncoding.HEADER_ENCODING)).isNull();
+    else
+      assertThat(headers.lastHeader(BundleEncoding.HEADER_ENCODING).value())
+          .isEqualTo(encoding.headerValue().getBytes(StandardCharsets.UTF_8));
+    assertThat(BundleEncoding.detect(null, bytes, 0, bytes.length)).isEqualTo(encoding);
+    for (var result :
+        List.of(
+            deserializer.deserialize("topic", headers, bytes),
+            deserializer.deserialize("topic", bytes))) {
+      assertThat(PathoFhirContext.getInstance().newJsonParser().encodeResourceToString(result))
+          .isEqualTo(PathoFhirContext.getInstance().newJsonParser().encodeResourceToString(bundle));
+    }
+  }
+
+  @Test
+  void staleEncodingHeaderIsReplaced() {
+    var headers = new RecordHeaders();
+    headers.add(BundleEncoding.HEADER_ENCODING, "smile".getBytes(StandardCharsets.UTF_8));
+
+    var bytes = new FhirSerializer<Bundle>().serialize("topic", headers, bundle(1, 10));
+
+    assertThat(headers.lastHeader(BundleEncoding.HEADER_ENCODING)).isNull();
+    assertThat(new FhirDeserializer<>(Bundle.class).deserialize("topic", headers, bytes).getEntry())
+        .hasSize(1);
+  }
+
+  @Test
+  void smileIsSmallerThanJson() {
+    var bundle = bundle(50, 10);
+
+    var json = new FhirSerializer<Bundle>().serialize("topic", bundle);
+    var smile = new FhirSerializer<Bundle>(BundleEncoding.SMILE).serialize("topic", bundle);
+
+    assertThat(smile.length).isLessThan(json.length);
+  }
+
+  @Test
+  void deserializeFromByteBufferSlice() {
+    var bytes = new FhirSerializer<Bundle>().serialize("topic", bundle(2, 10));
+    var data = ByteBuffer.allocate(bytes.length + 8);
+    data.position(4);
+    data.put(bytes);
+    data.position(4).limit(4 + bytes.length);
+
+    var result =
+        new FhirDeserializer<>(Bundle.class).deserialize("topic", new RecordHeaders(), data);
+
+    assertThat(result.getEntry()).hasSize(2);
+  }
+
+  record Wrapper(Bundle bundle) {}
+
+  @Test
+  void deserializeEmbeddedResource() throws IOException {
+    var json =
+        PathoFhirContext.getInstance().newJsonParser().encodeResourceToString(bundle(2, 10));
+    var module =
+        new SimpleModule().addDeserializer(Bundle.class, new FhirDeserializer<>(Bundle.class));
+    var mapper = new ObjectMapper().registerModule(module);
+
+    var asObject = mapper.readValue("{\"bundle\":" + json + "}", Wrapper.class);
+    var asString =
+        mapper.readValue(
+            "{\"bundle\":" + mapper.writeValueAsString(json) + "}", Wrapper.class);
+
+    assertThat(asObject.bundle().getEntry()).hasSize(2);
+    assertThat(asString.bundle().getEntry()).hasSize(2);
+  }
+}
@@ -0,0 +1,38 @@
+/* GNU AFFERO GENERAL PUBLIC LICENSE  Version 3 (C)2025 */
+package de.unimarburg.diz.nexuspathotofhir.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.hl7.fhir.r4.model.Identifier;
+import org.junit.jupiter.api.Test;
+
+class ReferenceTemplateTest {
+
+  private static final String SYSTEM = "https://fhir.diz.uni-marburg.de/sid/patho-report-id";
+
+  @Test
+  void matchesFormattedReference() {
+    assertThat(ReferenceTemplate.of("DiagnosticReport", SYSTEM).url("E-24-1"))
+        .isEqualTo(String.format("%s?identifier=%s|%s", "DiagnosticReport", SYSTEM, "E-24-1"));
+    assertThat(ReferenceTemplate.of("Patient", null).url(null))
+        .isEqualTo(String.format("%s?identifier=%s|%s", "Patient", null, null));
+  }
+
+  @Test
+  void templatesAreCached() {
+    assertThat(ReferenceTemplate.of("Specimen", SYSTEM))
+        .isSameAs(ReferenceTemplate.of("Specimen", SYSTEM))
+        .isNotSameAs(ReferenceTemplate.of("Observation", SYSTEM));
+  }
+
+  @Test
+  void referencesUseTemplate() {
+    var identifier = new Identifier().setSystem(SYSTEM).setValue("E-24-1");
+
+    assertThat(IdentifierAndReferenceUtil.getReferenceTo("Specimen", identifier).getReference())
+        .isEqualTo("Specimen?identifier=" + SYSTEM + "|E-24-1");
+    assertThat(
+            IdentifierAndReferenceUtil.getReferenceTo("Specimen", "E-24-1", SYSTEM).getReference())
+        .isEqualTo("Specimen?identifier=" + SYSTEM + "|E-24-1");
+  }
+}